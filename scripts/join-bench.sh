@@ -0,0 +1,85 @@
+#!/usr/bin/env bash
+# Compara os modos do servidor com o LoadClient: ligações aceites, latência do join (p50/p99/max)
+# e, com todas as ligações abertas, threads e memória residente do processo do servidor.
+#
+# Uso: scripts/join-bench.sh [EQUIPAS] [JOGADORES] [CONCORRENCIA] [MODO...]
+# Modos: platform (baseline: uma thread de plataforma por ligação), virtual (JDK 21+) e nio.
+# O jogo é criado com uma equipa a mais, para não arrancar enquanto as ligações estão abertas.
+set -euo pipefail
+trap 'kill $(jobs -p) 2>/dev/null || true' EXIT
+cd "$(dirname "$0")/.."
+
+TEAMS=${1:-100}
+PLAYERS=${2:-20}
+PARALLEL=${3:-64}
+shift $(( $# < 3 ? $# : 3 ))
+MODES=("$@")
+[ ${#MODES[@]} -eq 0 ] && MODES=(platform virtual nio)
+PORT=${PORT:-6100}
+JAVA_OPTS=${JAVA_OPTS:--Dsun.stdout.encoding=UTF-8}
+OUT=target/join-bench
+mkdir -p "$OUT"
+
+mvn -B -q compile dependency:build-classpath -Dmdep.outputFile="$OUT/cp.txt"
+CP="target/classes:$(cat "$OUT/cp.txt")"
+JAVA_MAJOR=$(java -XshowSettings:properties -version 2>&1 | sed -n 's/ *java.specification.version = //p')
+
+wait_for() { # ficheiro padrão
+    for _ in $(seq 1 300); do
+        grep -q "$2" "$1" 2>/dev/null && return 0
+        sleep 0.1
+    done
+    echo "timeout à espera de '$2' em $1" >&2
+    return 1
+}
+
+run_mode() {
+    local mode=$1 flags
+    case $mode in
+        platform) flags="--threads=platform" ;;
+        virtual)  flags="--threads=virtual" ;;
+        nio)      flags="--engine=nio" ;;
+        *) echo "modo desconhecido: $mode" >&2; return 1 ;;
+    esac
+    if [ "$mode" = virtual ] && [ "${JAVA_MAJOR%%.*}" -lt 21 ]; then
+        echo "== $mode: ignorado (precisa de JDK 21+, este é $JAVA_MAJOR)"
+        return 0
+    fi
+
+    local log="$OUT/server-$mode.log" load="$OUT/load-$mode.log"
+    local srv_in="$OUT/server-$mode.in" load_in="$OUT/load-$mode.in"
+    rm -f "$srv_in" "$load_in" && mkfifo "$srv_in" "$load_in"
+    java $JAVA_OPTS -cp "$CP" iskahoot.server.Server "$PORT" $flags < "$srv_in" > "$log" 2>&1 &
+    local srv=$!
+    exec 3> "$srv_in"
+    wait_for "$log" "a correr no porto"
+    echo "new $((TEAMS + 1)) $PLAYERS 1" >&3
+    wait_for "$log" "Jogo criado"
+    local code
+    code=$(sed -n 's/.*Jogo criado: c[^ ]* \([A-Z0-9]*\) .*/\1/p' "$log" | head -1)
+
+    java $JAVA_OPTS -cp "$CP" iskahoot.client.LoadClient 127.0.0.1 "$PORT" "$code" "$TEAMS" "$PLAYERS" "$PARALLEL" \
+        < "$load_in" > "$load" 2>&1 &
+    local cli=$!
+    exec 4> "$load_in"
+    wait_for "$load" "Enter para fechar"
+    local threads rss
+    threads=$(ls "/proc/$srv/task" | wc -l)
+    rss=$(awk '/VmRSS/ {print $2}' "/proc/$srv/status")
+
+    echo "== $mode"
+    grep -E "aceites|join" "$load" || true
+    echo "Servidor: $threads threads, RSS $((rss / 1024)) MB"
+
+    echo >&4
+    exec 4>&-
+    wait "$cli" || true
+    exec 3>&-
+    kill "$srv" 2>/dev/null || true
+    wait "$srv" 2>/dev/null || true
+    rm -f "$srv_in" "$load_in"
+}
+
+for m in "${MODES[@]}"; do
+    run_mode "$m"
+done
@@ -0,0 +1,122 @@
+package iskahoot.concurrent;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * countdown() com 1, 8 e 64 threads sobre o mesmo latch. Cada iteração usa um latch novo cujo contador
+ * não chega a zero, para medir o caminho com CAS e não o de "já libertado". As implementações
+ * "lock" e "synchronized" reproduzem o countdown() das versões anteriores, como referência.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModifiedCountdownLatchBenchmark {
+
+    private static final int COUNT = Integer.MAX_VALUE; // cabe nos 31 bits do contador
+    private static final int BONUS_COUNT = 1000;
+
+    @Param({"cas", "lock", "synchronized"})
+    public String impl;
+
+    private Countdown latch;
+
+    interface Countdown {
+        int countdown();
+    }
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        latch = switch (impl) {
+            case "cas" -> new ModifiedCountdownLatch(2, BONUS_COUNT, 30, COUNT)::countdown;
+            case "lock" -> new LockCountdown(2, BONUS_COUNT, COUNT);
+            case "synchronized" -> new SynchronizedCountdown(2, BONUS_COUNT, COUNT);
+            default -> throw new IllegalArgumentException(impl);
+        };
+    }
+
+    @Benchmark
+    @Threads(1)
+    public int oneThread() {
+        return latch.countdown();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public int eightThreads() {
+        return latch.countdown();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public int sixtyFourThreads() {
+        return latch.countdown();
+    }
+
+    /** countdown() da versão com ReentrantLock (modo de threads virtuais). */
+    static final class LockCountdown implements Countdown {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final int bonusFactor;
+        private int bonusLeft;
+        private int count;
+
+        LockCountdown(int bonusFactor, int bonusCount, int count) {
+            this.bonusFactor = bonusFactor;
+            this.bonusLeft = bonusCount;
+            this.count = count;
+        }
+
+        @Override
+        public int countdown() {
+            lock.lock();
+            try {
+                if (count == 0) return 1;
+                int factor = (bonusLeft > 0) ? bonusFactor : 1;
+                if (bonusLeft > 0) bonusLeft--;
+                count--;
+                return factor;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /** countdown() da versão original, synchronized. */
+    static final class SynchronizedCountdown implements Countdown {
+        private final int bonusFactor;
+        private int bonusLeft;
+        private int count;
+
+        SynchronizedCountdown(int bonusFactor, int bonusCount, int count) {
+            this.bonusFactor = bonusFactor;
+            this.bonusLeft = bonusCount;
+            this.count = count;
+        }
+
+        @Override
+        public synchronized int countdown() {
+            if (count == 0) return 1;
+            int factor = (bonusLeft > 0) ? bonusFactor : 1;
+            if (bonusLeft > 0) bonusLeft--;
+            count--;
+            return factor;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package iskahoot.net;
+
+import iskahoot.model.Question;
+import iskahoot.model.Quiz;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tamanho e custo de codificação de cada mensagem: codec binário contra Java serialization.
+ * objectStream serializa cada mensagem num stream novo (cabeçalho e descritores de classe incluídos);
+ * o setup imprime os tamanhos.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BinaryCodecBenchmark {
+
+    @Param({"question", "answer", "scoreboard", "quiz"})
+    public String message;
+
+    private Message m;
+
+    @Setup
+    public void setup() throws IOException {
+        m = switch (message) {
+            case "question" -> new QuestionMessage("ABCD", 3, 10, "Qual é a capital de Portugal?",
+                    List.of("Lisboa", "Porto", "Coimbra", "Braga"), 10, 30);
+            case "answer" -> new AnswerMessage("ABCD", "Team1", "jogador1", 3, 2);
+            case "scoreboard" -> scoreboard(20);
+            case "quiz" -> new QuizPayloadMessage("ABCD", quiz(10));
+            default -> throw new IllegalArgumentException(message);
+        };
+        System.out.println(message + ": binário " + binary().length + " B, object stream "
+                + objectStream().length + " B");
+    }
+
+    @Benchmark
+    public byte[] binary() {
+        return BinaryCodec.frame(m);
+    }
+
+    @Benchmark
+    public byte[] objectStream() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(m);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static ScoreboardMessage scoreboard(int teams) {
+        Map<String, Integer> totals = new LinkedHashMap<>();
+        Map<String, Integer> round = new LinkedHashMap<>();
+        List<String> ranking = new ArrayList<>();
+        for (int t = 1; t <= teams; t++) {
+            totals.put("Team" + t, t * 7);
+            round.put("Team" + t, t % 3 == 0 ? 10 : 0);
+            ranking.add("Team" + (teams - t + 1));
+        }
+        return new ScoreboardMessage("ABCD", 3, "Fim da pergunta 3", totals, round, ranking);
+    }
+
+    private static Quiz quiz(int n) {
+        List<Question> qs = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            Question q = new Question();
+            q.question = "Pergunta número " + i + " sobre concorrência em Java?";
+            q.options = List.of("synchronized", "ReentrantLock", "AtomicInteger", "volatile");
+            q.correct = i % 4;
+            q.points = 5 + i;
+            qs.add(q);
+        }
+        return new Quiz("Quiz de benchmark", qs);
+    }
+}
@@ -0,0 +1,82 @@
+package iskahoot.net;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CPU de serialização de um broadcast por ronda (placar de 20 equipas) para N jogadores:
+ * um writeObject no ObjectOutputStream de cada cliente contra um EncodedMessage partilhado.
+ * As ligações escrevem para um OutputStream nulo; só conta a codificação.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BroadcastBenchmark {
+
+    /** Rondas por jogo: os streams por cliente fazem reset a cada jogo, como ligações novas. */
+    private static final int GAME_ROUNDS = 50;
+    private static final int TEAMS = 20;
+
+    @Param({"100", "500", "2000"})
+    public int players;
+
+    private final List<String> teamNames = new ArrayList<>();
+    private ObjectOutputStream[] perClient;
+    private int round;
+
+    @Setup
+    public void setup() throws IOException {
+        for (int t = 1; t <= TEAMS; t++) teamNames.add("Team" + t);
+        perClient = new ObjectOutputStream[players];
+        for (int i = 0; i < players; i++) perClient[i] = new ObjectOutputStream(OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public void perClientWriteObject() throws IOException {
+        ScoreboardMessage m = scoreboard(round++);
+        boolean newGame = round % GAME_ROUNDS == 0;
+        for (ObjectOutputStream out : perClient) {
+            if (newGame) out.reset();
+            out.writeObject(m);
+            out.flush();
+        }
+    }
+
+    @Benchmark
+    public void encodeOnce() throws IOException {
+        EncodedMessage m = new EncodedMessage(scoreboard(round++));
+        for (int i = 0; i < players; i++) m.writeTo(OutputStream.nullOutputStream(), false);
+    }
+
+    private ScoreboardMessage scoreboard(int r) {
+        Map<String, Integer> totals = new LinkedHashMap<>();
+        Map<String, Integer> roundPoints = new LinkedHashMap<>();
+        for (int t = 0; t < TEAMS; t++) {
+            totals.put(teamNames.get(t), r * t);
+            roundPoints.put(teamNames.get(t), t % 3 == 0 ? 10 : 0);
+        }
+        return new ScoreboardMessage("ABCD", r % GAME_ROUNDS, "Fim da pergunta", totals, roundPoints,
+                new ArrayList<>(teamNames));
+    }
+}
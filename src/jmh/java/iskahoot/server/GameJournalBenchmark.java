@@ -0,0 +1,95 @@
+package iskahoot.server;
+
+import iskahoot.concurrent.TaskRunner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Custo de registar uma resposta no diário, do lado de quem responde: "off" é o diário desligado,
+ * "on" escreve num ficheiro temporário com a thread do diário a fazer force() por lote.
+ * As respostas repartem-se por GAMES jogos, cada um com o seu buffer de staging.
+ * No fim de cada iteração imprime quantas respostas couberam, em média, em cada force().
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class GameJournalBenchmark {
+
+    private static final int GAMES = 8;
+
+    @Param({"off", "on"})
+    public String journal;
+
+    private Path dir;
+    private GameJournal j;
+    private final String[] codes = new String[GAMES];
+    private final AtomicInteger answers = new AtomicInteger();
+
+    @Setup(Level.Iteration)
+    public void open() throws IOException {
+        answers.set(0);
+        if (journal.equals("off")) {
+            j = GameJournal.disabled();
+            return;
+        }
+        dir = Files.createTempDirectory("journal-bench");
+        j = GameJournal.open(dir.resolve("journal.bin"), TaskRunner.platform());
+        for (int g = 0; g < GAMES; g++) {
+            GameRoom room = new GameRoom("G" + g, 10, 10, 32);
+            codes[g] = room.code;
+            j.gameCreated(room);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void close() throws IOException, InterruptedException {
+        j.close();
+        if (dir == null) return;
+        long commits = Math.max(1, j.commits());
+        System.out.println(answers.get() / commits + " respostas por force()");
+        Thread.sleep(200); // a thread do diário escreve o resto e fecha o ficheiro
+        try (var files = Files.list(dir)) {
+            for (Path p : files.toList()) Files.delete(p);
+        }
+        Files.delete(dir);
+        dir = null;
+    }
+
+    private void answer() {
+        int n = answers.incrementAndGet();
+        j.answer(codes[n & (GAMES - 1)], n & 31, "jogador" + (n & 1023), n & 3);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void oneThread() {
+        answer();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void fourThreads() {
+        answer();
+    }
+}
@@ -0,0 +1,89 @@
+package iskahoot.server;
+
+import iskahoot.io.QuestionLoader;
+import iskahoot.io.QuizCatalog;
+import iskahoot.net.JoinMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tempestade de joins espalhada por 200 jogos, com 1, 8 e 64 threads. "global" serializa cada
+ * handleJoin num único monitor, como fazia o GameManager antes dos registos concorrentes.
+ * Cada iteração começa com um GameManager novo e salas que não chegam a encher.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class JoinBenchmark {
+
+    private static final int GAMES = 200;
+    private static final int TEAMS = 100;
+    private static final int PLAYERS = 100;
+
+    @Param({"concurrent", "global"})
+    public String registry;
+
+    private QuizCatalog catalog;
+    private GameManager gm;
+    private String[] codes;
+    private final AtomicLong next = new AtomicLong();
+    private final Object monitor = new Object();
+
+    @Setup(Level.Trial)
+    public void loadCatalog() {
+        catalog = QuizCatalog.of(QuestionLoader.loadFromResource("/questions.json"));
+    }
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        gm = new GameManager(catalog);
+        codes = new String[GAMES];
+        for (int i = 0; i < GAMES; i++) codes[i] = gm.createGame(TEAMS, PLAYERS, 1).code;
+    }
+
+    private boolean join() {
+        long n = next.getAndIncrement();
+        JoinMessage j = new JoinMessage(codes[(int) (n % GAMES)], "Team" + (n / GAMES % TEAMS), "u" + n);
+        if (registry.equals("global")) {
+            synchronized (monitor) {
+                return gm.handleJoin(j).ok;
+            }
+        }
+        return gm.handleJoin(j).ok;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean oneThread() {
+        return join();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean eightThreads() {
+        return join();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public boolean sixtyFourThreads() {
+        return join();
+    }
+}
@@ -0,0 +1,70 @@
+package iskahoot.server;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo da classificação numa ronda em que 5% das equipas pontuam: ordenar todas as equipas no fecho
+ * (como antes) contra reposicionar na TeamRanking a cada pontuação e ler o top-10.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TeamRankingBenchmark {
+
+    private static final int TOP = 10;
+
+    @Param({"100", "5000", "50000"})
+    public int teams;
+
+    private int[] scores;
+    private TeamRanking ranking;
+    private final Random rnd = new Random(42);
+
+    @Setup
+    public void setup() {
+        scores = new int[teams];
+        ranking = new TeamRanking(teams);
+        for (int i = 0; i < teams; i++) ranking.update(i, 0);
+    }
+
+    private void scoreRound(boolean ranked) {
+        for (int i = 0; i < Math.max(1, teams / 20); i++) {
+            int team = rnd.nextInt(teams);
+            int points = 1 + rnd.nextInt(10);
+            scores[team] += points;
+            if (ranked) ranking.add(team, points); // como ScoreboardTracker.addPoints
+        }
+    }
+
+    @Benchmark
+    public Integer[] fullSort() {
+        scoreRound(false);
+        Integer[] order = new Integer[teams];
+        for (int i = 0; i < teams; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Integer.compare(scores[b], scores[a]));
+        return Arrays.copyOf(order, TOP);
+    }
+
+    @Benchmark
+    public int[] incremental() {
+        scoreRound(true);
+        return ranking.top(TOP);
+    }
+}
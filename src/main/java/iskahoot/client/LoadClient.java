@@ -0,0 +1,93 @@
+package iskahoot.client;
+
+import iskahoot.net.JoinMessage;
+import iskahoot.net.JoinResponse;
+
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Gerador de carga para medir o servidor: abre equipas*jogadores ligações, faz join em todas
+ * e reporta quantas ficaram ligadas e a latência do join (ligar -> JoinResponse).
+ * Serve para comparar os modos do servidor (ex.: --threads=platform vs --threads=virtual).
+ */
+public class LoadClient {
+    public static void main(String[] args) throws Exception {
+        if (args.length < 5) {
+            System.out.println("Uso: java iskahoot.client.LoadClient <IP> <PORTO> <JOGO> <EQUIPAS> <JOGADORES> [CONCORRENCIA]");
+            return;
+        }
+        String host     = args[0];
+        int    port     = Integer.parseInt(args[1]);
+        String gameCode = args[2];
+        int    teams    = Integer.parseInt(args[3]);
+        int    players  = Integer.parseInt(args[4]);
+        int    parallel = (args.length >= 6) ? Integer.parseInt(args[5]) : 64;
+
+        List<Socket> open = Collections.synchronizedList(new ArrayList<>());
+        List<Long> latenciesUs = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger failed = new AtomicInteger();
+
+        ExecutorService pool = Executors.newFixedThreadPool(parallel);
+        long start = System.nanoTime();
+        for (int t = 1; t <= teams; t++) {
+            for (int p = 1; p <= players; p++) {
+                String team = "Team" + t;
+                String user = "load" + t + "_" + p;
+                pool.execute(() -> {
+                    long t0 = System.nanoTime();
+                    try {
+                        Socket s = new Socket(host, port);
+                        ObjectOutputStream out = new ObjectOutputStream(s.getOutputStream());
+                        out.flush();
+                        ObjectInputStream in = new ObjectInputStream(s.getInputStream());
+                        out.writeObject(new JoinMessage(gameCode, team, user));
+                        out.flush();
+                        Object obj = in.readObject();
+                        if (obj instanceof JoinResponse resp && resp.ok) {
+                            latenciesUs.add((System.nanoTime() - t0) / 1000);
+                            open.add(s); // manter a ligação aberta para medir capacidade
+                        } else {
+                            failed.incrementAndGet();
+                            s.close();
+                        }
+                    } catch (Exception e) {
+                        failed.incrementAndGet();
+                    }
+                });
+            }
+        }
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.MINUTES);
+        long totalMs = (System.nanoTime() - start) / 1_000_000;
+
+        List<Long> sorted = new ArrayList<>(latenciesUs);
+        Collections.sort(sorted);
+        System.out.println("Ligações aceites: " + sorted.size() + "/" + (teams * players)
+                + " (falhas: " + failed.get() + ") em " + totalMs + " ms");
+        if (!sorted.isEmpty()) {
+            System.out.println("Latência do join (ms): p50=" + percentileMs(sorted, 50)
+                    + " p99=" + percentileMs(sorted, 99)
+                    + " max=" + percentileMs(sorted, 100));
+        }
+
+        System.out.println("Enter para fechar as ligações...");
+        System.in.read();
+        for (Socket s : open) {
+            try { s.close(); } catch (Exception ignored) {}
+        }
+    }
+
+    private static String percentileMs(List<Long> sortedUs, int pct) {
+        int idx = Math.min(sortedUs.size() - 1, (int) Math.ceil(pct / 100.0 * sortedUs.size()) - 1);
+        return String.format("%.2f", sortedUs.get(Math.max(0, idx)) / 1000.0);
+    }
+}
@@ -10,7 +10,7 @@ import java.util.List;
 
 // Entrada do cliente. Modo rede (args >=5): host port jogo equipa user -> GUI de rede.
 // Caso contrário, corre o modo local offline da entrega intermédia.
-// Escolhe modo rede se args >=5: host port jogo equipa user.
+// Escolhe modo rede se args >=5: host port jogo equipa user [legacy].
 
 public class Main {
   public static void main(String[] args) {
@@ -48,9 +48,10 @@ public class Main {
     String gameCode = args[2];
     String teamId   = args[3];
     String user     = args[4];
+    boolean binary  = !(args.length >= 6 && args[5].equals("legacy"));
 
     try {
-      NetGuiClient conn = NetGuiClient.connect(host, port, gameCode, teamId, user);
+      NetGuiClient conn = NetGuiClient.connect(host, port, gameCode, teamId, user, binary);
       SwingUtilities.invokeLater(() -> {
         NetworkKahootWindow w = new NetworkKahootWindow(conn, gameCode, teamId, user);
         w.setVisible(true);
@@ -3,23 +3,61 @@ package iskahoot.client;
 import iskahoot.net.JoinMessage;
 import iskahoot.net.JoinResponse;
 import iskahoot.net.Message;
+import iskahoot.net.MessageChannel;
 import iskahoot.net.QuestionMessage;
 import iskahoot.net.AnswerMessage;
+import iskahoot.net.ResumeMessage;
+import iskahoot.net.ResumeResponse;
 import iskahoot.net.ScoreboardMessage;
 import iskahoot.net.GameOverMessage;
 import iskahoot.net.ErrorMessage;
+import iskahoot.net.QuizOfferMessage;
 import iskahoot.net.QuizPayloadMessage;
+import iskahoot.net.QuizRequestMessage;
+import iskahoot.net.ScoreboardSyncMessage;
 import iskahoot.model.Quiz;
 
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.net.Socket;
+import java.io.IOException;
 
-/** Cliente de consola para testar a rede (envia respostas automáticas). */
+/**
+ * Cliente de consola para testar a rede (envia respostas automáticas).
+ * Usa o protocolo binário; com "legacy" como 6º argumento usa o stream de objetos antigo.
+ * O quiz só é descarregado se o hash anunciado pelo servidor não estiver na QuizCache.
+ * Os placares chegam como deltas e são aplicados a uma cópia local (ScoreboardView).
+ * Se a ligação cair a meio do jogo, volta a ligar e retoma o lugar com o token do JoinResponse
+ * (ResumeMessage); só se o lugar tiver expirado faz outra vez o join completo.
+ */
 public class NetClient {
+
+    private static final int RESUME_ATTEMPTS = 5;
+    private static final long RESUME_BACKOFF_MS = 500;
+
+    private final String host;
+    private final int port;
+    private final boolean binary;
+    private final String gameCode;
+    private final String teamId;
+    private final String username;
+
+    private final QuizCache cache = QuizCache.defaultCache();
+    private final ScoreboardView board = new ScoreboardView();
+    private String offeredHash;
+    private Quiz quiz;
+    private String resumeToken;
+    private int answered = -1; // pergunta já respondida antes de a ligação cair
+
+    private NetClient(String host, int port, boolean binary, String gameCode, String teamId, String username) {
+        this.host = host;
+        this.port = port;
+        this.binary = binary;
+        this.gameCode = gameCode;
+        this.teamId = teamId;
+        this.username = username;
+    }
+
     public static void main(String[] args) throws Exception {
-        if (args.length != 5) {
-            System.out.println("Uso: java iskahoot.client.NetClient <IP> <PORTO> <JOGO> <EQUIPA> <USERNAME>");
+        if (args.length != 5 && args.length != 6) {
+            System.out.println("Uso: java iskahoot.client.NetClient <IP> <PORTO> <JOGO> <EQUIPA> <USERNAME> [legacy]");
             return;
         }
 
@@ -28,83 +66,145 @@ public class NetClient {
         String gameCode = args[2];
         String teamId   = args[3];
         String username = args[4];
+        boolean binary  = !(args.length == 6 && args[5].equals("legacy"));
 
-        try (Socket s = new Socket(host, port)) {
-            System.out.println("Ligado ao servidor " + host + ":" + port);
-
-            // Criar streams de objetos (mesma ordem do servidor)
-            ObjectOutputStream out = new ObjectOutputStream(s.getOutputStream());
-            out.flush();
-            ObjectInputStream in = new ObjectInputStream(s.getInputStream());
-
-            // 1) Criar mensagem de join
-            JoinMessage join = new JoinMessage(gameCode, teamId, username);
-
-            // 2) Enviar
-            out.writeObject(join);
-            out.flush();
-            System.out.println("Enviado pedido de join: " + gameCode + "," + teamId + "," + username);
-
-            // 3) Ler resposta
-            Object obj = in.readObject();
-            if (obj instanceof JoinResponse resp) {
-                System.out.println("Resposta do servidor: ok=" + resp.ok + ", info=" + resp.info);
-                if (!resp.ok) return;
-            } else if (obj instanceof Message) {
-                System.out.println("Recebi outro tipo de mensagem: " + obj.getClass());
-                return;
-            } else {
-                System.out.println("Objeto desconhecido do servidor.");
-                return;
+        new NetClient(host, port, binary, gameCode, teamId, username).run();
+    }
+
+    private void run() throws Exception {
+        MessageChannel ch = join();
+        while (ch != null) {
+            try (MessageChannel c = ch) {
+                if (play(c)) return; // fim do jogo
+            } catch (IOException e) {
+                System.out.println("Ligação perdida: " + e.getMessage());
             }
+            ch = resume();
+        }
+    }
 
-            // 4) Esperar quiz completo e depois perguntas
-            Quiz quiz = null;
-            while (true) {
-                Object recv = in.readObject();
-                if (recv instanceof QuizPayloadMessage qp) {
-                    quiz = qp.quiz;
-                    System.out.println("Quiz recebido do servidor: " + (quiz != null ? quiz.name : "sem nome"));
-                    if (quiz != null) {
-                        System.out.println("Total de perguntas: " + quiz.questions.size());
-                    }
-                } else if (recv instanceof QuestionMessage qmsg) {
-                    System.out.println("Pergunta [" + (qmsg.questionIndex + 1) + "/" + qmsg.totalQuestions + "]: " + qmsg.questionText);
-                    for (int i = 0; i < qmsg.options.size(); i++) {
-                        System.out.println("  " + i + ") " + qmsg.options.get(i));
-                    }
-
-                    // para teste: responde sempre com a opção 0
-                    AnswerMessage ans = new AnswerMessage(gameCode, teamId, username, qmsg.questionIndex, 0);
-                    out.writeObject(ans);
-                    out.flush();
-                    System.out.println("Resposta enviada (opção 0)");
-
-                } else if (recv instanceof ScoreboardMessage sm) {
-                    System.out.println("Placar: " + sm.scoreboard + " (" + sm.info + ")");
-                    if (sm.roundPoints != null) {
-                        System.out.println("Pontos da ronda: " + sm.roundPoints);
-                    }
-                    if (sm.ranking != null) {
-                        System.out.println("Ranking: " + sm.ranking);
-                        int pos = sm.ranking.indexOf(teamId);
-                        if (pos >= 0) {
-                            System.out.println("Posição da equipa: " + (pos + 1));
-                        }
-                    }
-                } else if (recv instanceof GameOverMessage gm) {
-                    System.out.println("Fim: " + gm.info);
-                    break;
-                } else if (recv instanceof ErrorMessage em) {
-                    System.out.println("Erro: " + em.info);
-                } else if (recv instanceof Message) {
-                    System.out.println("Mensagem não tratada: " + recv.getClass());
-                } else {
-                    System.out.println("Objeto desconhecido do servidor.");
-                    break;
+    private MessageChannel connect() throws IOException {
+        MessageChannel ch = MessageChannel.connect(host, port, binary);
+        System.out.println("Ligado ao servidor " + host + ":" + port
+                + " (protocolo " + (ch.binary() ? "binário" : "stream de objetos") + ")");
+        return ch;
+    }
+
+    /** Join completo; devolve a ligação pronta a jogar ou null se o servidor recusou. */
+    private MessageChannel join() throws IOException {
+        MessageChannel ch = connect();
+
+        // 1) Criar mensagem de join
+        JoinMessage join = new JoinMessage(gameCode, teamId, username, true, true);
+
+        // 2) Enviar
+        ch.send(join);
+        System.out.println("Enviado pedido de join: " + gameCode + "," + teamId + "," + username);
+
+        // 3) Ler resposta
+        Message obj = ch.receive();
+        if (obj instanceof JoinResponse resp) {
+            System.out.println("Resposta do servidor: ok=" + resp.ok + ", info=" + resp.info);
+            if (resp.ok) {
+                resumeToken = resp.resumeToken;
+                return ch;
+            }
+        } else {
+            System.out.println("Recebi outro tipo de mensagem: " + obj.getClass());
+        }
+        ch.close();
+        return null;
+    }
+
+    /**
+     * Retoma o lugar depois de a ligação cair: um pedido e uma resposta, sem voltar a receber o quiz.
+     * Tenta algumas vezes (o servidor ou a rede podem demorar a voltar); se o lugar já não existir,
+     * faz o join completo.
+     */
+    private MessageChannel resume() throws IOException, InterruptedException {
+        if (resumeToken == null) return null; // servidor sem retoma
+        for (int attempt = 1; attempt <= RESUME_ATTEMPTS; attempt++) {
+            Thread.sleep(RESUME_BACKOFF_MS * attempt);
+            MessageChannel ch;
+            try {
+                ch = connect();
+                ch.send(new ResumeMessage(gameCode, resumeToken));
+                Message obj = ch.receive();
+                if (obj instanceof ResumeResponse resp && resp.ok) {
+                    answered = resp.answeredQuestion;
+                    System.out.println("Lugar retomado (equipa " + resp.teamId + ")"
+                            + (answered >= 0 ? ", pergunta " + (answered + 1) + " já respondida" : ""));
+                    return ch;
                 }
+                ch.close();
+                System.out.println("Retoma recusada: " + ((obj instanceof ResumeResponse r) ? r.info : obj.getClass()));
+                return join();
+            } catch (IOException e) {
+                System.out.println("Tentativa de retoma " + attempt + " falhou: " + e.getMessage());
             }
+        }
+        return null;
+    }
 
+    /** Recebe e responde até ao fim do jogo (true) ou até a ligação cair (IOException). */
+    private boolean play(MessageChannel ch) throws IOException {
+        // Esperar quiz completo e depois perguntas
+        while (true) {
+            Message recv = ch.receive();
+            if (recv instanceof QuizOfferMessage offer) {
+                quiz = cache.get(offer.hash);
+                if (quiz != null) {
+                    System.out.println("Quiz em cache: " + quiz.name + " (" + quiz.questions.size() + " perguntas)");
+                } else {
+                    offeredHash = offer.hash;
+                    ch.send(new QuizRequestMessage(gameCode, offer.hash));
+                }
+            } else if (recv instanceof QuizPayloadMessage qp) {
+                quiz = qp.quiz;
+                if (offeredHash != null) cache.put(offeredHash, quiz);
+                System.out.println("Quiz recebido do servidor: " + (quiz != null ? quiz.name : "sem nome"));
+                if (quiz != null) {
+                    System.out.println("Total de perguntas: " + quiz.questions.size());
+                }
+            } else if (recv instanceof QuestionMessage qmsg) {
+                System.out.println("Pergunta [" + (qmsg.questionIndex + 1) + "/" + qmsg.totalQuestions + "]: " + qmsg.questionText);
+                for (int i = 0; i < qmsg.options.size(); i++) {
+                    System.out.println("  " + i + ") " + qmsg.options.get(i));
+                }
+                if (qmsg.questionIndex == answered) {
+                    System.out.println("Já respondida antes de a ligação cair");
+                    continue;
+                }
+
+                // para teste: responde sempre com a opção 0
+                AnswerMessage ans = new AnswerMessage(gameCode, teamId, username, qmsg.questionIndex, 0);
+                ch.send(ans);
+                answered = qmsg.questionIndex;
+                System.out.println("Resposta enviada (opção 0)");
+
+            } else if (recv instanceof ScoreboardMessage sm) {
+                if (!board.apply(sm)) {
+                    // delta sobre uma versão que não temos: pedir o placar completo
+                    ch.send(new ScoreboardSyncMessage(gameCode, board.version()));
+                    continue;
+                }
+                System.out.println("Placar: " + board.totals(teamId) + " (" + sm.info + ")");
+                System.out.println("Pontos da ronda: " + board.roundMap(teamId));
+                System.out.println("Ranking: " + board.ranking());
+                // o servidor só envia as primeiras equipas; a posição própria vem em rank
+                int pos = board.rank(teamId);
+                if (pos > 0) {
+                    System.out.println("Posição da equipa: " + pos
+                            + (board.totalTeams() > 0 ? "/" + board.totalTeams() : ""));
+                }
+            } else if (recv instanceof GameOverMessage gm) {
+                System.out.println("Fim: " + gm.info);
+                return true;
+            } else if (recv instanceof ErrorMessage em) {
+                System.out.println("Erro: " + em.info);
+            } else {
+                System.out.println("Mensagem não tratada: " + recv.getClass());
+            }
         }
     }
 }
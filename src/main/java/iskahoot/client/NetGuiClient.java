@@ -3,62 +3,89 @@ package iskahoot.client;
 import iskahoot.net.JoinMessage;
 import iskahoot.net.JoinResponse;
 import iskahoot.net.Message;
+import iskahoot.net.MessageChannel;
+import iskahoot.net.QuizOfferMessage;
 import iskahoot.net.QuizPayloadMessage;
+import iskahoot.net.QuizRequestMessage;
 import iskahoot.model.Quiz;
 
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.net.Socket;
+import java.io.IOException;
+import java.util.ArrayDeque;
 
-/** Cliente de rede (GUI) responsável pelo handshake de join e entrega de streams. */
+/**
+ * Cliente de rede (GUI) responsável pelo handshake de join e entrega do canal de mensagens.
+ * O quiz vem da QuizCache quando o servidor só envia o hash e este já é conhecido; se não for, é
+ * pedido ao servidor e as mensagens que chegarem entretanto ficam guardadas para receive().
+ */
 public class NetGuiClient implements AutoCloseable {
-    private final Socket socket;
-    private final ObjectOutputStream out;
-    private final ObjectInputStream in;
+    private final MessageChannel channel;
+    private final ArrayDeque<Message> pending = new ArrayDeque<>();
     private Quiz quiz;
 
-    private NetGuiClient(Socket socket, ObjectOutputStream out, ObjectInputStream in) {
-        this.socket = socket;
-        this.out = out;
-        this.in = in;
+    private NetGuiClient(MessageChannel channel) {
+        this.channel = channel;
     }
 
     public static NetGuiClient connect(String host, int port, String gameCode, String teamId, String username) throws Exception {
-        Socket s = new Socket(host, port);
-        ObjectOutputStream out = new ObjectOutputStream(s.getOutputStream());
-        out.flush();
-        ObjectInputStream in = new ObjectInputStream(s.getInputStream());
+        return connect(host, port, gameCode, teamId, username, true);
+    }
+
+    /**
+     * @param binary usar o protocolo binário (cai para o stream de objetos se o servidor não o suportar)
+     */
+    public static NetGuiClient connect(String host, int port, String gameCode, String teamId, String username,
+                                       boolean binary) throws Exception {
+        MessageChannel ch = MessageChannel.connect(host, port, binary);
 
-        JoinMessage join = new JoinMessage(gameCode, teamId, username);
-        out.writeObject(join);
-        out.flush();
+        JoinMessage join = new JoinMessage(gameCode, teamId, username, true, true);
+        ch.send(join);
 
-        Object obj = in.readObject();
-        if (obj instanceof JoinResponse resp) {
+        Message msg = ch.receive();
+        if (msg instanceof JoinResponse resp) {
             if (!resp.ok) {
-                s.close();
+                ch.close();
                 throw new IllegalStateException("Join falhou: " + resp.info);
             }
-            // esperar quiz payload imediatamente a seguir
-            Object maybeQuiz = in.readObject();
-            Quiz loadedQuiz = null;
+            // a seguir vem o quiz completo ou só o seu hash
+            NetGuiClient client = new NetGuiClient(ch);
+            Message maybeQuiz = ch.receive();
             if (maybeQuiz instanceof QuizPayloadMessage qp) {
-                loadedQuiz = qp.quiz;
+                client.quiz = qp.quiz;
+            } else if (maybeQuiz instanceof QuizOfferMessage offer) {
+                QuizCache cache = QuizCache.defaultCache();
+                client.quiz = cache.get(offer.hash);
+                if (client.quiz == null) {
+                    ch.send(new QuizRequestMessage(gameCode, offer.hash));
+                    client.quiz = client.awaitQuiz(cache, offer.hash);
+                }
+            } else {
+                client.pending.add(maybeQuiz);
             }
-            NetGuiClient client = new NetGuiClient(s, out, in);
-            client.quiz = loadedQuiz;
             return client;
         }
-        s.close();
+        ch.close();
         throw new IllegalStateException("Resposta inesperada do servidor");
     }
 
-    public ObjectOutputStream out() {
-        return out;
+    private Quiz awaitQuiz(QuizCache cache, String hash) throws IOException {
+        while (true) {
+            Message m = channel.receive();
+            if (m instanceof QuizPayloadMessage qp) {
+                cache.put(hash, qp.quiz);
+                return qp.quiz;
+            }
+            pending.add(m); // o jogo pode já ter começado
+        }
+    }
+
+    /** Próxima mensagem do servidor (primeiro as que chegaram durante o handshake). */
+    public Message receive() throws IOException {
+        Message m = pending.poll();
+        return (m != null) ? m : channel.receive();
     }
 
-    public ObjectInputStream in() {
-        return in;
+    public MessageChannel channel() {
+        return channel;
     }
 
     public Quiz quiz() {
@@ -67,8 +94,6 @@ public class NetGuiClient implements AutoCloseable {
 
     @Override
     public void close() {
-        try { in.close(); } catch (Exception ignored) {}
-        try { out.close(); } catch (Exception ignored) {}
-        try { socket.close(); } catch (Exception ignored) {}
+        try { channel.close(); } catch (Exception ignored) {}
     }
 }
@@ -5,8 +5,6 @@ import iskahoot.model.Quiz;
 
 import javax.swing.*;
 import java.awt.*;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.util.Map;
 import java.util.List;
 import java.util.ArrayList;
@@ -30,20 +28,21 @@ public class NetworkKahootWindow extends JFrame implements AutoCloseable {
     private final JLabel lblTeam = new JLabel("Equipa: --");
     private final JLabel lblTimer = new JLabel("Tempo: --s", SwingConstants.RIGHT);
 
-    private final ObjectOutputStream out;
-    private final ObjectInputStream in;
+    private final NetGuiClient conn;
+    private final MessageChannel channel;
     private final String gameCode;
     private final String teamId;
     private final String username;
     private final Quiz quiz;
+    private final ScoreboardView board = new ScoreboardView(); // só a thread de leitura lhe mexe
 
     private Thread readerThread;
     private javax.swing.Timer swingTimer;
 
     public NetworkKahootWindow(NetGuiClient conn, String gameCode, String teamId, String username) {
         super("IsKahoot - Cliente (Rede)");
-        this.out = conn.out();
-        this.in = conn.in();
+        this.conn = conn;
+        this.channel = conn.channel();
         this.gameCode = gameCode;
         this.teamId = teamId;
         this.username = username;
@@ -94,12 +93,23 @@ public class NetworkKahootWindow extends JFrame implements AutoCloseable {
         readerThread = new Thread(() -> {
             try {
                 while (true) {
-                    Object recv = in.readObject();
+                    Message recv = conn.receive();
                     if (recv instanceof QuestionMessage q) {
                         SwingUtilities.invokeLater(() -> showQuestion(q));
                         startTimer(q.seconds);
                     } else if (recv instanceof ScoreboardMessage s) {
-                        SwingUtilities.invokeLater(() -> showScoreboard(s));
+                        if (!board.apply(s)) {
+                            // delta sobre uma versão que não temos: pedir o placar completo
+                            synchronized (channel) {
+                                channel.send(new ScoreboardSyncMessage(gameCode, board.version()));
+                            }
+                            continue;
+                        }
+                        List<Object[]> rows = scoreboardRows();
+                        String info = s.info;
+                        int pos = board.rank(teamId);
+                        int totalTeams = board.totalTeams();
+                        SwingUtilities.invokeLater(() -> showScoreboard(info, rows, pos, totalTeams));
                         stopTimer();
                     } else if (recv instanceof GameOverMessage g) {
                         SwingUtilities.invokeLater(() -> showGameOver(g));
@@ -130,9 +140,10 @@ public class NetworkKahootWindow extends JFrame implements AutoCloseable {
         lblInfo.setText("Placar: --");
     }
 
-    private void showScoreboard(ScoreboardMessage s) {
-        lblInfo.setText("Placar atualizado | " + s.info);
-        updateScoreboardTable(s);
+    private void showScoreboard(String info, List<Object[]> rows, int pos, int totalTeams) {
+        String position = (pos > 0) ? " | Posição " + pos + (totalTeams > 0 ? "/" + totalTeams : "") : "";
+        lblInfo.setText("Placar atualizado | " + info + position);
+        updateScoreboardTable(rows);
     }
 
     private String formatScoreboard(Map<String, Integer> sb) {
@@ -142,24 +153,25 @@ public class NetworkKahootWindow extends JFrame implements AutoCloseable {
         return b.toString();
     }
 
-    private void updateScoreboardTable(ScoreboardMessage s) {
+    /** Linhas da tabela (equipa, total, última ronda) a partir da cópia local; corre na thread de leitura. */
+    private List<Object[]> scoreboardRows() {
+        List<Object[]> rows = new ArrayList<>();
+        // ranking recebido e, se estiver fora dele, a própria equipa
+        for (String team : board.order(teamId)) {
+            rows.add(new Object[]{team, board.total(team), board.roundPoints(team)});
+        }
+        return rows;
+    }
+
+    private void updateScoreboardTable(List<Object[]> rows) {
         // limpar
         scoreboardModel.setRowCount(0);
-        if (s == null || s.scoreboard == null) return;
-
-        Map<String,Integer> round = (s.roundPoints != null) ? s.roundPoints : Map.of();
-        List<String> order = new ArrayList<>();
-        if (s.ranking != null) order.addAll(s.ranking);
-        // garantir que todas as equipas do placar entram, mesmo que não tenham pontuado
-        s.scoreboard.keySet().forEach(team -> { if (!order.contains(team)) order.add(team); });
-
-        for (String team : order) {
-            int total = s.scoreboard.getOrDefault(team, 0);
-            int delta = round.getOrDefault(team, 0);
-            scoreboardModel.addRow(new Object[]{team, total, delta});
+        int myIndex = -1;
+        for (Object[] row : rows) {
+            if (row[0].equals(teamId)) myIndex = scoreboardModel.getRowCount();
+            scoreboardModel.addRow(row);
         }
         // opcional: destacar a linha da equipa atual
-        int myIndex = order.indexOf(teamId);
         if (myIndex >= 0) {
             tableScoreboard.setRowSelectionInterval(myIndex, myIndex);
         } else {
@@ -188,8 +200,9 @@ public class NetworkKahootWindow extends JFrame implements AutoCloseable {
         int qIndex = (qiObj instanceof Integer) ? (Integer) qiObj : 0;
         try {
             AnswerMessage ans = new AnswerMessage(gameCode, teamId, username, qIndex, sel);
-            out.writeObject(ans);
-            out.flush();
+            synchronized (channel) { // a thread de leitura também envia (ScoreboardSyncMessage)
+                channel.send(ans);
+            }
             btnAnswer.setEnabled(false);
         } catch (Exception e) {
             JOptionPane.showMessageDialog(this, "Falha ao enviar resposta: " + e.getMessage());
@@ -226,8 +239,7 @@ public class NetworkKahootWindow extends JFrame implements AutoCloseable {
 
     @Override
     public void close() {
-        try { in.close(); } catch (Exception ignored) {}
-        try { out.close(); } catch (Exception ignored) {}
+        try { channel.close(); } catch (Exception ignored) {}
         if (readerThread != null) readerThread.interrupt();
     }
 }
@@ -0,0 +1,119 @@
+package iskahoot.client;
+
+import iskahoot.model.Quiz;
+import iskahoot.net.BinaryCodec;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Cache em disco dos quizzes recebidos, indexada pelo hash do conteúdo (QuizOfferMessage).
+ * Cada quiz fica num ficheiro &lt;hash&gt;.quiz com a codificação do BinaryCodec; ao ler, o hash é
+ * verificado de novo, por isso um ficheiro corrompido conta como falha e é apagado.
+ * Diretório: propriedade iskahoot.quizCache ou ~/.iskahoot/quiz-cache.
+ * O tamanho total é limitado (propriedade iskahoot.quizCacheMB, 64 MB por omissão): cada leitura
+ * atualiza a data do ficheiro e, ao guardar, saem primeiro os quizzes usados há mais tempo.
+ */
+public class QuizCache {
+
+    static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    private final Path dir;
+    private final long maxBytes;
+
+    public QuizCache(Path dir) {
+        this(dir, DEFAULT_MAX_BYTES);
+    }
+
+    public QuizCache(Path dir, long maxBytes) {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+    }
+
+    public static QuizCache defaultCache() {
+        String custom = System.getProperty("iskahoot.quizCache");
+        Path dir = (custom != null) ? Paths.get(custom)
+                : Paths.get(System.getProperty("user.home"), ".iskahoot", "quiz-cache");
+        return new QuizCache(dir, Long.getLong("iskahoot.quizCacheMB", DEFAULT_MAX_BYTES >> 20) * 1024 * 1024);
+    }
+
+    /** Quiz com este hash, ou null se não estiver em cache (ou o ficheiro estiver corrompido). */
+    public Quiz get(String hash) {
+        if (!validHash(hash)) return null;
+        Path file = dir.resolve(hash + ".quiz");
+        try {
+            byte[] bytes = Files.readAllBytes(file);
+            if (hash.equals(BinaryCodec.sha256(bytes))) {
+                Quiz quiz = BinaryCodec.decodeQuiz(bytes);
+                Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+                return quiz;
+            }
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+            // sem ficheiro ou ilegível: falha de cache
+        }
+        return null;
+    }
+
+    /**
+     * Guarda o quiz se o conteúdo corresponder ao hash anunciado; devolve false se não correspondeu
+     * ou não foi possível escrever (a cache é só uma otimização, o jogo continua).
+     */
+    public boolean put(String hash, Quiz quiz) {
+        if (!validHash(hash) || quiz == null) return false;
+        byte[] bytes = BinaryCodec.encodeQuiz(quiz);
+        if (!hash.equals(BinaryCodec.sha256(bytes)) || bytes.length > maxBytes) return false;
+        try {
+            Files.createDirectories(dir);
+            Path tmp = Files.createTempFile(dir, hash, ".tmp");
+            Files.write(tmp, bytes);
+            Path file = dir.resolve(hash + ".quiz");
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            trim(file);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /** Apaga os quizzes usados há mais tempo até caber no limite (keep acabou de ser guardado). */
+    private void trim(Path keep) throws IOException {
+        record Cached(Path file, long size, FileTime used) {
+        }
+        List<Cached> all = new ArrayList<>();
+        long total = 0;
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path f : (Iterable<Path>) files::iterator) {
+                if (!f.getFileName().toString().endsWith(".quiz")) continue;
+                try {
+                    BasicFileAttributes a = Files.readAttributes(f, BasicFileAttributes.class);
+                    all.add(new Cached(f, a.size(), a.lastModifiedTime()));
+                    total += a.size();
+                } catch (IOException gone) {
+                    // apagado por outro cliente entretanto
+                }
+            }
+        }
+        all.sort(Comparator.comparing(Cached::used));
+        for (Cached c : all) {
+            if (total <= maxBytes) break;
+            if (c.file().equals(keep)) continue;
+            Files.deleteIfExists(c.file());
+            total -= c.size();
+        }
+    }
+
+    // o hash vem da rede e é usado como nome de ficheiro
+    private static boolean validHash(String hash) {
+        return hash != null && hash.matches("[0-9a-f]{64}");
+    }
+}
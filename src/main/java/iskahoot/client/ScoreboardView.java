@@ -0,0 +1,87 @@
+package iskahoot.client;
+
+import iskahoot.net.ScoreboardMessage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cópia local do placar, atualizada com placares completos ou deltas (ScoreboardMessage.baseVersion).
+ * Mostra-se o ranking recebido (as primeiras equipas) mais a equipa do jogador.
+ */
+public class ScoreboardView {
+
+    private final Map<String, Integer> totals = new HashMap<>();
+    private Map<String, Integer> round = Map.of();
+    private List<String> ranking = List.of();
+    private int rank;
+    private int totalTeams;
+    private int version;
+
+    /**
+     * Aplica o placar recebido. Devolve false se for um delta sobre uma versão que não temos
+     * (nesse caso nada muda e deve pedir-se o placar completo com ScoreboardSyncMessage).
+     */
+    public boolean apply(ScoreboardMessage s) {
+        if (s.baseVersion != 0 && s.baseVersion != version) return false;
+        if (s.baseVersion == 0) totals.clear();
+        if (s.scoreboard != null) totals.putAll(s.scoreboard);
+        round = (s.roundPoints != null) ? new HashMap<>(s.roundPoints) : Map.of();
+        if (s.ranking != null || s.baseVersion == 0) {
+            ranking = (s.ranking != null) ? List.copyOf(s.ranking) : List.of();
+        }
+        rank = s.rank;
+        totalTeams = s.totalTeams;
+        version = s.version;
+        return true;
+    }
+
+    public int version() {
+        return version;
+    }
+
+    public List<String> ranking() {
+        return ranking;
+    }
+
+    /** Posição da equipa (1..): a enviada pelo servidor ou, se não veio, a do ranking; 0 se desconhecida. */
+    public int rank(String team) {
+        return (rank > 0) ? rank : ranking.indexOf(team) + 1;
+    }
+
+    public int totalTeams() {
+        return totalTeams;
+    }
+
+    /** Equipas a mostrar: o ranking e, se não estiver lá, a própria equipa. */
+    public List<String> order(String team) {
+        List<String> order = new ArrayList<>(ranking);
+        if (team != null && totals.containsKey(team) && !order.contains(team)) order.add(team);
+        return order;
+    }
+
+    public int total(String team) {
+        return totals.getOrDefault(team, 0);
+    }
+
+    public int roundPoints(String team) {
+        return round.getOrDefault(team, 0);
+    }
+
+    /** Totais das equipas visíveis, pela ordem de order(team). */
+    public Map<String, Integer> totals(String team) {
+        Map<String, Integer> out = new LinkedHashMap<>();
+        for (String t : order(team)) out.put(t, total(t));
+        return out;
+    }
+
+    /** Pontos da ronda das equipas visíveis, pela ordem de order(team). */
+    public Map<String, Integer> roundMap(String team) {
+        Map<String, Integer> out = new LinkedHashMap<>();
+        for (String t : order(team)) out.put(t, roundPoints(t));
+        return out;
+    }
+}
@@ -0,0 +1,50 @@
+package iskahoot.cluster;
+
+import java.util.List;
+
+/**
+ * Lugar deste nó no cluster: que códigos de jogo lhe pertencem (HashRing) e onde se reservam os
+ * usernames. Sem cluster (standalone) o nó é dono de todos os códigos e os nomes são locais.
+ */
+public final class Cluster {
+
+    private final NodeAddress self;   // null em standalone
+    private final HashRing ring;      // null em standalone
+    private final UsernameRegistry usernames;
+
+    private Cluster(NodeAddress self, HashRing ring, UsernameRegistry usernames) {
+        this.self = self;
+        this.ring = ring;
+        this.usernames = usernames;
+    }
+
+    public static Cluster standalone() {
+        return new Cluster(null, null, UsernameRegistry.local());
+    }
+
+    /**
+     * @param selfId      id deste nó na lista
+     * @param nodes       todos os nós (a mesma lista no router e em cada nó)
+     * @param coordinator host:porto do Coordinator, ou null para reservar nomes só localmente
+     */
+    public static Cluster of(String selfId, List<NodeAddress> nodes, String coordinator) {
+        NodeAddress self = nodes.stream().filter(n -> n.id().equals(selfId)).findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Nó " + selfId + " não está na lista " + nodes));
+        UsernameRegistry names = (coordinator != null) ? CoordinatorClient.of(coordinator) : UsernameRegistry.local();
+        return new Cluster(self, new HashRing(nodes), names);
+    }
+
+    /** true se este nó é o dono do código (e por isso o pode usar num jogo novo). */
+    public boolean owns(String gameCode) {
+        return ring == null || ring.owner(gameCode).equals(self);
+    }
+
+    public UsernameRegistry usernames() {
+        return usernames;
+    }
+
+    @Override
+    public String toString() {
+        return (self == null) ? "standalone" : "nó " + self;
+    }
+}
@@ -0,0 +1,76 @@
+package iskahoot.cluster;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Serviço de coordenação mínimo (substituto local de um ZooKeeper/etcd): guarda os usernames em
+ * uso em todo o cluster. Cada nó mantém uma ligação; os nomes reservados por uma ligação são
+ * libertados quando ela fecha, por isso um nó que cai não deixa nomes presos.
+ * Protocolo: pedido [byte op][UTF nome], resposta [boolean].
+ * Uso: java iskahoot.cluster.Coordinator [porto]
+ */
+public class Coordinator {
+
+    static final byte RESERVE = 1;
+    static final byte RELEASE = 2;
+    static final int DEFAULT_PORT = 7100;
+
+    private final Map<String, Object> owners = new ConcurrentHashMap<>(); // nome -> ligação que o reservou
+
+    public static void main(String[] args) throws IOException {
+        int port = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        new Coordinator().serve(port);
+    }
+
+    public void serve(int port) throws IOException {
+        try (ServerSocket ss = new ServerSocket(port)) {
+            System.out.println("Coordenador a correr no porto " + port);
+            while (true) {
+                Socket s = ss.accept();
+                new Thread(() -> handle(s), "coordinator-" + s.getPort()).start();
+            }
+        }
+    }
+
+    private void handle(Socket s) {
+        Object session = new Object();
+        Set<String> held = new HashSet<>();
+        try (s) {
+            DataInputStream in = new DataInputStream(s.getInputStream());
+            DataOutputStream out = new DataOutputStream(s.getOutputStream());
+            System.out.println("Nó ligado: " + s.getRemoteSocketAddress());
+            while (true) {
+                byte op = in.readByte();
+                String name = in.readUTF();
+                boolean ok;
+                if (op == RESERVE) {
+                    ok = owners.putIfAbsent(name, session) == null;
+                    if (ok) held.add(name);
+                } else if (op == RELEASE) {
+                    ok = owners.remove(name, session);
+                    held.remove(name);
+                } else {
+                    throw new IOException("Operação desconhecida: " + op);
+                }
+                out.writeBoolean(ok);
+                out.flush();
+            }
+        } catch (EOFException e) {
+            // nó desligou
+        } catch (IOException e) {
+            System.out.println("Erro na ligação " + s.getRemoteSocketAddress() + ": " + e.getMessage());
+        } finally {
+            held.forEach(name -> owners.remove(name, session));
+            System.out.println("Nó desligado: " + s.getRemoteSocketAddress() + " (" + held.size() + " nomes libertados)");
+        }
+    }
+}
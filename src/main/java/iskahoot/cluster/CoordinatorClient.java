@@ -0,0 +1,100 @@
+package iskahoot.cluster;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * UsernameRegistry partilhado pelo cluster, através de uma ligação ao Coordinator.
+ * Pedidos síncronos e serializados (um de cada vez); se a ligação cair, volta a ligar no pedido
+ * seguinte. O coordenador libertou os nomes da ligação antiga, por isso antes desse pedido os nomes
+ * ainda em uso neste nó são reservados de novo; um nome que entretanto outro nó reservou fica em
+ * conflito (registado) e deixa de ser nosso.
+ */
+public class CoordinatorClient implements UsernameRegistry {
+
+    private final String host;
+    private final int port;
+    private Socket socket;
+    private DataInputStream in;
+    private DataOutputStream out;
+    private final Set<String> held = new HashSet<>(); // nomes reservados por este nó (com o lock do objeto)
+
+    public CoordinatorClient(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    /** host:porto */
+    public static CoordinatorClient of(String spec) {
+        int colon = spec.lastIndexOf(':');
+        if (colon <= 0) throw new IllegalArgumentException("Coordenador inválido: " + spec + " (usa host:porto)");
+        return new CoordinatorClient(spec.substring(0, colon), Integer.parseInt(spec.substring(colon + 1)));
+    }
+
+    @Override
+    public boolean remote() {
+        return true;
+    }
+
+    @Override
+    public synchronized boolean reserve(String username) {
+        boolean ok = call(Coordinator.RESERVE, username);
+        if (ok) held.add(username);
+        return ok;
+    }
+
+    @Override
+    public synchronized void release(String username) {
+        held.remove(username); // mesmo que o pedido falhe: ao reconectar já não é reservado
+        call(Coordinator.RELEASE, username);
+    }
+
+    private boolean call(byte op, String username) {
+        try {
+            if (socket == null) connect();
+            return send(op, username);
+        } catch (IOException e) {
+            closeQuietly();
+            throw new IllegalStateException("Coordenador indisponível (" + host + ":" + port + ")", e);
+        }
+    }
+
+    /** Nova ligação: volta a reservar os nomes em uso antes de aceitar outros pedidos. */
+    private void connect() throws IOException {
+        socket = new Socket(host, port);
+        socket.setTcpNoDelay(true);
+        in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        List<String> lost = new ArrayList<>();
+        for (String name : held) {
+            if (!send(Coordinator.RESERVE, name)) lost.add(name);
+        }
+        if (!lost.isEmpty()) {
+            held.removeAll(lost);
+            System.out.println("Coordenador: nomes reservados por outro nó enquanto a ligação esteve em baixo: " + lost);
+        }
+    }
+
+    private boolean send(byte op, String username) throws IOException {
+        out.writeByte(op);
+        out.writeUTF(username);
+        out.flush();
+        return in.readBoolean();
+    }
+
+    private void closeQuietly() {
+        try {
+            if (socket != null) socket.close();
+        } catch (IOException ignored) {
+        }
+        socket = null;
+    }
+}
@@ -0,0 +1,46 @@
+package iskahoot.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Hashing consistente dos códigos de jogo pelos nós: cada nó ocupa VIRTUAL_NODES posições no anel
+ * e um código pertence ao primeiro nó a seguir ao seu hash. Todos os nós e o router constroem o
+ * mesmo anel a partir da mesma lista, por isso chegam ao mesmo dono sem falarem entre si; juntar ou
+ * tirar um nó só muda o dono de ~1/n dos códigos.
+ */
+public final class HashRing {
+
+    static final int VIRTUAL_NODES = 64;
+
+    private final TreeMap<Long, NodeAddress> ring = new TreeMap<>();
+
+    public HashRing(List<NodeAddress> nodes) {
+        for (NodeAddress node : nodes) {
+            for (int v = 0; v < VIRTUAL_NODES; v++) {
+                ring.put(hash(node.id() + "#" + v), node);
+            }
+        }
+    }
+
+    /** Nó dono do código de jogo. */
+    public NodeAddress owner(String gameCode) {
+        Map.Entry<Long, NodeAddress> e = ring.ceilingEntry(hash(gameCode));
+        return (e != null) ? e.getValue() : ring.firstEntry().getValue();
+    }
+
+    private static long hash(String key) {
+        try {
+            byte[] d = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            long h = 0;
+            for (int i = 0; i < 8; i++) h = (h << 8) | (d[i] & 0xFF);
+            return h;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package iskahoot.cluster;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Nó do cluster: id e endereço onde aceita clientes. Formato no texto: id@host:porto. */
+public record NodeAddress(String id, String host, int port) {
+
+    public static NodeAddress parse(String spec) {
+        int at = spec.indexOf('@');
+        int colon = spec.lastIndexOf(':');
+        if (at <= 0 || colon < at) {
+            throw new IllegalArgumentException("Nó inválido: " + spec + " (usa id@host:porto)");
+        }
+        return new NodeAddress(spec.substring(0, at), spec.substring(at + 1, colon),
+                Integer.parseInt(spec.substring(colon + 1)));
+    }
+
+    /** Lista separada por vírgulas, ex.: a@localhost:7001,b@localhost:7002 */
+    public static List<NodeAddress> parseList(String specs) {
+        List<NodeAddress> nodes = new ArrayList<>();
+        for (String spec : specs.split(",")) {
+            if (!spec.isBlank()) nodes.add(parse(spec.trim()));
+        }
+        if (nodes.isEmpty()) throw new IllegalArgumentException("Lista de nós vazia");
+        return nodes;
+    }
+
+    @Override
+    public String toString() {
+        return id + "@" + host + ":" + port;
+    }
+}
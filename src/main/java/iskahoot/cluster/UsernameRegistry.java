@@ -0,0 +1,36 @@
+package iskahoot.cluster;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reserva global de usernames. Num só processo é um conjunto concorrente; num cluster é o
+ * Coordinator, partilhado por todos os nós (CoordinatorClient).
+ */
+public interface UsernameRegistry {
+
+    /** Reserva o nome; false se já estiver em uso. IllegalStateException se o registo estiver indisponível. */
+    boolean reserve(String username);
+
+    void release(String username);
+
+    /** true se reservar/libertar é uma ida e volta pela rede: não deve correr num event loop. */
+    default boolean remote() {
+        return false;
+    }
+
+    static UsernameRegistry local() {
+        Set<String> names = ConcurrentHashMap.newKeySet();
+        return new UsernameRegistry() {
+            @Override
+            public boolean reserve(String username) {
+                return names.add(username);
+            }
+
+            @Override
+            public void release(String username) {
+                names.remove(username);
+            }
+        };
+    }
+}
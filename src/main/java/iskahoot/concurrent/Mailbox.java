@@ -0,0 +1,80 @@
+package iskahoot.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Caixa de correio de um ator: muitos produtores publicam (fila MPSC sem locks) e uma única thread
+ * consome em lotes de até maxBatch mensagens. Quando a fila fica vazia a thread estaciona; o
+ * produtor só a acorda (unpark) se ela estiver mesmo estacionada.
+ */
+public final class Mailbox<T> {
+
+    /** Processa um lote; corre sempre na thread do ator. */
+    public interface Handler<T> {
+        void onBatch(List<T> batch);
+    }
+
+    private final Queue<T> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean parked = new AtomicBoolean(false);
+    private final int maxBatch;
+    private final Handler<T> handler;
+    private volatile boolean closed;
+    private final Thread thread;
+
+    public Mailbox(String name, TaskRunner runner, int maxBatch, Handler<T> handler) {
+        this.maxBatch = Math.max(1, maxBatch);
+        this.handler = handler;
+        this.thread = runner.start(name, this::run);
+    }
+
+    /** Publica uma mensagem; false se o ator já terminou. */
+    public boolean post(T message) {
+        if (closed) return false;
+        queue.offer(message);
+        if (parked.get() && parked.compareAndSet(true, false)) {
+            LockSupport.unpark(thread);
+        }
+        return true;
+    }
+
+    /** true se quem chama é a thread do ator. */
+    public boolean inActor() {
+        return Thread.currentThread() == thread;
+    }
+
+    /** Termina o ator depois do lote em curso; mensagens ainda na fila são descartadas. */
+    public void close() {
+        closed = true;
+        LockSupport.unpark(thread);
+    }
+
+    private void run() {
+        List<T> batch = new ArrayList<>(maxBatch);
+        while (!closed) {
+            T m;
+            while (batch.size() < maxBatch && (m = queue.poll()) != null) {
+                batch.add(m);
+            }
+            if (!batch.isEmpty()) {
+                try {
+                    handler.onBatch(batch);
+                } catch (RuntimeException e) {
+                    System.out.println("Erro no ator " + Thread.currentThread().getName() + ": " + e);
+                }
+                batch.clear();
+                continue;
+            }
+            // fila vazia: anunciar que vai estacionar e voltar a verificar antes de o fazer
+            parked.set(true);
+            if (queue.isEmpty() && !closed) {
+                LockSupport.park(this);
+            }
+            parked.set(false);
+        }
+    }
+}
@@ -1,57 +1,116 @@
 package iskahoot.concurrent;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
 /**
  * CountDownLatch simples com bónus para as primeiras submissões e timeout.
  * Devolve fator de pontuação em countdown() e liberta await() por contador ou tempo.
+ * Sem locks: contador, bónus restantes e timeout vivem numa única palavra atualizada por CAS,
+ * por isso as respostas que chegam todas ao mesmo tempo não ficam em fila num monitor.
+ * O prazo é registado na TimerWheel no primeiro await(), em vez de uma espera temporizada.
  */
 public class ModifiedCountdownLatch {
+
+    // estado: bits 0-30 contador, bits 32-62 bónus restantes, bit 63 timeout
+    private static final long COUNT_MASK = 0x7FFF_FFFFL;
+    private static final int BONUS_SHIFT = 32;
+    private static final long TIMED_OUT = 1L << 63;
+
     private final int bonusFactor;
-    private int bonusLeft;
     private final long waitPeriodMs;
-    private int count;
-    private boolean timedOut = false;
+    private final AtomicLong state;
+    private final CountDownLatch released = new CountDownLatch(1); // só para estacionar quem espera
+    private final TimerWheel timers;
+    private final AtomicReference<TimerWheel.Timeout> deadline = new AtomicReference<>(); // agendado no primeiro await()
 
     public ModifiedCountdownLatch(int bonusFactor, int bonusCount, int waitPeriodSeconds, int count) {
+        this(bonusFactor, bonusCount, waitPeriodSeconds, count, TimerWheel.shared());
+    }
+
+    public ModifiedCountdownLatch(int bonusFactor, int bonusCount, int waitPeriodSeconds, int count, TimerWheel timers) {
+        if (count < 0 || bonusCount < 0) throw new IllegalArgumentException("count/bonusCount negativos");
+        this.timers = timers;
         this.bonusFactor = bonusFactor;
-        this.bonusLeft = bonusCount;
         this.waitPeriodMs = waitPeriodSeconds * 1000L;
-        this.count = count;
+        this.state = new AtomicLong(pack(count, bonusCount, false));
+        if (count == 0) released.countDown();
     }
 
     /**
      * Desce o contador. Devolve o fator a aplicar à pontuação desta submissão.
      */
-    public synchronized int countdown() {
-        if (count == 0) return 1; // já libertou
-        int factor = (bonusLeft > 0) ? bonusFactor : 1;
-        if (bonusLeft > 0) bonusLeft--;
-        count = Math.max(0, count - 1);
-        if (count == 0) notifyAll();
-        return factor;
+    public int countdown() {
+        while (true) {
+            long s = state.get();
+            int count = count(s);
+            if (count == 0) return 1; // já libertou
+            int bonusLeft = bonusLeft(s);
+            long next = pack(count - 1, Math.max(0, bonusLeft - 1), timedOut(s));
+            if (state.compareAndSet(s, next)) {
+                if (count == 1) open();
+                return (bonusLeft > 0) ? bonusFactor : 1;
+            }
+        }
     }
 
     /**
      * Bloqueia até count chegar a 0 ou o tempo esgotar.
      */
-    public synchronized void await() throws InterruptedException {
-        long deadline = System.currentTimeMillis() + waitPeriodMs;
-        while (count > 0 && !timedOut) {
-            long remaining = deadline - System.currentTimeMillis();
-            if (remaining <= 0) {
-                timedOut = true;
-                break;
-            }
-            wait(remaining);
+    public void await() throws InterruptedException {
+        long s = state.get();
+        if (count(s) == 0 || timedOut(s)) return;
+        if (deadline.get() == null) {
+            TimerWheel.Timeout t = timers.schedule(waitPeriodMs, TimeUnit.MILLISECONDS, this::onDeadline);
+            if (!deadline.compareAndSet(null, t)) t.cancel(); // outro await() já agendou
+            else if (released.getCount() == 0) t.cancel(); // libertou entretanto
+        }
+        released.await();
+    }
+
+    public boolean timedOut() {
+        return timedOut(state.get());
+    }
+
+    public void expire() {
+        while (true) {
+            long s = state.get();
+            if (state.compareAndSet(s, pack(0, bonusLeft(s), true))) break;
+        }
+        open();
+    }
+
+    /** Corre na thread da TimerWheel quando o prazo acaba. */
+    private void onDeadline() {
+        while (true) {
+            long s = state.get();
+            if (count(s) == 0) return;
+            if (state.compareAndSet(s, s | TIMED_OUT)) break;
         }
+        released.countDown();
+    }
+
+    private void open() {
+        released.countDown();
+        TimerWheel.Timeout t = deadline.get();
+        if (t != null) t.cancel();
+    }
+
+    private static long pack(int count, int bonusLeft, boolean timedOut) {
+        return (count & COUNT_MASK) | ((bonusLeft & COUNT_MASK) << BONUS_SHIFT) | (timedOut ? TIMED_OUT : 0);
+    }
+
+    private static int count(long s) {
+        return (int) (s & COUNT_MASK);
     }
 
-    public synchronized boolean timedOut() {
-        return timedOut;
+    private static int bonusLeft(long s) {
+        return (int) ((s >>> BONUS_SHIFT) & COUNT_MASK);
     }
 
-    public synchronized void expire() {
-        timedOut = true;
-        count = 0;
-        notifyAll();
+    private static boolean timedOut(long s) {
+        return (s & TIMED_OUT) != 0;
     }
 }
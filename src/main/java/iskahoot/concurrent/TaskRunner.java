@@ -0,0 +1,77 @@
+package iskahoot.concurrent;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Define como o servidor cria threads (handlers de clientes, game loops, workers).
+ * "platform" usa threads normais; "virtual" usa threads virtuais do JDK 21+, obtidas por
+ * reflexão porque o projeto compila para Java 17.
+ */
+public final class TaskRunner {
+
+    private final String mode;
+    private final ThreadFactory factory;
+
+    private TaskRunner(String mode, ThreadFactory factory) {
+        this.mode = mode;
+        this.factory = factory;
+    }
+
+    public static TaskRunner platform() {
+        return new TaskRunner("platform", Thread::new);
+    }
+
+    /**
+     * Threads virtuais (Thread.ofVirtual().factory()); falha se a JVM não as suportar.
+     */
+    public static TaskRunner virtual() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            ThreadFactory f = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+            return new TaskRunner("virtual", f);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Threads virtuais requerem JDK 21+ (JVM atual: "
+                    + Runtime.version() + ")", e);
+        }
+    }
+
+    public static TaskRunner of(String mode) {
+        return switch (mode) {
+            case "platform" -> platform();
+            case "virtual" -> virtual();
+            default -> throw new IllegalArgumentException("Modo de threads desconhecido: " + mode
+                    + " (usa platform ou virtual)");
+        };
+    }
+
+    public String mode() {
+        return mode;
+    }
+
+    /**
+     * Cria e arranca uma thread com o nome dado.
+     */
+    public Thread start(String name, Runnable task) {
+        Thread t = factory.newThread(task);
+        t.setName(name);
+        t.start();
+        return t;
+    }
+
+    /**
+     * Pool de workers (threads reutilizadas, nomeadas prefixo-N) para tarefas curtas.
+     */
+    public ExecutorService newWorkerPool(String prefix) {
+        AtomicInteger seq = new AtomicInteger();
+        return Executors.newCachedThreadPool(r -> {
+            Thread t = factory.newThread(r);
+            t.setName(prefix + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+}
@@ -1,45 +1,78 @@
 package iskahoot.concurrent;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
 /**
- * Barreira simples com timeout (synchronized/wait/notifyAll).
- * Liberta quando todas as partes chegam ou o tempo expira, correndo a barrierAction.
+ * Barreira de equipa com timeout, orientada a conclusão: arrive() regista a chegada e volta logo;
+ * a barrierAction corre uma única vez, na thread da última chegada ou na da TimerWheel se o prazo
+ * acabar primeiro. O prazo conta a partir da primeira chegada.
+ * await() continua disponível para quem precise mesmo de bloquear até a barreira abrir.
  */
 public class TeamBarrier {
     private final int parties;
     private final long waitPeriodMs;
     private final Runnable barrierAction;
-    private int waiting = 0;
-    private boolean released = false;
+    private final AtomicInteger arrived = new AtomicInteger();
+    private final AtomicBoolean released = new AtomicBoolean(false);
+    private final CountDownLatch opened = new CountDownLatch(1); // só para await()
+    private final TimerWheel timers;
+    private final AtomicReference<TimerWheel.Timeout> deadline = new AtomicReference<>();
 
     public TeamBarrier(int parties, int waitPeriodSeconds, Runnable barrierAction) {
+        this(parties, waitPeriodSeconds, barrierAction, TimerWheel.shared());
+    }
+
+    public TeamBarrier(int parties, int waitPeriodSeconds, Runnable barrierAction, TimerWheel timers) {
+        this.timers = timers;
         this.parties = parties;
         this.waitPeriodMs = waitPeriodSeconds * 1000L;
         this.barrierAction = barrierAction;
     }
 
-    public synchronized void await() throws InterruptedException {
-        if (released) return;
-        waiting++;
-        if (waiting >= parties) {
-            release();
-            return;
+    /**
+     * Regista uma chegada sem bloquear. Devolve true se foi esta chegada que abriu a barreira.
+     */
+    public boolean arrive() {
+        if (released.get()) return false;
+        int n = arrived.incrementAndGet();
+        if (n >= parties) {
+            return release();
+        }
+        if (n == 1) {
+            TimerWheel.Timeout t = timers.schedule(waitPeriodMs, TimeUnit.MILLISECONDS, this::release);
+            deadline.set(t);
+            if (released.get()) t.cancel(); // abriu entretanto (ex.: release() externo)
         }
+        return false;
+    }
+
+    /** Chega e bloqueia até a barreira abrir (última chegada, prazo ou release()). */
+    public void await() throws InterruptedException {
+        arrive();
+        opened.await();
+    }
 
-        long deadline = System.currentTimeMillis() + waitPeriodMs;
-        while (!released) {
-            long remaining = deadline - System.currentTimeMillis();
-            if (remaining <= 0) {
-                release();
-                break;
-            }
-            wait(remaining);
+    /**
+     * Abre a barreira e corre a barrierAction, se ainda não tinha aberto.
+     * Devolve true se foi esta chamada que a abriu.
+     */
+    public boolean release() {
+        if (!released.compareAndSet(false, true)) return false;
+        TimerWheel.Timeout t = deadline.get();
+        if (t != null) t.cancel();
+        try {
+            if (barrierAction != null) barrierAction.run();
+        } finally {
+            opened.countDown();
         }
+        return true;
     }
 
-    public synchronized void release() {
-        if (released) return;
-        released = true;
-        if (barrierAction != null) barrierAction.run();
-        notifyAll();
+    public boolean isReleased() {
+        return released.get();
     }
 }
@@ -0,0 +1,143 @@
+package iskahoot.concurrent;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Roda de temporizadores (hashed timer wheel) partilhada por todo o servidor.
+ * Todos os prazos das rondas (latch, barreiras, fim de ronda) são registados aqui em vez de cada um
+ * ter a sua espera temporizada: agendar e cancelar são O(1) e há uma única thread a contar o tempo.
+ * A precisão é de um tick; as tarefas correm na thread da roda, por isso devem ser curtas: trabalho
+ * pesado (ex.: fechar uma ronda) passa para outra thread (ver inWheelThread).
+ */
+public final class TimerWheel {
+
+    /** Temporizador agendado. */
+    public interface Timeout {
+        /** Cancela; devolve false se já tinha expirado ou sido cancelado. */
+        boolean cancel();
+    }
+
+    private static final int WAITING = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+
+    private static final class Holder {
+        static final TimerWheel SHARED = new TimerWheel("round-timers", 100, 512);
+    }
+
+    private final long tickNanos;
+    private final List<ArrayDeque<Entry>> wheel; // só a thread da roda mexe nos baldes
+    private final int mask;
+    private final Thread thread;
+    private final Queue<Entry> incoming = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final long startTime = System.nanoTime();
+    private long tick;
+
+    /**
+     * @param tickMillis duração de um tick (precisão dos prazos)
+     * @param buckets    número de baldes (arredondado para potência de 2)
+     */
+    public TimerWheel(String name, long tickMillis, int buckets) {
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, tickMillis));
+        int size = Integer.highestOneBit(Math.max(1, buckets - 1)) << 1;
+        this.wheel = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) wheel.add(new ArrayDeque<>());
+        this.mask = size - 1;
+        this.thread = new Thread(this::run, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** Roda usada por omissão pelo servidor (tick de 100 ms). */
+    public static TimerWheel shared() {
+        return Holder.SHARED;
+    }
+
+    /**
+     * Agenda task para daqui a delay; pode ser chamado de qualquer thread.
+     */
+    public Timeout schedule(long delay, TimeUnit unit, Runnable task) {
+        Entry e = new Entry(System.nanoTime() - startTime + unit.toNanos(Math.max(0, delay)), task);
+        pending.incrementAndGet();
+        incoming.add(e);
+        return e;
+    }
+
+    /** true se quem chama é uma tarefa a correr na thread desta roda. */
+    public boolean inWheelThread() {
+        return Thread.currentThread() == thread;
+    }
+
+    /** Temporizadores agendados que ainda não expiraram nem foram cancelados. */
+    public int pending() {
+        return pending.get();
+    }
+
+    private void run() {
+        while (true) {
+            long tickEnd = (tick + 1) * tickNanos;
+            long sleep;
+            while ((sleep = tickEnd - (System.nanoTime() - startTime)) > 0) {
+                LockSupport.parkNanos(this, sleep);
+            }
+            transferIncoming();
+            expire(wheel.get((int) (tick & mask)));
+            tick++;
+        }
+    }
+
+    private void transferIncoming() {
+        Entry e;
+        while ((e = incoming.poll()) != null) {
+            if (e.state.get() != WAITING) continue;
+            long ticks = e.deadline / tickNanos;
+            e.rounds = Math.max(0, (ticks - tick) / wheel.size());
+            wheel.get((int) (Math.max(ticks, tick) & mask)).add(e);
+        }
+    }
+
+    private void expire(ArrayDeque<Entry> bucket) {
+        for (int n = bucket.size(); n > 0; n--) {
+            Entry e = bucket.poll();
+            if (e.state.get() != WAITING) continue; // cancelado: sai aqui
+            if (e.rounds > 0) {
+                e.rounds--;
+                bucket.add(e);
+            } else if (e.state.compareAndSet(WAITING, EXPIRED)) {
+                pending.decrementAndGet();
+                try {
+                    e.task.run();
+                } catch (RuntimeException ex) {
+                    System.out.println("Erro no temporizador: " + ex);
+                }
+            }
+        }
+    }
+
+    private final class Entry implements Timeout {
+        final long deadline; // nanos desde startTime
+        final Runnable task;
+        final AtomicInteger state = new AtomicInteger(WAITING);
+        long rounds; // voltas completas que faltam
+
+        Entry(long deadline, Runnable task) {
+            this.deadline = deadline;
+            this.task = task;
+        }
+
+        @Override
+        public boolean cancel() {
+            if (!state.compareAndSet(WAITING, CANCELLED)) return false;
+            pending.decrementAndGet();
+            return true;
+        }
+    }
+}
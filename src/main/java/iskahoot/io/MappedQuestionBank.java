@@ -0,0 +1,126 @@
+package iskahoot.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Banco de perguntas compilado (QuestionBankCompiler), lido por um MappedByteBuffer.
+ * Formato (big-endian):
+ * cabeçalho [int MAGIC][int versão][int nQuizzes][int nPerguntas][long início das strings];
+ * tabela de quizzes, 16 bytes cada: [int primeira pergunta][int nPerguntas][long posição do nome];
+ * tabela de perguntas, 8 bytes cada: [long posição do registo];
+ * zona de strings com os registos [int correct][int points][int nOpções][texto][opções...] e os nomes.
+ * Cada string é [int n][n bytes UTF-8] (n = -1 para null); as posições são relativas ao início da
+ * zona de strings. Uma pergunta é lida (e descodificada) só quando pedida, por isso o heap não cresce
+ * com o tamanho do banco. Limite: o ficheiro é mapeado de uma vez (até 2 GB).
+ */
+final class MappedQuestionBank {
+
+    static final int MAGIC = 0x494B5142; // "IKQB"
+    static final int VERSION = 1;
+    static final int HEADER = 24;
+    static final int QUIZ_ENTRY = 16;
+
+    private MappedQuestionBank() {
+    }
+
+    /** true se o ficheiro começa pelo MAGIC de um banco compilado. */
+    static boolean isBank(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] head = in.readNBytes(4);
+            return head.length == 4 && ByteBuffer.wrap(head).getInt() == MAGIC;
+        }
+    }
+
+    /** Mapeia o banco e devolve um Entry (não partilhado) por quiz, com as perguntas por ler. */
+    static List<QuizCatalog.Entry> open(Path file) throws IOException {
+        MappedByteBuffer map;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (ch.size() > Integer.MAX_VALUE) throw new IOException("Banco maior do que 2 GB: " + file);
+            map = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()); // continua válido depois de fechar
+        }
+        if (map.capacity() < HEADER || map.getInt(0) != MAGIC || map.getInt(4) != VERSION) {
+            throw new IOException("Formato de banco desconhecido: " + file);
+        }
+        int quizzes = map.getInt(8);
+        int total = map.getInt(12);
+        long strings = map.getLong(16);
+        int table = HEADER + quizzes * QUIZ_ENTRY;
+        if (quizzes < 0 || total < 0 || table + 8L * total != strings || strings > map.capacity()) {
+            throw new IOException("Banco corrompido (tabelas fora do ficheiro): " + file);
+        }
+        List<QuizCatalog.Entry> entries = new ArrayList<>(quizzes);
+        for (int q = 0; q < quizzes; q++) {
+            int e = HEADER + q * QUIZ_ENTRY;
+            int first = map.getInt(e);
+            int count = map.getInt(e + 4);
+            long name = map.getLong(e + 8);
+            if (first < 0 || count < 0 || (long) first + count > total) {
+                throw new IOException("Banco corrompido (quiz " + q + "): " + file);
+            }
+            entries.add(new QuizCatalog.Entry(q, (name < 0) ? null : string(map, (int) (strings + name)),
+                    new Questions(map, table + 8 * first, count, (int) strings), false));
+        }
+        return List.copyOf(entries);
+    }
+
+    private static String string(ByteBuffer map, int pos) {
+        int n = map.getInt(pos);
+        if (n < 0) return null;
+        byte[] b = new byte[n];
+        map.get(pos + 4, b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    private static int skip(ByteBuffer map, int pos) {
+        return pos + 4 + Math.max(0, map.getInt(pos));
+    }
+
+    /** Perguntas de um quiz: get(i) lê o registo i do mapeamento (leituras absolutas, sem estado). */
+    private static final class Questions extends AbstractList<QuizCatalog.CompactQuestion> implements RandomAccess {
+        private final ByteBuffer map;
+        private final int table;
+        private final int size;
+        private final int strings;
+
+        Questions(ByteBuffer map, int table, int size, int strings) {
+            this.map = map;
+            this.table = table;
+            this.size = size;
+            this.strings = strings;
+        }
+
+        @Override
+        public QuizCatalog.CompactQuestion get(int i) {
+            if (i < 0 || i >= size) throw new IndexOutOfBoundsException("Pergunta " + i + " de " + size);
+            int pos = (int) (strings + map.getLong(table + 8 * i));
+            int correct = map.getInt(pos);
+            int points = map.getInt(pos + 4);
+            String[] options = new String[map.getInt(pos + 8)];
+            pos += 12;
+            String text = string(map, pos);
+            pos = skip(map, pos);
+            for (int o = 0; o < options.length; o++) {
+                options[o] = string(map, pos);
+                pos = skip(map, pos);
+            }
+            return new QuizCatalog.CompactQuestion(text, List.of(options), correct, points);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,346 @@
+package iskahoot.io;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import iskahoot.model.Question;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Banco de perguntas lido de um ficheiro JSON (mesmo formato do questions.json) sem o carregar todo.
+ * Ao abrir, uma passagem pelos bytes (sem construir a árvore) encontra a posição e o tamanho de cada
+ * quiz e o seu nome; só esse índice fica em memória. Um quiz é lido e convertido (JsonReader) quando
+ * é pedido pela primeira vez e fica numa cache LRU limitada pelo tamanho em bytes do seu JSON.
+ * A cache guarda um futuro por quiz: o lock só protege o mapa, a leitura do ficheiro é feita fora
+ * dele por quem pediu primeiro, e quem pede o mesmo quiz entretanto espera por esse futuro.
+ * Quem já tem o Entry (uma sessão a decorrer) continua a usá-lo mesmo que saia da cache.
+ */
+final class QuestionBank {
+
+    /** Quiz no ficheiro: posição e tamanho do seu JSON; bare = lista simples de perguntas ("Default"). */
+    private record Slice(long offset, int length, String name, boolean bare) {
+    }
+
+    private final FileChannel file;
+    private final List<Slice> slices;
+    private final Map<String, Integer> byName = new HashMap<>();
+    private final long cacheLimit;
+    // cache, cachedBytes, hits e misses só com o lock
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<Integer, CompletableFuture<QuizCatalog.Entry>> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes;
+    private long hits, misses;
+
+    private QuestionBank(FileChannel file, List<Slice> slices, long cacheLimit) {
+        this.file = file;
+        this.slices = slices;
+        this.cacheLimit = cacheLimit;
+        for (int i = 0; i < slices.size(); i++) {
+            String name = slices.get(i).name();
+            if (name != null) byName.putIfAbsent(name, i);
+        }
+    }
+
+    /** Indexa o ficheiro; cacheBytes limita o JSON dos quizzes guardados já convertidos. */
+    static QuestionBank open(Path path, long cacheBytes) throws IOException {
+        Indexer idx = new Indexer();
+        try (InputStream in = Files.newInputStream(path)) {
+            byte[] buf = new byte[1 << 16];
+            long base = 0;
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                for (int i = 0; i < n; i++) idx.accept(buf[i], base + i);
+                base += n;
+            }
+        }
+        List<Slice> slices;
+        if (!idx.quizzes.isEmpty()) {
+            slices = List.copyOf(idx.quizzes);
+        } else if (idx.bare != null) {
+            slices = List.of(idx.bare);
+        } else {
+            throw new IllegalStateException("No quizzes/questions found in file");
+        }
+        return new QuestionBank(FileChannel.open(path, StandardOpenOption.READ), slices, cacheBytes);
+    }
+
+    int size() {
+        return slices.size();
+    }
+
+    /** Id do quiz com este nome (o primeiro, se houver repetidos); -1 se não existir. */
+    int idOf(String name) {
+        return byName.getOrDefault(name, -1);
+    }
+
+    /** Quiz já convertido: da cache, do pedido que já o está a ler, ou lido do ficheiro agora. */
+    QuizCatalog.Entry get(int id) {
+        CompletableFuture<QuizCatalog.Entry> f;
+        boolean loader = false;
+        lock.lock();
+        try {
+            f = cache.get(id);
+            if (f != null) {
+                hits++;
+            } else {
+                misses++;
+                f = new CompletableFuture<>();
+                cache.put(id, f);
+                loader = true;
+                // os bytes contam já (o tamanho do JSON é conhecido), por isso evicta-se aqui
+                cachedBytes += slices.get(id).length();
+                var it = cache.entrySet().iterator();
+                while (cachedBytes > cacheLimit && cache.size() > 1) {
+                    int eldest = it.next().getKey();
+                    it.remove();
+                    cachedBytes -= slices.get(eldest).length();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (loader) {
+            try {
+                f.complete(load(id));
+            } catch (IOException ex) {
+                fail(id, f, new UncheckedIOException("Erro a ler o quiz " + id + " do banco de perguntas", ex));
+            } catch (RuntimeException | Error ex) {
+                fail(id, f, ex);
+            }
+        }
+        try {
+            return f.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof Error err) throw err;
+            throw (RuntimeException) ex.getCause();
+        }
+    }
+
+    /** Leitura falhou: o quiz sai da cache (o próximo pedido tenta de novo) e quem espera recebe o erro. */
+    private void fail(int id, CompletableFuture<QuizCatalog.Entry> f, Throwable cause) {
+        lock.lock();
+        try {
+            if (cache.remove(id, f)) cachedBytes -= slices.get(id).length();
+        } finally {
+            lock.unlock();
+        }
+        f.completeExceptionally(cause);
+    }
+
+    String describe() {
+        lock.lock();
+        try {
+            return slices.size() + " quizzes, " + cache.size() + " em cache (" + cachedBytes / 1024 + "/"
+                    + cacheLimit / 1024 + " KB), " + hits + " hits, " + misses + " leituras";
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private QuizCatalog.Entry load(int id) throws IOException {
+        Slice s = slices.get(id);
+        ByteBuffer buf = ByteBuffer.allocate(s.length());
+        while (buf.hasRemaining()) {
+            if (file.read(buf, s.offset() + buf.position()) < 0) throw new EOFException("Banco de perguntas truncado");
+        }
+        JsonReader r = new JsonReader(new InputStreamReader(new ByteArrayInputStream(buf.array()), StandardCharsets.UTF_8));
+        QuizCatalog.Interner interner = new QuizCatalog.Interner();
+        if (s.bare()) {
+            return new QuizCatalog.Entry(id, "Default", interner.questions(readQuestions(r)));
+        }
+        String name = null;
+        List<Question> questions = List.of();
+        r.beginObject();
+        while (r.hasNext()) {
+            switch (r.nextName()) {
+                case "name" -> name = nextString(r);
+                case "questions" -> questions = readQuestions(r);
+                default -> r.skipValue();
+            }
+        }
+        r.endObject();
+        return new QuizCatalog.Entry(id, interner.string(name), interner.questions(questions));
+    }
+
+    private static List<Question> readQuestions(JsonReader r) throws IOException {
+        if (r.peek() == JsonToken.NULL) {
+            r.nextNull();
+            return List.of();
+        }
+        List<Question> out = new ArrayList<>();
+        r.beginArray();
+        while (r.hasNext()) {
+            Question q = readQuestion(r);
+            if (q != null) out.add(q);
+        }
+        r.endArray();
+        return out;
+    }
+
+    /** Uma pergunta (null se o valor for null); também usado pelo QuestionBankCompiler. */
+    static Question readQuestion(JsonReader r) throws IOException {
+        if (r.peek() == JsonToken.NULL) {
+            r.nextNull();
+            return null;
+        }
+        Question q = new Question();
+        r.beginObject();
+        while (r.hasNext()) {
+            switch (r.nextName()) {
+                case "question" -> q.question = nextString(r);
+                case "points" -> q.points = r.nextInt();
+                case "correct" -> q.correct = r.nextInt();
+                case "options" -> q.options = readOptions(r);
+                default -> r.skipValue();
+            }
+        }
+        r.endObject();
+        return q;
+    }
+
+    private static List<String> readOptions(JsonReader r) throws IOException {
+        if (r.peek() == JsonToken.NULL) {
+            r.nextNull();
+            return null;
+        }
+        List<String> out = new ArrayList<>();
+        r.beginArray();
+        while (r.hasNext()) out.add(nextString(r));
+        r.endArray();
+        return out;
+    }
+
+    static String nextString(JsonReader r) throws IOException {
+        if (r.peek() == JsonToken.NULL) {
+            r.nextNull();
+            return null;
+        }
+        return r.nextString();
+    }
+
+    /**
+     * Passagem única pelos bytes: segue só a estrutura (chavetas, parêntesis retos e strings) para
+     * encontrar os quizzes em "quizzes" (ou a lista "questions" na raiz). Só copia as strings que
+     * interessam (chaves da raiz e dos quizzes e o valor de "name"), descodificadas com o JsonReader.
+     * Os caracteres estruturais são ASCII, por isso os bytes de UTF-8 multibyte nunca os imitam.
+     */
+    private static final class Indexer {
+        final List<Slice> quizzes = new ArrayList<>();
+        Slice bare;
+
+        private byte[] stack = new byte[32];
+        private int depth;
+        private boolean inString, escape, keyNext;
+        private ByteArrayOutputStream capture; // string a ser copiada (com aspas), ou null
+        private String rootKey, quizKey, quizName;
+        private long quizStart = -1, bareStart = -1;
+
+        void accept(byte b, long pos) throws IOException {
+            if (inString) {
+                if (capture != null) capture.write(b);
+                if (escape) {
+                    escape = false;
+                } else if (b == '\\') {
+                    escape = true;
+                } else if (b == '"') {
+                    inString = false;
+                    if (capture != null) stringDone();
+                }
+                return;
+            }
+            switch (b) {
+                case '"' -> {
+                    inString = true;
+                    if (wanted()) {
+                        capture = new ByteArrayOutputStream(32);
+                        capture.write(b);
+                    }
+                }
+                case '{', '[' -> open(b, pos);
+                case '}', ']' -> close(b, pos);
+                case ':' -> keyNext = false;
+                case ',' -> keyNext = depth > 0 && stack[depth - 1] == '{';
+                default -> {
+                    // números, literais e espaços
+                }
+            }
+        }
+
+        private boolean inQuiz() {
+            return depth == 3 && quizStart >= 0;
+        }
+
+        private boolean wanted() {
+            if (keyNext) return depth == 1 || inQuiz();
+            return inQuiz() && "name".equals(quizKey);
+        }
+
+        private void stringDone() throws IOException {
+            String s = new JsonReader(new StringReader(capture.toString(StandardCharsets.UTF_8))).nextString();
+            capture = null;
+            if (!keyNext) {
+                quizName = s;
+            } else if (depth == 1) {
+                rootKey = s;
+            } else {
+                quizKey = s;
+            }
+        }
+
+        private void open(byte b, long pos) {
+            if (b == '{' && depth == 2 && stack[0] == '{' && stack[1] == '[' && "quizzes".equals(rootKey)) {
+                quizStart = pos;
+                quizKey = null;
+                quizName = null;
+            } else if (b == '[' && depth == 1 && stack[0] == '{' && "questions".equals(rootKey)) {
+                bareStart = pos;
+            }
+            if (depth == stack.length) stack = Arrays.copyOf(stack, depth * 2);
+            stack[depth++] = b;
+            keyNext = (b == '{');
+        }
+
+        private void close(byte b, long pos) throws IOException {
+            if (depth == 0 || stack[depth - 1] != (b == '}' ? '{' : '[')) {
+                throw new IOException("JSON inválido na posição " + pos);
+            }
+            depth--;
+            if (depth == 2 && quizStart >= 0) {
+                quizzes.add(new Slice(quizStart, length(quizStart, pos), quizName, false));
+                quizStart = -1;
+            } else if (depth == 1 && bareStart >= 0) {
+                bare = new Slice(bareStart, length(bareStart, pos), "Default", true);
+                bareStart = -1;
+            }
+            keyNext = false;
+        }
+
+        private static int length(long start, long end) throws IOException {
+            long len = end + 1 - start;
+            if (len > Integer.MAX_VALUE) throw new IOException("Quiz com mais de 2 GB na posição " + start);
+            return (int) len;
+        }
+    }
+}
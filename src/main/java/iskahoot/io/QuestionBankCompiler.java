@@ -0,0 +1,185 @@
+package iskahoot.io;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import iskahoot.model.Question;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compilador offline do banco de perguntas: converte um ficheiro JSON (formato do questions.json)
+ * no formato binário do MappedQuestionBank, que o servidor mapeia em memória (--questions=banco).
+ * Lê o JSON em streaming, uma pergunta de cada vez: as strings vão logo para um ficheiro temporário
+ * e em memória ficam só as posições (8 bytes por pergunta).
+ * Uso: java iskahoot.io.QuestionBankCompiler questions.json banco.ikq
+ */
+public final class QuestionBankCompiler {
+
+    /** Quiz compilado: primeira pergunta na tabela, quantas e posição do nome (-1 se não tiver). */
+    private record QuizRow(int first, int count, long name) {
+    }
+
+    private final DataOutputStream strings;
+    private long stringsSize;
+    private long[] offsets = new long[1024];
+    private int total;
+
+    private QuestionBankCompiler(OutputStream strings) {
+        this.strings = new DataOutputStream(new BufferedOutputStream(strings, 1 << 16));
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.out.println("Uso: java iskahoot.io.QuestionBankCompiler <questions.json> <banco.ikq>");
+            return;
+        }
+        long start = System.nanoTime();
+        int[] counts = compile(Path.of(args[0]), Path.of(args[1]));
+        System.out.println("Banco compilado: " + counts[0] + " quizzes, " + counts[1] + " perguntas, "
+                + Files.size(Path.of(args[1])) / 1024 + " KB em " + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    /** Compila json para out (escrito num temporário e movido no fim); devolve {quizzes, perguntas}. */
+    public static int[] compile(Path json, Path out) throws IOException {
+        Path tmpStrings = out.resolveSibling(out.getFileName() + ".strings.tmp");
+        Path tmp = out.resolveSibling(out.getFileName() + ".tmp");
+        try {
+            List<QuizRow> quizzes = new ArrayList<>();
+            QuizRow bare = null;
+            QuestionBankCompiler c;
+            try (OutputStream so = Files.newOutputStream(tmpStrings);
+                 Reader in = Files.newBufferedReader(json, StandardCharsets.UTF_8)) {
+                c = new QuestionBankCompiler(so);
+                JsonReader r = new JsonReader(in);
+                r.beginObject();
+                while (r.hasNext()) {
+                    switch (r.nextName()) {
+                        case "quizzes" -> c.readQuizzes(r, quizzes);
+                        case "questions" -> bare = c.readQuestions(r, "Default");
+                        default -> r.skipValue();
+                    }
+                }
+                r.endObject();
+                c.strings.flush();
+            }
+            // como QuizCatalog.of: a lista simples só conta se não houver quizzes
+            if (quizzes.isEmpty()) {
+                if (bare == null || bare.count() == 0) throw new IllegalStateException("No quizzes/questions found in file");
+                quizzes.add(bare);
+            }
+            c.writeBank(tmp, quizzes, tmpStrings);
+            Files.move(tmp, out, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return new int[]{quizzes.size(), c.total};
+        } finally {
+            Files.deleteIfExists(tmpStrings);
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private void readQuizzes(JsonReader r, List<QuizRow> quizzes) throws IOException {
+        if (r.peek() == JsonToken.NULL) {
+            r.nextNull();
+            return;
+        }
+        r.beginArray();
+        while (r.hasNext()) {
+            if (r.peek() == JsonToken.NULL) {
+                r.nextNull();
+                continue;
+            }
+            String name = null;
+            QuizRow questions = null;
+            r.beginObject();
+            while (r.hasNext()) {
+                switch (r.nextName()) {
+                    case "name" -> name = QuestionBank.nextString(r);
+                    case "questions" -> questions = readQuestions(r, null);
+                    default -> r.skipValue();
+                }
+            }
+            r.endObject();
+            int first = (questions != null) ? questions.first() : total;
+            int count = (questions != null) ? questions.count() : 0;
+            quizzes.add(new QuizRow(first, count, (name != null) ? writeString(name) : -1));
+        }
+        r.endArray();
+    }
+
+    /** Escreve as perguntas à medida que são lidas; as de um quiz ficam seguidas na tabela. */
+    private QuizRow readQuestions(JsonReader r, String name) throws IOException {
+        int first = total;
+        if (r.peek() == JsonToken.NULL) {
+            r.nextNull();
+        } else {
+            r.beginArray();
+            while (r.hasNext()) {
+                Question q = QuestionBank.readQuestion(r);
+                if (q != null) writeQuestion(q);
+            }
+            r.endArray();
+        }
+        return new QuizRow(first, total - first, (name != null) ? writeString(name) : -1);
+    }
+
+    private void writeQuestion(Question q) throws IOException {
+        if (total == Integer.MAX_VALUE) throw new IOException("Demasiadas perguntas");
+        if (total == offsets.length) offsets = Arrays.copyOf(offsets, total * 2);
+        offsets[total++] = stringsSize;
+        List<String> options = (q.options != null) ? q.options : List.of();
+        strings.writeInt(q.correct);
+        strings.writeInt(q.points);
+        strings.writeInt(options.size());
+        stringsSize += 12;
+        writeString(q.question);
+        for (String o : options) writeString(o == null ? "" : o);
+    }
+
+    /** [int n][n bytes UTF-8] (n = -1 para null); devolve a posição na zona de strings. */
+    private long writeString(String s) throws IOException {
+        long pos = stringsSize;
+        if (s == null) {
+            strings.writeInt(-1);
+            stringsSize += 4;
+            return pos;
+        }
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        strings.writeInt(b.length);
+        strings.write(b);
+        stringsSize += 4 + b.length;
+        return pos;
+    }
+
+    private void writeBank(Path file, List<QuizRow> quizzes, Path stringsFile) throws IOException {
+        long stringsStart = MappedQuestionBank.HEADER + (long) quizzes.size() * MappedQuestionBank.QUIZ_ENTRY + 8L * total;
+        if (stringsStart + stringsSize > Integer.MAX_VALUE) {
+            throw new IOException("Banco compilado teria mais de 2 GB (limite do mapeamento)");
+        }
+        try (OutputStream os = Files.newOutputStream(file)) {
+            DataOutputStream d = new DataOutputStream(new BufferedOutputStream(os, 1 << 16));
+            d.writeInt(MappedQuestionBank.MAGIC);
+            d.writeInt(MappedQuestionBank.VERSION);
+            d.writeInt(quizzes.size());
+            d.writeInt(total);
+            d.writeLong(stringsStart);
+            for (QuizRow q : quizzes) {
+                d.writeInt(q.first());
+                d.writeInt(q.count());
+                d.writeLong(q.name());
+            }
+            for (int i = 0; i < total; i++) d.writeLong(offsets[i]);
+            d.flush();
+            Files.copy(stringsFile, os);
+        }
+    }
+}
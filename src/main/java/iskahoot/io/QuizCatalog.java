@@ -0,0 +1,197 @@
+package iskahoot.io;
+
+import iskahoot.model.Question;
+import iskahoot.model.QuestionsFile;
+import iskahoot.model.Quiz;
+import iskahoot.net.BinaryCodec;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Catálogo imutável dos quizzes, construído uma vez no arranque a partir do QuestionsFile.
+ * Cada quiz tem um id (posição no ficheiro) e as perguntas ficam em registos compactos; textos e
+ * listas de opções repetidos são a mesma instância. As sessões procuram o quiz pelo id em vez de
+ * cada ligação escolher (e guardar) o seu.
+ * Para bancos grandes, open(ficheiro) não carrega nada à partida: os quizzes são indexados por nome
+ * e posição no ficheiro e convertidos só quando pedidos (QuestionBank, com cache limitada). Um banco
+ * compilado (QuestionBankCompiler) é mapeado em memória e as perguntas lidas uma a uma quando pedidas.
+ */
+public final class QuizCatalog {
+
+    /** Quiz usado quando o jogo não indica outro (o primeiro do ficheiro, como em pickQuiz). */
+    public static final int DEFAULT_ID = 0;
+
+    /** Pergunta imutável; options é uma lista partilhada e não modificável. */
+    public record CompactQuestion(String text, List<String> options, int correct, int points) {
+    }
+
+    /**
+     * Quiz do catálogo: perguntas compactas, o Quiz (também partilhado) enviado aos clientes e o hash
+     * do seu conteúdo, que os clientes com cache usam para evitar o download.
+     * Num banco mapeado (shared() == false) as perguntas são lidas do ficheiro quando pedidas e não há
+     * payload do quiz inteiro: cada jogo envia só as perguntas que sorteou (payloadOf).
+     */
+    public static final class Entry {
+        private final int id;
+        private final String name;
+        private final List<CompactQuestion> questions;
+        private final Quiz payload; // null se !shared
+        private final String hash;
+
+        Entry(int id, String name, List<CompactQuestion> questions) {
+            this(id, name, questions, true);
+        }
+
+        Entry(int id, String name, List<CompactQuestion> questions, boolean shared) {
+            this.id = id;
+            this.name = name;
+            this.questions = questions;
+            this.payload = shared ? new Quiz(name, view(questions)) : null;
+            this.hash = shared ? BinaryCodec.quizHash(payload) : null;
+        }
+
+        private static List<Question> view(List<CompactQuestion> questions) {
+            List<Question> view = new ArrayList<>(questions.size());
+            for (CompactQuestion cq : questions) {
+                Question q = new Question();
+                q.question = cq.text();
+                q.options = cq.options();
+                q.correct = cq.correct();
+                q.points = cq.points();
+                view.add(q);
+            }
+            return Collections.unmodifiableList(view);
+        }
+
+        public int id() {
+            return id;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public List<CompactQuestion> questions() {
+            return questions;
+        }
+
+        /** true se payload() e hash() são do quiz inteiro, partilhados por todos os jogos. */
+        public boolean shared() {
+            return payload != null;
+        }
+
+        /** Quiz para o QuizPayloadMessage; a mesma instância para todas as ligações (null se !shared). */
+        public Quiz payload() {
+            return payload;
+        }
+
+        /** SHA-256 (hex) do conteúdo do quiz (BinaryCodec.quizHash); null se !shared. */
+        public String hash() {
+            return hash;
+        }
+
+        /** Quiz só com as perguntas dadas (já lidas), pela ordem do jogo. */
+        public Quiz payloadOf(List<CompactQuestion> selected) {
+            return new Quiz(name, view(selected));
+        }
+    }
+
+    private final List<Entry> entries; // null se os quizzes vêm do QuestionBank
+    private final QuestionBank bank;
+    private final Map<String, Integer> byName = new HashMap<>();
+
+    private QuizCatalog(List<Entry> entries) {
+        this.entries = entries;
+        this.bank = null;
+        for (Entry e : entries) {
+            if (e.name() != null) byName.putIfAbsent(e.name(), e.id());
+        }
+    }
+
+    private QuizCatalog(QuestionBank bank) {
+        this.entries = null;
+        this.bank = bank;
+    }
+
+    /**
+     * Catálogo sobre um ficheiro JSON (possivelmente muito grande) lido por partes: só o índice fica em
+     * memória e os quizzes convertidos ficam numa cache até cacheBytes (tamanho do JSON de cada um).
+     */
+    public static QuizCatalog open(Path file, long cacheBytes) throws IOException {
+        if (MappedQuestionBank.isBank(file)) {
+            return new QuizCatalog(MappedQuestionBank.open(file)); // compilado: já não precisa de cache
+        }
+        return new QuizCatalog(QuestionBank.open(file, cacheBytes));
+    }
+
+    public static QuizCatalog of(QuestionsFile qf) {
+        if (qf == null) throw new IllegalArgumentException("QuestionsFile null");
+        Interner interner = new Interner();
+        List<Entry> entries = new ArrayList<>();
+        if (qf.quizzes != null && !qf.quizzes.isEmpty()) {
+            for (Quiz quiz : qf.quizzes) {
+                entries.add(new Entry(entries.size(), interner.string(quiz.name), interner.questions(quiz.safeQuestions())));
+            }
+        } else if (qf.questions != null && !qf.questions.isEmpty()) {
+            entries.add(new Entry(0, "Default", interner.questions(qf.questions)));
+        } else {
+            throw new IllegalStateException("No quizzes/questions found in file");
+        }
+        return new QuizCatalog(List.copyOf(entries));
+    }
+
+    /** Quiz com o id dado; IllegalArgumentException se não existir. */
+    public Entry get(int id) {
+        if (id < 0 || id >= size()) {
+            throw new IllegalArgumentException("Quiz inexistente: " + id + " (0.." + (size() - 1) + ")");
+        }
+        return (bank != null) ? bank.get(id) : entries.get(id);
+    }
+
+    /** Id do quiz com este nome; -1 se não existir. */
+    public int idOf(String name) {
+        return (bank != null) ? bank.idOf(name) : byName.getOrDefault(name, -1);
+    }
+
+    public int size() {
+        return (bank != null) ? bank.size() : entries.size();
+    }
+
+    @Override
+    public String toString() {
+        if (bank != null) return bank.describe();
+        return entries.size() + (entries.get(0).shared() ? " quizzes em memória" : " quizzes (banco mapeado)");
+    }
+
+    /** Partilha strings e listas de opções iguais durante a construção do catálogo. */
+    static final class Interner {
+        private final Map<String, String> strings = new HashMap<>();
+        private final Map<List<String>, List<String>> optionLists = new HashMap<>();
+
+        String string(String s) {
+            return (s == null) ? null : strings.computeIfAbsent(s, k -> k);
+        }
+
+        List<String> options(List<String> options) {
+            if (options == null) return List.of();
+            List<String> shared = new ArrayList<>(options.size());
+            for (String o : options) shared.add(string(o == null ? "" : o));
+            return optionLists.computeIfAbsent(shared, List::copyOf);
+        }
+
+        List<CompactQuestion> questions(List<Question> questions) {
+            List<CompactQuestion> out = new ArrayList<>(questions.size());
+            for (Question q : questions) {
+                if (q == null) continue;
+                out.add(new CompactQuestion(string(q.question), options(q.options), q.correct, q.points));
+            }
+            return List.copyOf(out);
+        }
+    }
+}
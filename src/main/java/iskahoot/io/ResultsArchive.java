@@ -0,0 +1,350 @@
+package iskahoot.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Arquivo em disco dos resultados dos jogos terminados, por colunas: uma linha por resposta
+ * (jogador × pergunta) com a opção, se acertou, os pontos e a latência.
+ * results.col: um bloco por jogo = cabeçalho (código, data, quiz, dicionários de jogadores e equipas)
+ * seguido das colunas, cada uma contígua (question, player, team, points, latency em int; option e
+ * correct em byte). Uma consulta só lê as colunas de que precisa, por um mapeamento em memória.
+ * results.idx: uma entrada de tamanho fixo por bloco (posição, data, quiz, linhas); ao abrir lêem-se
+ * os cabeçalhos para montar o índice equipa -> blocos. O índice só é escrito depois dos dados, por
+ * isso dados sem entrada (escrita interrompida) são descartados ao abrir.
+ * O ficheiro de dados é mapeado por janelas: a janela i começa em i * WINDOW e cobre até 2 GB, por
+ * isso qualquer bloco (no máximo WINDOW bytes) cabe inteiro na janela onde começa.
+ */
+public final class ResultsArchive implements Closeable {
+
+    private static final int MAGIC = 0x494B5242; // "IKRB": strings com comprimento int, -1 para null
+    private static final int MAGIC_UTF = 0x494B5241; // "IKRA": blocos antigos, strings em writeUTF
+    private static final int INDEX_ENTRY = 32;
+    private static final int ROW_BYTES = 5 * 4 + 2;
+    private static final long WINDOW = 1L << 30;
+    private static final int DENSE_QUESTIONS = 1 << 16; // ids acima disto (raros) vão para um mapa
+
+    // colunas int e colunas byte, pela ordem em que estão no bloco
+    private static final int COL_QUESTION = 0, COL_PLAYER = 1, COL_TEAM = 2, COL_POINTS = 3, COL_LATENCY = 4;
+    private static final int COL_OPTION = 0, COL_CORRECT = 1;
+
+    /** Resultados de um jogo, acumulados ronda a ronda, já por colunas. */
+    public static final class Batch {
+        private int rows;
+        private int[] question = new int[64];
+        private int[] player = new int[64];
+        private int[] team = new int[64];
+        private int[] points = new int[64];
+        private int[] latency = new int[64];
+        private byte[] option = new byte[64];
+        private byte[] correct = new byte[64];
+        private final Map<String, Integer> players = new LinkedHashMap<>();
+        private final Map<String, Integer> teams = new LinkedHashMap<>();
+
+        public void add(int questionId, String username, String teamId, int chosen, boolean right, int pts, int latencyMs) {
+            if (rows == question.length) grow();
+            question[rows] = questionId;
+            player[rows] = players.computeIfAbsent(username, k -> players.size());
+            team[rows] = teams.computeIfAbsent(teamId, k -> teams.size());
+            option[rows] = (byte) chosen;
+            correct[rows] = (byte) (right ? 1 : 0);
+            points[rows] = pts;
+            latency[rows] = latencyMs;
+            rows++;
+        }
+
+        public int rows() {
+            return rows;
+        }
+
+        private void grow() {
+            int n = rows * 2;
+            question = Arrays.copyOf(question, n);
+            player = Arrays.copyOf(player, n);
+            team = Arrays.copyOf(team, n);
+            points = Arrays.copyOf(points, n);
+            latency = Arrays.copyOf(latency, n);
+            option = Arrays.copyOf(option, n);
+            correct = Arrays.copyOf(correct, n);
+        }
+    }
+
+    /** Taxa de acerto de uma pergunta (id no quiz) nos jogos consultados. */
+    public record QuestionStat(int quizId, int question, int answers, int correct, long latencyMsSum) {
+    }
+
+    /** Resultado de questionStats; skipped conta as linhas com pergunta inválida, que não entram. */
+    public record QuestionStats(List<QuestionStat> stats, long skipped) {
+    }
+
+    /** Resultado de uma equipa num jogo. */
+    public record TeamGame(String code, long time, int answers, int correct, int points) {
+    }
+
+    /** Bloco de um jogo: entrada do índice mais o que se lê do cabeçalho. */
+    private record Block(long offset, long time, int quizId, int rows, int headerLen, String code, List<String> teams) {
+        long column(int n) {
+            return offset + headerLen + (long) n * 4 * rows;
+        }
+
+        long byteColumn(int n) {
+            return column(COL_LATENCY + 1) + (long) n * rows;
+        }
+
+        int window() {
+            return (int) (offset / WINDOW);
+        }
+    }
+
+    private final FileChannel data;
+    private final FileChannel index;
+    private final List<Block> blocks = new ArrayList<>();
+    private final Map<String, List<Integer>> blocksByTeam = new HashMap<>();
+    private final List<MappedByteBuffer> windows = new ArrayList<>(); // refeitas quando o ficheiro cresce
+    private long rows;
+
+    private ResultsArchive(FileChannel data, FileChannel index) {
+        this.data = data;
+        this.index = index;
+    }
+
+    /** Abre (ou cria) o arquivo na pasta dada e carrega o índice. */
+    public static ResultsArchive open(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        FileChannel data = FileChannel.open(dir.resolve("results.col"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileChannel index = FileChannel.open(dir.resolve("results.idx"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ResultsArchive archive = new ResultsArchive(data, index);
+        archive.load();
+        return archive;
+    }
+
+    private void load() throws IOException {
+        long entries = index.size() / INDEX_ENTRY;
+        ByteBuffer e = ByteBuffer.allocate(INDEX_ENTRY);
+        long end = 0;
+        for (long i = 0; i < entries; i++) {
+            e.clear();
+            index.read(e, i * INDEX_ENTRY);
+            e.flip();
+            long offset = e.getLong();
+            long time = e.getLong();
+            int quizId = e.getInt();
+            int n = e.getInt();
+            int headerLen = e.getInt();
+            long blockEnd = offset + headerLen + (long) n * ROW_BYTES;
+            if (offset < end || n < 0 || headerLen <= 0 || blockEnd - offset > WINDOW || blockEnd > data.size()) {
+                entries = i; // entrada sem dados completos (ou corrompida)
+                break;
+            }
+            ByteBuffer header = ByteBuffer.allocate(headerLen);
+            data.read(header, offset);
+            register(readHeader(header.array(), offset, time, quizId, n, headerLen));
+            end = blockEnd;
+        }
+        index.truncate(entries * INDEX_ENTRY);
+        data.truncate(end); // cauda de uma escrita interrompida
+    }
+
+    private static Block readHeader(byte[] header, long offset, long time, int quizId, int n, int headerLen)
+            throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(header));
+        int magic = in.readInt();
+        if (magic != MAGIC && magic != MAGIC_UTF) throw new IOException("Bloco inválido na posição " + offset);
+        boolean utf = magic == MAGIC_UTF;
+        String code = readString(in, utf);
+        for (int i = in.readInt(); i > 0; i--) readString(in, utf); // jogadores (as consultas atuais não precisam deles)
+        List<String> teams = new ArrayList<>();
+        for (int i = in.readInt(); i > 0; i--) teams.add(readString(in, utf));
+        return new Block(offset, time, quizId, n, headerLen, code, Collections.unmodifiableList(teams));
+    }
+
+    /**
+     * Sem o limite de 65535 bytes do writeUTF (nomes longos perdiam o jogo inteiro) e com null: um
+     * jogador que entrou sem equipa também fica arquivado.
+     */
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in, boolean utf) throws IOException {
+        if (utf) return in.readUTF();
+        int len = in.readInt();
+        if (len < 0) return null;
+        if (len > in.available()) throw new IOException("String com " + len + " bytes fora do cabeçalho");
+        return new String(in.readNBytes(len), StandardCharsets.UTF_8);
+    }
+
+    private void register(Block b) {
+        int id = blocks.size();
+        blocks.add(b);
+        for (String t : b.teams()) blocksByTeam.computeIfAbsent(t, k -> new ArrayList<>()).add(id);
+        rows += b.rows();
+    }
+
+    /** Acrescenta os resultados de um jogo: dados (com force) e só depois a entrada do índice. */
+    public synchronized void append(String code, int quizId, long time, Batch b) throws IOException {
+        if (b.rows == 0) return;
+        ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+        DataOutputStream h = new DataOutputStream(headerBytes);
+        h.writeInt(MAGIC);
+        writeString(h, code);
+        h.writeInt(b.players.size());
+        for (String p : b.players.keySet()) writeString(h, p);
+        h.writeInt(b.teams.size());
+        for (String t : b.teams.keySet()) writeString(h, t);
+        h.flush();
+
+        int n = b.rows;
+        if (headerBytes.size() + (long) n * ROW_BYTES > WINDOW) {
+            throw new IOException("Resultados do jogo " + code + " demasiado grandes (" + n + " respostas)");
+        }
+        ByteBuffer cols = ByteBuffer.allocate(n * ROW_BYTES);
+        cols.position(COL_QUESTION * 4 * n).asIntBuffer().put(b.question, 0, n);
+        cols.position(COL_PLAYER * 4 * n).asIntBuffer().put(b.player, 0, n);
+        cols.position(COL_TEAM * 4 * n).asIntBuffer().put(b.team, 0, n);
+        cols.position(COL_POINTS * 4 * n).asIntBuffer().put(b.points, 0, n);
+        cols.position(COL_LATENCY * 4 * n).asIntBuffer().put(b.latency, 0, n);
+        cols.position((COL_LATENCY + 1) * 4 * n);
+        cols.put(b.option, 0, n).put(b.correct, 0, n);
+        cols.flip();
+
+        long offset = data.size();
+        ByteBuffer header = ByteBuffer.wrap(headerBytes.toByteArray());
+        long pos = offset;
+        while (header.hasRemaining()) pos += data.write(header, pos);
+        while (cols.hasRemaining()) pos += data.write(cols, pos);
+        data.force(false);
+
+        ByteBuffer e = ByteBuffer.allocate(INDEX_ENTRY);
+        e.putLong(offset).putLong(time).putInt(quizId).putInt(n).putInt(headerBytes.size()).putInt(0).flip(); // 4 bytes reservados
+        index.write(e, index.size());
+        index.force(false);
+
+        register(new Block(offset, time, quizId, n, headerBytes.size(), code,
+                Collections.unmodifiableList(new ArrayList<>(b.teams.keySet())))); // pode ter null
+    }
+
+    public synchronized int games() {
+        return blocks.size();
+    }
+
+    public synchronized long rows() {
+        return rows;
+    }
+
+    /** Taxa de acerto (e latência) por pergunta nos últimos lastGames jogos, ordenada por quiz e pergunta. */
+    public synchronized QuestionStats questionStats(int lastGames) throws IOException {
+        Map<Integer, long[][]> byQuiz = new TreeMap<>(); // quiz -> {respostas, certas, latência} por pergunta
+        Map<Integer, TreeMap<Integer, long[]>> sparse = new HashMap<>(); // quiz -> ids grandes
+        long skipped = 0;
+        for (int i = Math.max(0, blocks.size() - lastGames); i < blocks.size(); i++) {
+            Block b = blocks.get(i);
+            MappedByteBuffer v = window(b);
+            long start = b.window() * WINDOW;
+            long[][] acc = byQuiz.computeIfAbsent(b.quizId(), k -> new long[3][0]);
+            int qBase = (int) (b.column(COL_QUESTION) - start);
+            int lBase = (int) (b.column(COL_LATENCY) - start);
+            int cBase = (int) (b.byteColumn(COL_CORRECT) - start);
+            for (int r = 0; r < b.rows(); r++) {
+                int q = v.getInt(qBase + 4 * r);
+                int right = (v.get(cBase + r) != 0) ? 1 : 0;
+                int latency = v.getInt(lBase + 4 * r);
+                if (q < 0) {
+                    skipped++; // dados corrompidos: a linha não conta
+                } else if (q < DENSE_QUESTIONS) {
+                    if (q >= acc[0].length) {
+                        for (int k = 0; k < 3; k++) acc[k] = Arrays.copyOf(acc[k], Math.max(q + 1, acc[k].length * 2));
+                    }
+                    acc[0][q]++;
+                    acc[1][q] += right;
+                    acc[2][q] += latency;
+                } else {
+                    long[] a = sparse.computeIfAbsent(b.quizId(), k -> new TreeMap<>()).computeIfAbsent(q, k -> new long[3]);
+                    a[0]++;
+                    a[1] += right;
+                    a[2] += latency;
+                }
+            }
+        }
+        List<QuestionStat> out = new ArrayList<>();
+        byQuiz.forEach((quiz, acc) -> {
+            for (int q = 0; q < acc[0].length; q++) {
+                if (acc[0][q] > 0) out.add(new QuestionStat(quiz, q, (int) acc[0][q], (int) acc[1][q], acc[2][q]));
+            }
+            sparse.getOrDefault(quiz, new TreeMap<>()).forEach((q, a) ->
+                    out.add(new QuestionStat(quiz, q, (int) a[0], (int) a[1], a[2])));
+        });
+        return new QuestionStats(out, skipped);
+    }
+
+    /** Jogos da equipa (os últimos lastGames em que entrou), do mais antigo para o mais recente. */
+    public synchronized List<TeamGame> teamHistory(String team, int lastGames) throws IOException {
+        List<Integer> ids = blocksByTeam.getOrDefault(team, List.of());
+        List<TeamGame> out = new ArrayList<>();
+        for (int id : ids.subList(Math.max(0, ids.size() - lastGames), ids.size())) {
+            Block b = blocks.get(id);
+            MappedByteBuffer v = window(b);
+            long start = b.window() * WINDOW;
+            int t = b.teams().indexOf(team);
+            int tBase = (int) (b.column(COL_TEAM) - start);
+            int pBase = (int) (b.column(COL_POINTS) - start);
+            int cBase = (int) (b.byteColumn(COL_CORRECT) - start);
+            int answers = 0, correct = 0, points = 0;
+            for (int r = 0; r < b.rows(); r++) {
+                if (v.getInt(tBase + 4 * r) != t) continue;
+                answers++;
+                correct += (v.get(cBase + r) != 0) ? 1 : 0;
+                points += v.getInt(pBase + 4 * r);
+            }
+            out.add(new TeamGame(b.code(), b.time(), answers, correct, points));
+        }
+        return out;
+    }
+
+    /** Janela onde o bloco começa (e que o contém inteiro); remapeada se o ficheiro cresceu. */
+    private MappedByteBuffer window(Block b) throws IOException {
+        int w = b.window();
+        while (windows.size() <= w) windows.add(null);
+        long start = w * WINDOW;
+        long length = Math.min(data.size() - start, Integer.MAX_VALUE);
+        MappedByteBuffer m = windows.get(w);
+        if (m == null || m.capacity() < length) {
+            m = data.map(FileChannel.MapMode.READ_ONLY, start, length);
+            windows.set(w, m);
+        }
+        return m;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        data.close();
+        index.close();
+    }
+}
@@ -2,6 +2,8 @@ package iskahoot.net;
 
 /** Mensagem enviada pelo cliente com a opção escolhida. */
 public class AnswerMessage implements Message {
+    private static final long serialVersionUID = -4594924994776602553L;
+
     public String gameCode;
     public String teamId;
     public String username;
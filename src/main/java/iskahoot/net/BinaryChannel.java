@@ -0,0 +1,54 @@
+package iskahoot.net;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.net.Socket;
+
+/** Protocolo binário: tramas [int comprimento][corpo] codificadas pelo BinaryCodec. */
+public class BinaryChannel implements MessageChannel {
+    private final Socket socket;
+    private final DataInputStream in;
+    private final OutputStream out;
+
+    BinaryChannel(Socket socket, InputStream in, OutputStream out) {
+        this.socket = socket;
+        this.in = new DataInputStream(in);
+        this.out = out;
+    }
+
+    @Override
+    public void send(Message m) throws IOException {
+        out.write(BinaryCodec.frame(m));
+        out.flush();
+    }
+
+    @Override
+    public void send(EncodedMessage m) throws IOException {
+        m.writeTo(out, true);
+        out.flush();
+    }
+
+    @Override
+    public Message receive() throws IOException {
+        int len = in.readInt();
+        if (len < 0 || len > BinaryCodec.MAX_FRAME) {
+            throw new StreamCorruptedException("Comprimento de trama inválido: " + len);
+        }
+        byte[] body = new byte[len];
+        in.readFully(body);
+        return BinaryCodec.decode(body, 0, len);
+    }
+
+    @Override
+    public boolean binary() {
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
@@ -0,0 +1,439 @@
+package iskahoot.net;
+
+import iskahoot.model.Question;
+import iskahoot.model.Quiz;
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Protocolo binário compacto: cada mensagem é uma trama [int comprimento][tipo][campos].
+ * Inteiros em varint (zigzag), strings em UTF-8 com comprimento; null codificado como 0.
+ * O cliente anuncia o protocolo enviando MAGIC no início da ligação e o servidor confirma com o mesmo.
+ */
+public final class BinaryCodec {
+
+    /** Preâmbulo do protocolo binário (o stream Java começa por 0xACED, por isso não há ambiguidade). */
+    public static final byte[] MAGIC = {'I', 'K', 'B', 1};
+
+    /** Limite de segurança para o comprimento de uma trama. */
+    public static final int MAX_FRAME = 16 * 1024 * 1024;
+
+    private static final byte JOIN = 1;
+    private static final byte JOIN_RESPONSE = 2;
+    private static final byte QUIZ_PAYLOAD = 3;
+    private static final byte QUESTION = 4;
+    private static final byte ANSWER = 5;
+    private static final byte SCOREBOARD = 6;
+    private static final byte GAME_OVER = 7;
+    private static final byte ERROR = 8;
+    private static final byte QUIZ_OFFER = 9;
+    private static final byte QUIZ_REQUEST = 10;
+    private static final byte SCOREBOARD_SYNC = 11;
+    private static final byte RESUME = 12;
+    private static final byte RESUME_RESPONSE = 13;
+
+    private BinaryCodec() {
+    }
+
+    /** Trama completa (comprimento + corpo), pronta a escrever no socket. */
+    public static byte[] frame(Message m) {
+        Writer w = new Writer();
+        w.fixedInt(0); // reservado para o comprimento
+        writeBody(w, m);
+        byte[] out = w.toArray();
+        int len = out.length - 4;
+        out[0] = (byte) (len >>> 24);
+        out[1] = (byte) (len >>> 16);
+        out[2] = (byte) (len >>> 8);
+        out[3] = (byte) len;
+        return out;
+    }
+
+    /**
+     * Descodifica o corpo de uma trama (sem os 4 bytes do comprimento). Qualquer trama mal formada dá
+     * StreamCorruptedException (e não uma RuntimeException que mataria a thread da ligação).
+     */
+    public static Message decode(byte[] buf, int off, int len) throws IOException {
+        Reader r = new Reader(buf, off, len);
+        try {
+            return readBody(r);
+        } catch (IndexOutOfBoundsException e) {
+            throw corrupted("Trama truncada", e);
+        } catch (RuntimeException e) {
+            throw corrupted("Trama inválida: " + e.getMessage(), e);
+        }
+    }
+
+    private static StreamCorruptedException corrupted(String msg, RuntimeException cause) {
+        StreamCorruptedException e = new StreamCorruptedException(msg);
+        e.initCause(cause);
+        return e;
+    }
+
+    /** Codificação canónica de um quiz (mesmo conteúdo, mesmos bytes); usada no hash e na cache do cliente. */
+    public static byte[] encodeQuiz(Quiz quiz) {
+        Writer w = new Writer();
+        writeQuiz(w, quiz);
+        return w.toArray();
+    }
+
+    public static Quiz decodeQuiz(byte[] buf) throws IOException {
+        try {
+            return readQuiz(new Reader(buf, 0, buf.length));
+        } catch (IndexOutOfBoundsException e) {
+            throw corrupted("Quiz truncado", e);
+        } catch (RuntimeException e) {
+            throw corrupted("Quiz inválido: " + e.getMessage(), e);
+        }
+    }
+
+    /** Hash do conteúdo do quiz: SHA-256 (hex) de encodeQuiz. */
+    public static String quizHash(Quiz quiz) {
+        return sha256(encodeQuiz(quiz));
+    }
+
+    public static String sha256(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void writeBody(Writer w, Message m) {
+        if (m instanceof JoinMessage j) {
+            w.tag(JOIN);
+            w.string(j.gameCode);
+            w.string(j.teamId);
+            w.string(j.username);
+            w.bool(j.quizCache);
+            w.bool(j.scoreDeltas);
+        } else if (m instanceof JoinResponse r) {
+            w.tag(JOIN_RESPONSE);
+            w.bool(r.ok);
+            w.string(r.info);
+            w.string(r.resumeToken);
+        } else if (m instanceof QuizPayloadMessage qp) {
+            w.tag(QUIZ_PAYLOAD);
+            w.string(qp.gameCode);
+            writeQuiz(w, qp.quiz);
+        } else if (m instanceof QuestionMessage q) {
+            w.tag(QUESTION);
+            w.string(q.gameCode);
+            w.varint(q.questionIndex);
+            w.varint(q.totalQuestions);
+            w.string(q.questionText);
+            w.strings(q.options);
+            w.varint(q.points);
+            w.varint(q.seconds);
+        } else if (m instanceof AnswerMessage a) {
+            w.tag(ANSWER);
+            w.string(a.gameCode);
+            w.string(a.teamId);
+            w.string(a.username);
+            w.varint(a.questionIndex);
+            w.varint(a.option);
+        } else if (m instanceof ScoreboardMessage s) {
+            w.tag(SCOREBOARD);
+            w.string(s.gameCode);
+            w.varint(s.questionIndex);
+            w.string(s.info);
+            w.scores(s.scoreboard);
+            w.scores(s.roundPoints);
+            w.strings(s.ranking);
+            w.varint(s.rank);
+            w.varint(s.totalTeams);
+            w.varint(s.version);
+            w.varint(s.baseVersion);
+        } else if (m instanceof GameOverMessage g) {
+            w.tag(GAME_OVER);
+            w.string(g.gameCode);
+            w.string(g.info);
+        } else if (m instanceof ErrorMessage e) {
+            w.tag(ERROR);
+            w.string(e.info);
+        } else if (m instanceof QuizOfferMessage o) {
+            w.tag(QUIZ_OFFER);
+            w.string(o.gameCode);
+            w.string(o.hash);
+        } else if (m instanceof QuizRequestMessage q) {
+            w.tag(QUIZ_REQUEST);
+            w.string(q.gameCode);
+            w.string(q.hash);
+        } else if (m instanceof ScoreboardSyncMessage y) {
+            w.tag(SCOREBOARD_SYNC);
+            w.string(y.gameCode);
+            w.varint(y.version);
+        } else if (m instanceof ResumeMessage rm) {
+            w.tag(RESUME);
+            w.string(rm.gameCode);
+            w.string(rm.token);
+        } else if (m instanceof ResumeResponse rr) {
+            w.tag(RESUME_RESPONSE);
+            w.bool(rr.ok);
+            w.string(rr.info);
+            w.string(rr.teamId);
+            w.string(rr.username);
+            w.varint(rr.answeredQuestion);
+        } else {
+            throw new IllegalArgumentException("Sem codec binário para " + m.getClass().getName());
+        }
+    }
+
+    private static Message readBody(Reader r) throws IOException {
+        byte tag = r.tag();
+        switch (tag) {
+            case JOIN:
+                // quizCache e scoreDeltas são opcionais: clientes anteriores não os enviam
+                return new JoinMessage(r.string(), r.string(), r.string(), r.remaining() > 0 && r.bool(),
+                        r.remaining() > 0 && r.bool());
+            case JOIN_RESPONSE:
+                JoinResponse jr = new JoinResponse(r.bool(), r.string());
+                if (r.remaining() > 0) jr.resumeToken = r.string(); // servidores antigos não o enviam
+                return jr;
+            case QUIZ_PAYLOAD:
+                return new QuizPayloadMessage(r.string(), readQuiz(r));
+            case QUESTION:
+                return new QuestionMessage(r.string(), r.varint(), r.varint(), r.string(), r.strings(),
+                        r.varint(), r.varint());
+            case ANSWER:
+                return new AnswerMessage(r.string(), r.string(), r.string(), r.varint(), r.varint());
+            case SCOREBOARD:
+                ScoreboardMessage sb = new ScoreboardMessage(r.string(), r.varint(), r.string(), r.scores(),
+                        r.scores(), r.strings());
+                if (r.remaining() > 0) { // posição própria (emissores antigos não a enviam)
+                    sb.rank = r.varint();
+                    sb.totalTeams = r.varint();
+                }
+                if (r.remaining() > 0) { // versões (só em servidores com placares delta)
+                    sb.version = r.varint();
+                    sb.baseVersion = r.varint();
+                }
+                return sb;
+            case GAME_OVER:
+                return new GameOverMessage(r.string(), r.string());
+            case ERROR:
+                return new ErrorMessage(r.string());
+            case QUIZ_OFFER:
+                return new QuizOfferMessage(r.string(), r.string());
+            case QUIZ_REQUEST:
+                return new QuizRequestMessage(r.string(), r.string());
+            case SCOREBOARD_SYNC:
+                return new ScoreboardSyncMessage(r.string(), r.varint());
+            case RESUME:
+                return new ResumeMessage(r.string(), r.string());
+            case RESUME_RESPONSE:
+                return new ResumeResponse(r.bool(), r.string(), r.string(), r.string(), r.varint());
+            default:
+                throw new StreamCorruptedException("Tipo de mensagem desconhecido: " + tag);
+        }
+    }
+
+    private static void writeQuiz(Writer w, Quiz quiz) {
+        if (quiz == null) {
+            w.bool(false);
+            return;
+        }
+        w.bool(true);
+        w.string(quiz.name);
+        List<Question> questions = quiz.safeQuestions();
+        w.varint(questions.size());
+        for (Question q : questions) {
+            w.string(q.question);
+            w.varint(q.points);
+            w.varint(q.correct);
+            w.strings(q.options);
+        }
+    }
+
+    private static Quiz readQuiz(Reader r) {
+        if (!r.bool()) return null;
+        String name = r.string();
+        int n = r.checkCount(r.varint());
+        List<Question> questions = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            Question q = new Question();
+            q.question = r.string();
+            q.points = r.varint();
+            q.correct = r.varint();
+            q.options = r.strings();
+            questions.add(q);
+        }
+        return new Quiz(name, questions);
+    }
+
+    /** Buffer de escrita que cresce conforme necessário. */
+    private static final class Writer {
+        private byte[] buf = new byte[128];
+        private int size;
+
+        private void ensure(int extra) {
+            if (size + extra > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, size + extra));
+            }
+        }
+
+        void tag(byte t) {
+            ensure(1);
+            buf[size++] = t;
+        }
+
+        void bool(boolean b) {
+            tag((byte) (b ? 1 : 0));
+        }
+
+        void fixedInt(int v) {
+            ensure(4);
+            buf[size++] = (byte) (v >>> 24);
+            buf[size++] = (byte) (v >>> 16);
+            buf[size++] = (byte) (v >>> 8);
+            buf[size++] = (byte) v;
+        }
+
+        void varint(int v) {
+            unsigned((v << 1) ^ (v >> 31)); // zigzag
+        }
+
+        void unsigned(int v) {
+            ensure(5);
+            while ((v & ~0x7F) != 0) {
+                buf[size++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buf[size++] = (byte) v;
+        }
+
+        void string(String s) {
+            if (s == null) {
+                unsigned(0);
+                return;
+            }
+            byte[] b = s.getBytes(StandardCharsets.UTF_8);
+            unsigned(b.length + 1);
+            ensure(b.length);
+            System.arraycopy(b, 0, buf, size, b.length);
+            size += b.length;
+        }
+
+        void strings(List<String> list) {
+            if (list == null) {
+                unsigned(0);
+                return;
+            }
+            unsigned(list.size() + 1);
+            for (String s : list) string(s);
+        }
+
+        void scores(Map<String, Integer> map) {
+            if (map == null) {
+                unsigned(0);
+                return;
+            }
+            unsigned(map.size() + 1);
+            map.forEach((k, v) -> {
+                string(k);
+                varint(v == null ? 0 : v);
+            });
+        }
+
+        byte[] toArray() {
+            return Arrays.copyOf(buf, size);
+        }
+    }
+
+    /** Leitura sequencial de um corpo de trama. */
+    private static final class Reader {
+        private final byte[] buf;
+        private int pos;
+        private final int end;
+
+        Reader(byte[] buf, int off, int len) {
+            this.buf = buf;
+            this.pos = off;
+            this.end = off + len;
+        }
+
+        int remaining() {
+            return end - pos;
+        }
+
+        byte tag() {
+            if (pos >= end) throw new IndexOutOfBoundsException();
+            return buf[pos++];
+        }
+
+        boolean bool() {
+            return tag() != 0;
+        }
+
+        int unsigned() {
+            int v = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                byte b = tag();
+                v |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return v;
+            }
+            throw new IndexOutOfBoundsException();
+        }
+
+        int varint() {
+            int z = unsigned();
+            return (z >>> 1) ^ -(z & 1);
+        }
+
+        String string() {
+            int n = unsigned();
+            if (n == 0) return null;
+            int len = n - 1;
+            if (len < 0 || len > end - pos) throw new IndexOutOfBoundsException();
+            String s = new String(buf, pos, len, StandardCharsets.UTF_8);
+            pos += len;
+            return s;
+        }
+
+        /** Número de elementos a ler; cada um ocupa pelo menos um byte, por isso não pode exceder o resto. */
+        int checkCount(int n) {
+            if (n < 0 || n > end - pos) throw new IllegalArgumentException("Contagem inválida: " + n);
+            return n;
+        }
+
+        /** Contagem codificada como n + 1 (0 = null); devolve -1 para null. */
+        int nullableCount() {
+            int n = unsigned();
+            return (n == 0) ? -1 : checkCount(n - 1);
+        }
+
+        List<String> strings() {
+            int n = nullableCount();
+            if (n < 0) return null;
+            List<String> list = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) list.add(string());
+            return list;
+        }
+
+        Map<String, Integer> scores() {
+            int n = nullableCount();
+            if (n < 0) return null;
+            Map<String, Integer> map = new LinkedHashMap<>();
+            for (int i = 0; i < n; i++) {
+                String k = string();
+                map.put(k, varint());
+            }
+            return map;
+        }
+    }
+}
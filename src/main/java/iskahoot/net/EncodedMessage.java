@@ -0,0 +1,71 @@
+package iskahoot.net;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Mensagem codificada uma única vez e partilhada por todas as ligações (broadcast).
+ * Os bytes de cada protocolo são gerados na primeira utilização e nunca mais alterados:
+ * - binário: a trama do BinaryCodec;
+ * - stream de objetos: TC_RESET seguido do objeto, o que não depende do histórico do stream
+ *   de cada ligação (o recetor limpa a tabela de handles ao ler o reset).
+ */
+public final class EncodedMessage {
+
+    private static final int STREAM_HEADER = 4; // 0xACED + versão, escrito pelo construtor do ObjectOutputStream
+
+    private final Message message;
+    private volatile byte[] binary;
+    private volatile byte[] objectStream;
+
+    public EncodedMessage(Message message) {
+        this.message = message;
+    }
+
+    public Message message() {
+        return message;
+    }
+
+    /** Escreve os bytes partilhados no stream (sem cópias). */
+    public void writeTo(OutputStream out, boolean binaryProtocol) throws IOException {
+        byte[] b = bytes(binaryProtocol);
+        out.write(b, 0, b.length);
+    }
+
+    /** Vista só de leitura, com posição própria, sobre os bytes partilhados (para NIO). */
+    public ByteBuffer buffer(boolean binaryProtocol) {
+        return ByteBuffer.wrap(bytes(binaryProtocol)).asReadOnlyBuffer();
+    }
+
+    private byte[] bytes(boolean binaryProtocol) {
+        byte[] b = binaryProtocol ? binary : objectStream;
+        if (b != null) return b;
+        synchronized (this) {
+            if (binaryProtocol) {
+                if (binary == null) binary = BinaryCodec.frame(message);
+                return binary;
+            }
+            if (objectStream == null) objectStream = encodeObjectStream();
+            return objectStream;
+        }
+    }
+
+    private byte[] encodeObjectStream() {
+        try {
+            ByteArrayOutputStream buf = new ByteArrayOutputStream(256);
+            ObjectOutputStream oos = new ObjectOutputStream(buf);
+            oos.reset();
+            oos.writeObject(message);
+            oos.flush();
+            byte[] all = buf.toByteArray();
+            return Arrays.copyOfRange(all, STREAM_HEADER, all.length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -2,6 +2,8 @@ package iskahoot.net;
 
 /** Mensagem enviada pelo servidor em caso de erro simples. */
 public class ErrorMessage implements Message {
+    private static final long serialVersionUID = -7194542968917972567L;
+
     public String info;
 
     public ErrorMessage(String info) {
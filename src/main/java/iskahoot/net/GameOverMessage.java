@@ -2,6 +2,8 @@ package iskahoot.net;
 
 /** Mensagem enviada pelo servidor para indicar fim do jogo. */
 public class GameOverMessage implements Message {
+    private static final long serialVersionUID = -5961979939709684465L;
+
     public String gameCode;
     public String info;
 
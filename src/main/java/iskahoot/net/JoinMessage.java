@@ -2,13 +2,27 @@ package iskahoot.net;
 
 /** Mensagem enviada pelo cliente para pedir entrada num jogo. */
 public class JoinMessage implements Message {
+    private static final long serialVersionUID = 2306377653070431456L;
+
     public String gameCode;  // código do jogo (ex.: "ABCD")
     public String teamId;    // equipa (ex.: "Team1")
     public String username;  // nome do jogador
+    public boolean quizCache; // cliente tem cache de quizzes: basta-lhe o hash (QuizOfferMessage)
+    public boolean scoreDeltas; // cliente aplica placares delta (ScoreboardMessage.baseVersion)
 
     public JoinMessage(String gameCode, String teamId, String username) {
+        this(gameCode, teamId, username, false);
+    }
+
+    public JoinMessage(String gameCode, String teamId, String username, boolean quizCache) {
+        this(gameCode, teamId, username, quizCache, false);
+    }
+
+    public JoinMessage(String gameCode, String teamId, String username, boolean quizCache, boolean scoreDeltas) {
         this.gameCode = gameCode;
         this.teamId = teamId;
         this.username = username;
+        this.quizCache = quizCache;
+        this.scoreDeltas = scoreDeltas;
     }
 }
@@ -2,8 +2,11 @@ package iskahoot.net;
 
 /** Resposta do servidor a um pedido de Join do cliente. */
 public class JoinResponse implements Message {
+    private static final long serialVersionUID = -6162213906660230328L;
+
     public boolean ok;   // true se aceitou, false se recusou
     public String info;  // mensagem de explicação
+    public String resumeToken; // para retomar o lugar com ResumeMessage se a ligação cair (null: sem retoma)
 
     public JoinResponse(boolean ok, String info) {
         this.ok = ok;
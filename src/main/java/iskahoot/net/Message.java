@@ -2,6 +2,11 @@ package iskahoot.net;
 
 import java.io.Serializable;
 
-/** Base para mensagens cliente-servidor (implementa Serializable). */
+/**
+ * Base para mensagens cliente-servidor (implementa Serializable).
+ * Cada mensagem fixa o serialVersionUID (as da versão original com o valor que o Java calculava
+ * para elas), para que os campos acrescentados depois não quebrem clientes antigos: um campo que
+ * o outro lado não conhece fica com o valor por omissão.
+ */
 public interface Message extends Serializable {
 }
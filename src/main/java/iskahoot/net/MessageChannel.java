@@ -0,0 +1,71 @@
+package iskahoot.net;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.net.Socket;
+import java.util.Arrays;
+
+/**
+ * Canal de mensagens sobre um socket, independente do formato no fio
+ * (stream de objetos Java antigo ou protocolo binário com tramas).
+ */
+public interface MessageChannel extends Closeable {
+
+    /** Escreve e faz flush de uma mensagem. */
+    void send(Message m) throws IOException;
+
+    /** Escreve e faz flush de uma mensagem já codificada (partilhada entre ligações). */
+    void send(EncodedMessage m) throws IOException;
+
+    /** Bloqueia até chegar a próxima mensagem (EOFException quando a ligação fecha). */
+    Message receive() throws IOException;
+
+    boolean binary();
+
+    /**
+     * Lado do servidor: olha para os primeiros bytes do cliente para escolher o protocolo.
+     * Clientes antigos começam pelo cabeçalho do ObjectOutputStream; os novos pelo BinaryCodec.MAGIC.
+     */
+    static MessageChannel accept(Socket s) throws IOException {
+        PushbackInputStream in = new PushbackInputStream(new BufferedInputStream(s.getInputStream()),
+                BinaryCodec.MAGIC.length);
+        OutputStream out = new BufferedOutputStream(s.getOutputStream());
+        byte[] head = in.readNBytes(BinaryCodec.MAGIC.length);
+        if (Arrays.equals(head, BinaryCodec.MAGIC)) {
+            out.write(BinaryCodec.MAGIC); // confirmar protocolo binário
+            out.flush();
+            return new BinaryChannel(s, in, out);
+        }
+        in.unread(head);
+        return ObjectStreamChannel.serverSide(s, in, out);
+    }
+
+    /**
+     * Lado do cliente: tenta o protocolo binário e, se o servidor não o confirmar (servidor antigo),
+     * volta a ligar com o stream de objetos.
+     */
+    static MessageChannel connect(String host, int port, boolean preferBinary) throws IOException {
+        if (preferBinary) {
+            Socket s = new Socket(host, port);
+            try {
+                OutputStream out = new BufferedOutputStream(s.getOutputStream());
+                out.write(BinaryCodec.MAGIC);
+                out.flush();
+                InputStream in = new BufferedInputStream(s.getInputStream());
+                byte[] ack = in.readNBytes(BinaryCodec.MAGIC.length);
+                if (Arrays.equals(ack, BinaryCodec.MAGIC)) {
+                    return new BinaryChannel(s, in, out);
+                }
+            } catch (IOException e) {
+                // servidor não fala binário: tentar protocolo antigo
+            }
+            s.close();
+        }
+        return ObjectStreamChannel.clientSide(new Socket(host, port));
+    }
+}
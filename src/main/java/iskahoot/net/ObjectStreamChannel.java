@@ -0,0 +1,79 @@
+package iskahoot.net;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.net.Socket;
+
+/** Protocolo antigo: mensagens serializadas com ObjectOutputStream/ObjectInputStream. */
+public class ObjectStreamChannel implements MessageChannel {
+    private final Socket socket;
+    private final OutputStream rawOut;
+    private final ObjectOutputStream out;
+    private final ObjectInputStream in;
+    private boolean rawWritten = false; // houve bytes escritos por fora do ObjectOutputStream
+
+    private ObjectStreamChannel(Socket socket, OutputStream rawOut, ObjectOutputStream out, ObjectInputStream in) {
+        this.socket = socket;
+        this.rawOut = rawOut;
+        this.out = out;
+        this.in = in;
+    }
+
+    static ObjectStreamChannel serverSide(Socket s, InputStream rawIn, OutputStream rawOut) throws IOException {
+        // IMPORTANTE: criar primeiro o ObjectOutputStream e fazer flush
+        ObjectOutputStream out = new ObjectOutputStream(rawOut);
+        out.flush();
+        return new ObjectStreamChannel(s, rawOut, out, new ObjectInputStream(rawIn));
+    }
+
+    static ObjectStreamChannel clientSide(Socket s) throws IOException {
+        // mesma ordem do servidor
+        OutputStream rawOut = s.getOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(rawOut);
+        out.flush();
+        return new ObjectStreamChannel(s, rawOut, out, new ObjectInputStream(s.getInputStream()));
+    }
+
+    @Override
+    public void send(Message m) throws IOException {
+        if (rawWritten) {
+            out.reset(); // o recetor já limpou os handles; voltar a sincronizar
+            rawWritten = false;
+        }
+        out.writeObject(m);
+        out.flush();
+    }
+
+    /** Os bytes partilhados começam por TC_RESET, por isso podem seguir-se a qualquer histórico. */
+    @Override
+    public void send(EncodedMessage m) throws IOException {
+        m.writeTo(rawOut, false);
+        rawOut.flush();
+        rawWritten = true;
+    }
+
+    @Override
+    public Message receive() throws IOException {
+        try {
+            Object obj = in.readObject();
+            if (obj instanceof Message m) return m;
+            throw new StreamCorruptedException("Objeto desconhecido: " + (obj == null ? "null" : obj.getClass()));
+        } catch (ClassNotFoundException e) {
+            throw new StreamCorruptedException("Classe desconhecida: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public boolean binary() {
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
@@ -4,6 +4,8 @@ import java.util.List;
 
 /** Mensagem enviada pelo servidor para anunciar a pergunta da ronda atual. */
 public class QuestionMessage implements Message {
+    private static final long serialVersionUID = -3044416667074368200L;
+
     public String gameCode;
     public int questionIndex;
     public int totalQuestions;
@@ -0,0 +1,17 @@
+package iskahoot.net;
+
+/**
+ * Enviada pelo servidor após join, em vez do QuizPayloadMessage, a clientes com cache de quizzes:
+ * só o hash do conteúdo. O cliente pede o quiz (QuizRequestMessage) apenas se não o tiver em cache.
+ */
+public class QuizOfferMessage implements Message {
+    private static final long serialVersionUID = 1L;
+
+    public String gameCode;
+    public String hash; // SHA-256 (hex) de BinaryCodec.encodeQuiz(quiz)
+
+    public QuizOfferMessage(String gameCode, String hash) {
+        this.gameCode = gameCode;
+        this.hash = hash;
+    }
+}
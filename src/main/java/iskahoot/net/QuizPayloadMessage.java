@@ -4,6 +4,8 @@ import iskahoot.model.Quiz;
 
 /** Mensagem enviada pelo servidor após join com o QUIZ completo para o cliente usar localmente. */
 public class QuizPayloadMessage implements Message {
+    private static final long serialVersionUID = -572896618880710313L;
+
     public String gameCode;
     public Quiz quiz;
 
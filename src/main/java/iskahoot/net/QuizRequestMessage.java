@@ -0,0 +1,14 @@
+package iskahoot.net;
+
+/** Pedido do cliente pelo quiz completo depois de um QuizOfferMessage cujo hash não está em cache. */
+public class QuizRequestMessage implements Message {
+    private static final long serialVersionUID = 1L;
+
+    public String gameCode;
+    public String hash;
+
+    public QuizRequestMessage(String gameCode, String hash) {
+        this.gameCode = gameCode;
+        this.hash = hash;
+    }
+}
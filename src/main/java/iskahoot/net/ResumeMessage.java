@@ -0,0 +1,17 @@
+package iskahoot.net;
+
+/**
+ * Primeira mensagem de um cliente que perdeu a ligação a meio do jogo: em vez de um novo join,
+ * apresenta o token recebido no JoinResponse para retomar o lugar que o servidor guardou.
+ */
+public class ResumeMessage implements Message {
+    private static final long serialVersionUID = 1L;
+
+    public String gameCode;
+    public String token;
+
+    public ResumeMessage(String gameCode, String token) {
+        this.gameCode = gameCode;
+        this.token = token;
+    }
+}
@@ -0,0 +1,24 @@
+package iskahoot.net;
+
+/**
+ * Resposta a ResumeMessage. Se ok, seguem-se a pergunta atual e o último placar da equipa;
+ * answeredQuestion diz se o jogador já tinha respondido a essa pergunta (índice, ou -1).
+ * Se não (lugar expirado ou token desconhecido), o cliente volta a fazer o join completo.
+ */
+public class ResumeResponse implements Message {
+    private static final long serialVersionUID = 1L;
+
+    public boolean ok;
+    public String info;
+    public String teamId;
+    public String username;
+    public int answeredQuestion;
+
+    public ResumeResponse(boolean ok, String info, String teamId, String username, int answeredQuestion) {
+        this.ok = ok;
+        this.info = info;
+        this.teamId = teamId;
+        this.username = username;
+        this.answeredQuestion = answeredQuestion;
+    }
+}
@@ -3,24 +3,44 @@ package iskahoot.net;
 import java.util.List;
 import java.util.Map;
 
-/** Mensagem enviada pelo servidor com o placar atualizado/resultado da ronda. */
+/**
+ * Mensagem enviada pelo servidor com o placar atualizado/resultado da ronda.
+ * Com baseVersion &gt; 0 é um delta sobre o placar version baseVersion que o cliente já tem:
+ * scoreboard traz só as equipas cujo total mudou, roundPoints só as que pontuaram e ranking é
+ * null se a ordem não mudou.
+ */
 public class ScoreboardMessage implements Message {
+    private static final long serialVersionUID = 3596343612303836997L;
+
     public String gameCode;
     public int questionIndex;
     public String info;
     public Map<String,Integer> scoreboard;       // pontuacao acumulada
     public Map<String,Integer> roundPoints;      // pontos ganhos nesta ronda
-    public List<String> ranking;                 // equipas ordenadas por pontuacao desc
+    public List<String> ranking;                 // equipas ordenadas por pontuacao desc (so as primeiras)
+    public int rank;                             // posicao da equipa do destinatario (1..), 0 se desconhecida
+    public int totalTeams;                       // equipas classificadas no jogo
+    public int version;                          // versao deste placar (ronda fechada, 1..), 0 se sem versao
+    public int baseVersion;                      // 0 = placar completo; senao delta sobre esta versao
 
     public ScoreboardMessage(String gameCode, int questionIndex, String info,
                              Map<String,Integer> scoreboard,
                              Map<String,Integer> roundPoints,
                              List<String> ranking) {
+        this(gameCode, questionIndex, info, scoreboard, roundPoints, ranking, 0, 0);
+    }
+
+    public ScoreboardMessage(String gameCode, int questionIndex, String info,
+                             Map<String,Integer> scoreboard,
+                             Map<String,Integer> roundPoints,
+                             List<String> ranking, int rank, int totalTeams) {
         this.gameCode = gameCode;
         this.questionIndex = questionIndex;
         this.info = info;
         this.scoreboard = scoreboard;
         this.roundPoints = roundPoints;
         this.ranking = ranking;
+        this.rank = rank;
+        this.totalTeams = totalTeams;
     }
 }
@@ -0,0 +1,17 @@
+package iskahoot.net;
+
+/**
+ * Pedido do cliente pelo placar completo: a sua cópia local (versão version) não serve de base ao
+ * delta recebido, por exemplo porque a fila de saída descartou um placar.
+ */
+public class ScoreboardSyncMessage implements Message {
+    private static final long serialVersionUID = 1L;
+
+    public String gameCode;
+    public int version;
+
+    public ScoreboardSyncMessage(String gameCode, int version) {
+        this.gameCode = gameCode;
+        this.version = version;
+    }
+}
@@ -0,0 +1,52 @@
+package iskahoot.server;
+
+import iskahoot.net.BinaryCodec;
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Descodificador incremental do protocolo binário: junta bytes até ter uma trama completa.
+ */
+final class BinaryFrameDecoder implements InboundDecoder {
+
+    private byte[] buf = new byte[512];
+    private int start; // início da trama por ler
+    private int size;  // fim dos dados recebidos
+
+    @Override
+    public void feed(ByteBuffer src) {
+        int n = src.remaining();
+        if (size + n > buf.length) {
+            // compactar antes de crescer
+            System.arraycopy(buf, start, buf, 0, size - start);
+            size -= start;
+            start = 0;
+            if (size + n > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, size + n));
+            }
+        }
+        src.get(buf, size, n);
+        size += n;
+    }
+
+    @Override
+    public Object next() throws IOException {
+        if (size - start < 4) return null;
+        int len = ((buf[start] & 0xFF) << 24) | ((buf[start + 1] & 0xFF) << 16)
+                | ((buf[start + 2] & 0xFF) << 8) | (buf[start + 3] & 0xFF);
+        if (len < 0 || len > BinaryCodec.MAX_FRAME) {
+            throw new StreamCorruptedException("Comprimento de trama inválido: " + len);
+        }
+        if (size - start - 4 < len) return null;
+        Object msg = BinaryCodec.decode(buf, start + 4, len);
+        start += 4 + len;
+        if (start == size) {
+            start = 0;
+            size = 0;
+        }
+        return msg;
+    }
+}
@@ -0,0 +1,191 @@
+package iskahoot.server;
+
+import iskahoot.net.EncodedMessage;
+import iskahoot.net.Message;
+import iskahoot.net.ScoreboardMessage;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+
+/**
+ * Saída de um cliente para broadcast: fila limitada por ligação, despejada por uma tarefa de escrita.
+ * send() só põe em fila e nunca bloqueia em I/O, por isso um socket lento não atrasa os outros.
+ * Quando a fila enche aplica-se a OverflowPolicy configurada. Os elementos são EncodedMessage, por isso
+ * uma mensagem de broadcast é codificada uma vez e os mesmos bytes servem todas as ligações.
+ * No fim do jogo, finish() faz com que o transporte seja fechado logo que a fila esvazie.
+ */
+public class ClientEndpoint {
+
+    /** O que fazer quando a fila de um cliente está cheia. */
+    public enum OverflowPolicy {
+        /** Descarta o placar mais antigo ainda por enviar (se não houver nenhum, desliga). */
+        DROP_OLDEST_SCOREBOARD,
+        /** Desliga o cliente. */
+        DISCONNECT;
+
+        public static OverflowPolicy of(String name) {
+            return switch (name) {
+                case "drop-scoreboard" -> DROP_OLDEST_SCOREBOARD;
+                case "disconnect" -> DISCONNECT;
+                default -> throw new IllegalArgumentException("Política desconhecida: " + name
+                        + " (usa drop-scoreboard ou disconnect)");
+            };
+        }
+    }
+
+    /** Configuração comum a todos os endpoints do servidor. */
+    public record Settings(int capacity, OverflowPolicy policy, Executor writers) {
+    }
+
+    /** Escrita bloqueante de uma mensagem no transporte do cliente. */
+    @FunctionalInterface
+    public interface Sender {
+        void send(EncodedMessage m) throws IOException;
+    }
+
+    private final ArrayDeque<EncodedMessage> queue = new ArrayDeque<>();
+    private final int capacity;
+    private final OverflowPolicy policy;
+    private final Runnable wakeup;
+    private final Runnable closeTransport;
+    private boolean scheduled = false; // há quem esteja a despejar a fila
+    private boolean finishing = false; // jogo terminou: fechar depois de esvaziar
+    private boolean closed = false;
+
+    /**
+     * Endpoint despejado por outra entidade (ex.: event loop NIO).
+     *
+     * @param wakeup         chamado quando há trabalho (quem despeja deve usar poll() e finishedAndDrained())
+     * @param closeTransport chamado uma vez se a política de overflow desligar o cliente
+     */
+    public ClientEndpoint(int capacity, OverflowPolicy policy, Runnable wakeup, Runnable closeTransport) {
+        this.capacity = Math.max(1, capacity);
+        this.policy = policy;
+        this.wakeup = wakeup;
+        this.closeTransport = closeTransport;
+    }
+
+    /**
+     * Endpoint sobre um transporte bloqueante: as escritas correm numa tarefa do executor de writers.
+     * closeTransport é chamado uma vez: em overflow, em erro de escrita ou depois do fim do jogo.
+     */
+    public ClientEndpoint(Sender sender, Settings settings, Runnable closeTransport) {
+        this.capacity = Math.max(1, settings.capacity());
+        this.policy = settings.policy();
+        this.wakeup = () -> settings.writers().execute(() -> drainTo(sender));
+        this.closeTransport = closeTransport;
+    }
+
+    /** Mensagem só para este cliente. */
+    public void send(Message m) {
+        send(new EncodedMessage(m));
+    }
+
+    /** Põe a mensagem em fila; nunca bloqueia em I/O. */
+    public void send(EncodedMessage m) {
+        boolean wake;
+        boolean overflow = false;
+        synchronized (queue) {
+            if (closed) return;
+            if (queue.size() >= capacity && !makeRoom()) {
+                overflow = true;
+                wake = false;
+            } else {
+                queue.add(m);
+                wake = !scheduled;
+                scheduled = true;
+            }
+        }
+        if (overflow) {
+            System.out.println("Fila de saída cheia, a desligar cliente (" + policy + ")");
+            disconnect();
+        } else if (wake) {
+            wakeup.run();
+        }
+    }
+
+    /**
+     * Próxima mensagem a escrever, ou null se a fila esvaziou (e quem despeja deve parar).
+     */
+    public EncodedMessage poll() {
+        synchronized (queue) {
+            EncodedMessage m = closed ? null : queue.poll();
+            if (m == null) scheduled = false;
+            return m;
+        }
+    }
+
+    /**
+     * Fim do jogo: o que já está em fila ainda é escrito e depois o transporte fecha.
+     */
+    public void finish() {
+        boolean wake;
+        synchronized (queue) {
+            if (closed) return;
+            finishing = true;
+            wake = !scheduled;
+            scheduled = true;
+        }
+        if (wake) wakeup.run();
+    }
+
+    /** Para quem despeja a fila: finish() foi pedido e já não há nada por escrever. */
+    public boolean finishedAndDrained() {
+        synchronized (queue) {
+            return finishing && queue.isEmpty();
+        }
+    }
+
+    public boolean isEmpty() {
+        synchronized (queue) {
+            return closed || queue.isEmpty();
+        }
+    }
+
+    /** Deixa de aceitar mensagens (a ligação terminou). */
+    public void close() {
+        synchronized (queue) {
+            closed = true;
+            queue.clear();
+        }
+    }
+
+    private void drainTo(Sender sender) {
+        EncodedMessage m;
+        while ((m = poll()) != null) {
+            try {
+                sender.send(m);
+            } catch (IOException e) {
+                disconnect();
+                return;
+            }
+        }
+        if (finishedAndDrained()) {
+            disconnect();
+        }
+    }
+
+    /** Fecha o transporte (ex.: outra ligação retomou o lugar deste cliente). */
+    public void disconnect() {
+        synchronized (queue) {
+            if (closed) return;
+            closed = true;
+            queue.clear();
+        }
+        if (closeTransport != null) closeTransport.run();
+    }
+
+    private boolean makeRoom() {
+        if (policy != OverflowPolicy.DROP_OLDEST_SCOREBOARD) return false;
+        Iterator<EncodedMessage> it = queue.iterator();
+        while (it.hasNext()) {
+            if (it.next().message() instanceof ScoreboardMessage) {
+                it.remove();
+                return true;
+            }
+        }
+        return false;
+    }
+}
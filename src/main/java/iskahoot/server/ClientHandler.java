@@ -1,59 +1,53 @@
 package iskahoot.server;
 
-import iskahoot.model.Quiz;
 import iskahoot.net.*;
-import iskahoot.model.QuestionsFile;
 
 import java.io.*;
 import java.net.Socket;
-import java.util.HashMap;
-import java.util.Map;
-import java.net.SocketTimeoutException;
 
 /**
  * Thread por cliente: faz o handshake de join e encaminha respostas para a GameSession.
+ * O protocolo (stream de objetos antigo ou binário) é detetado pelos primeiros bytes do cliente.
+ * A leitura bloqueia sem timeout: no fim do jogo o endpoint fecha o socket depois de enviar o
+ * GameOverMessage, o que desbloqueia esta thread.
+ * Em vez do join, a primeira mensagem pode ser um ResumeMessage: o cliente retoma o lugar que
+ * perdeu (ver GameSession.Seat) sem voltar a receber o quiz.
  */
 public class ClientHandler implements Runnable {
 
     private final Socket socket;
     private final GameManager gm;
-    private final Quiz quiz;
+    private final ClientEndpoint.Settings outbound;
 
     private String currentGame;
     private String currentUser;
     private String currentTeam;
     private GameRoom room;
     private GameSession session;
-    private GameSession.ClientEndpoint endpoint;
+    private ClientEndpoint endpoint;
+    private GameSession.Seat seat;
 
-    public ClientHandler(Socket s, GameManager gm, QuestionsFile qf) {
+    public ClientHandler(Socket s, GameManager gm, ClientEndpoint.Settings outbound) {
         this.socket = s;
         this.gm = gm;
-        this.quiz = iskahoot.io.QuestionLoader.pickQuiz(qf);
+        this.outbound = outbound;
     }
 
     @Override
     public void run() {
         try (Socket s = socket) {
 
-            // IMPORTANTE: criar primeiro o ObjectOutputStream e fazer flush
-            ObjectOutputStream out = new ObjectOutputStream(s.getOutputStream());
-            out.flush();
-            ObjectInputStream in = new ObjectInputStream(s.getInputStream());
-            s.setSoTimeout(1000); // para poder sair se o jogo acabar
+            MessageChannel channel = MessageChannel.accept(s);
 
             // 1) Ler uma mensagem do cliente
-            Object obj = in.readObject();
-            if (!(obj instanceof Message msg)) {
-                System.out.println("Mensagem desconhecida de " + s.getInetAddress());
-                return;
-            }
+            Message msg = channel.receive();
 
             // 2) Se for JoinMessage, tratar
             if (msg instanceof JoinMessage join) {
                 System.out.println("Pedido JOIN -> jogo=" + join.gameCode +
                         ", equipa=" + join.teamId +
-                        ", user=" + join.username);
+                        ", user=" + join.username +
+                        (channel.binary() ? " (binário)" : ""));
 
                 JoinResponse resp = gm.handleJoin(join);
                 if (resp.ok) {
@@ -61,52 +55,99 @@ public class ClientHandler implements Runnable {
                     currentUser = join.username;
                     currentTeam = join.teamId;
                     room = gm.getRoom(currentGame);
-                    session = gm.getOrCreateSession(currentGame, room, quiz);
+                    session = gm.getOrCreateSession(currentGame, room);
+                    seat = session.openSeat(currentUser, currentTeam, join.scoreDeltas);
+                    resp.resumeToken = seat.token;
                 }
 
                 // 3) Enviar resposta
-                out.writeObject(resp);
-                out.flush();
+                channel.send(resp);
 
-                // 3b) Enviar quiz completo para o cliente (carregado do servidor)
+                // 3b) Enviar o quiz: só o hash se o cliente tiver cache (pede-o se não o tiver) e o
+                // quiz for partilhado, senão o quiz completo, codificado uma vez por jogo
                 if (resp.ok) {
-                    QuizPayloadMessage qp = new QuizPayloadMessage(currentGame, quiz);
-                    out.writeObject(qp);
-                    out.flush();
+                    QuizOfferMessage offer = join.quizCache ? session.quizOffer() : null;
+                    if (offer != null) {
+                        channel.send(offer);
+                    } else {
+                        channel.send(session.quizPayload());
+                    }
                 }
 
                 if (resp.ok) {
-                    endpoint = new GameSession.ClientEndpoint(out);
-                    session.addClient(endpoint, currentTeam, currentUser);
-                    listenLoop(in);
+                    // a partir daqui as escritas são feitas pela fila do endpoint; fechar o socket
+                    // (overflow ou fim do jogo) faz esta thread sair do receive() e limpar o jogador
+                    endpoint = new ClientEndpoint(channel::send, outbound, this::closeQuietly);
+                    session.addClient(endpoint, seat);
+                    listenLoop(channel);
                 }
+            } else if (msg instanceof ResumeMessage resume) {
+                handleResume(channel, resume);
             } else {
                 System.out.println("Tipo de mensagem não suportado: " + msg.getClass());
             }
 
-        } catch (IOException | ClassNotFoundException e) {
-            System.out.println("Erro no cliente: " + e.getMessage());
+        } catch (StreamCorruptedException e) {
+            System.out.println("Mensagem desconhecida de " + socket.getInetAddress() + ": " + e.getMessage());
+        } catch (IOException e) {
+            if (session == null || !session.isFinished()) {
+                System.out.println("Erro no cliente: " + e.getMessage());
+            }
         } finally {
-            gm.disconnectUser(currentGame, currentUser);
-            if (session != null && endpoint != null) {
-                session.removeClient(endpoint, currentUser);
+            // com retoma o lugar fica guardado; senão (ou no fim do jogo) o jogador sai como antes
+            boolean kept = session != null && seat != null && session.suspend(seat, endpoint);
+            if (!kept) {
+                gm.disconnectUser(currentGame, currentUser);
+                if (session != null && endpoint != null) {
+                    session.removeClient(endpoint, currentUser);
+                }
             }
+            if (endpoint != null) endpoint.close();
+        }
+    }
+
+    /** Retoma num único pedido/resposta: ResumeResponse, depois a pergunta atual e o placar. */
+    private void handleResume(MessageChannel channel, ResumeMessage resume) throws IOException {
+        GameSession s = gm.getSession(resume.gameCode);
+        ClientEndpoint ce = new ClientEndpoint(channel::send, outbound, this::closeQuietly);
+        GameSession.Seat claimed = (s != null) ? s.claim(resume.token, ce) : null;
+        if (claimed == null) {
+            ce.close();
+            channel.send(new ResumeResponse(false, "Lugar expirado ou desconhecido", null, null, -1));
+            return;
         }
+        System.out.println("Retoma -> jogo=" + resume.gameCode + ", user=" + claimed.username);
+        session = s;
+        seat = claimed;
+        endpoint = ce;
+        currentGame = resume.gameCode;
+        currentUser = claimed.username;
+        currentTeam = claimed.team;
+        room = gm.getRoom(currentGame);
+        channel.send(new ResumeResponse(true, "Lugar retomado", claimed.team, claimed.username,
+                session.answeredQuestion(claimed.username)));
+        session.resumeClient(endpoint, seat);
+        listenLoop(channel);
     }
 
-    private void listenLoop(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    private void closeQuietly() {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private void listenLoop(MessageChannel channel) throws IOException {
         while (true) {
-            if (session != null && session.isFinished()) break;
-            try {
-                Message incoming = (Message) in.readObject();
-                if (incoming instanceof AnswerMessage ans) {
-                    session.handleAnswer(ans);
-                } else {
-                    // ignorar
-                }
-            } catch (SocketTimeoutException e) {
-                // timeout para reavaliar se jogo terminou
-                continue;
+            Message incoming = channel.receive();
+            if (incoming instanceof AnswerMessage ans) {
+                session.handleAnswer(ans);
+            } else if (incoming instanceof QuizRequestMessage) {
+                endpoint.send(session.quizPayload()); // cache do cliente falhou
+            } else if (incoming instanceof ScoreboardSyncMessage) {
+                session.sendScoreboardTo(endpoint); // o cliente perdeu a base do delta
+            } else {
+                // ignorar
             }
         }
     }
@@ -0,0 +1,439 @@
+package iskahoot.server;
+
+import iskahoot.concurrent.TaskRunner;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32;
+
+/**
+ * Diário (write-ahead, só acrescenta) dos eventos das sessões: jogo criado, ordem das perguntas,
+ * entradas/saídas, respostas, fecho de ronda e fim de jogo. Serve para recuperar os jogos a meio
+ * depois de o servidor reiniciar.
+ * Commit em grupo: cada jogo tem o seu buffer (Stage), onde quem regista copia o registo sob o lock
+ * desse jogo, sem alocar; jogos diferentes não disputam nenhum lock. A thread do diário recolhe os
+ * buffers com dados para um lote, escreve-o e faz um único force(). A ordem só importa dentro de um
+ * jogo (a leitura agrupa por código) e essa mantém-se. Nenhuma resposta espera pelo disco; um crash
+ * perde no máximo o lote que estava a ser escrito. Depois de um erro de escrita o diário desliga-se
+ * e os eventos seguintes são ignorados.
+ * Formato de cada registo: [int comprimento][int CRC32][byte tipo][campos]; na leitura pára-se no
+ * primeiro registo incompleto ou com CRC errado (cauda de uma escrita interrompida).
+ */
+final class GameJournal {
+
+    static final byte CREATE = 1;
+    static final byte ORDER = 2;
+    static final byte JOIN = 3;
+    static final byte LEAVE = 4;
+    static final byte ANSWER = 5;
+    static final byte ROUND = 6;
+    static final byte END = 7;
+
+    private static final int HEADER = 8;
+
+    /** Jogo por terminar, reconstruído a partir do diário. */
+    static final class Recovered {
+        final String code;
+        final int maxTeams;
+        final int playersPerTeam;
+        final int numQuestions;
+        final int quizId;
+        int[] order;                                              // null se a sessão ainda não existia
+        final Map<String, Integer> totals = new LinkedHashMap<>(); // pontuação após a última ronda fechada
+        int nextRound;                                            // primeira ronda por fechar
+        final List<String[]> answers = new ArrayList<>();         // {username, opção} da ronda nextRound
+        final Map<String, String> members = new LinkedHashMap<>(); // username -> equipa (quem estava no jogo)
+
+        Recovered(String code, int maxTeams, int playersPerTeam, int numQuestions, int quizId) {
+            this.code = code;
+            this.maxTeams = maxTeams;
+            this.playersPerTeam = playersPerTeam;
+            this.numQuestions = numQuestions;
+            this.quizId = quizId;
+        }
+    }
+
+    /** Registos de um jogo ainda por escrever; o monitor do Stage protege o buffer. */
+    private static final class Stage {
+        final String code;
+        final CRC32 crc = new CRC32();
+        ByteBuffer buf = ByteBuffer.allocate(256);
+        boolean queued; // já está em dirty
+        boolean ended;  // END registado: não aceita mais nada
+
+        Stage(String code) {
+            this.code = code;
+        }
+    }
+
+    private static final GameJournal DISABLED = new GameJournal(null, List.of());
+
+    private final FileChannel file; // null: diário desligado
+    private final List<Recovered> recovered;
+    private final Map<String, Stage> stages = new ConcurrentHashMap<>();
+    private final Queue<Stage> dirty = new ConcurrentLinkedQueue<>();
+    private ByteBuffer flushing = ByteBuffer.allocate(1 << 16); // só na thread do diário
+    private volatile Thread thread; // thread do diário (acordada quando há dados)
+    private volatile boolean closed;
+    private volatile boolean failed; // erro de escrita: diário desligado
+    private volatile long commits;
+
+    private GameJournal(FileChannel file, List<Recovered> recovered) {
+        this.file = file;
+        this.recovered = recovered;
+    }
+
+    /** Diário que não regista nada (servidor sem --journal). */
+    static GameJournal disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Lê o diário (se existir), reescreve-o só com os jogos por terminar (compactação) e abre-o para
+     * acrescentar. Os jogos lidos ficam em recovered() para o GameManager os reconstruir.
+     */
+    static GameJournal open(Path path, TaskRunner runner) throws IOException {
+        Collection<Recovered> games = Files.exists(path) ? replay(path) : List.of();
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        GameJournal journal = new GameJournal(out, List.copyOf(games));
+        for (Recovered g : games) journal.rewrite(g);
+        journal.writeBatch();
+        out.close();
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        journal = new GameJournal(FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND),
+                journal.recovered);
+        for (Recovered g : games) journal.stages.put(g.code, new Stage(g.code));
+        runner.start("game-journal", journal::run);
+        return journal;
+    }
+
+    boolean enabled() {
+        return file != null && !failed;
+    }
+
+    List<Recovered> recovered() {
+        return recovered;
+    }
+
+    /** Lotes escritos (um force() cada). */
+    long commits() {
+        return commits;
+    }
+
+    // --- eventos ---
+
+    void gameCreated(GameRoom room) {
+        if (!enabled()) return;
+        Stage s = new Stage(room.code);
+        stages.put(room.code, s);
+        synchronized (s) {
+            int start = begin(s, CREATE, 16);
+            s.buf.putInt(room.maxTeams()).putInt(room.playersPerTeam()).putInt(room.numQuestions()).putInt(room.quizId());
+            end(s, start);
+        }
+    }
+
+    void questionOrder(String code, int[] order) {
+        Stage s = stage(code);
+        if (s == null) return;
+        synchronized (s) {
+            if (s.ended) return;
+            int start = begin(s, ORDER, 4 + 4 * order.length);
+            s.buf.putInt(order.length);
+            for (int q : order) s.buf.putInt(q);
+            end(s, start);
+        }
+    }
+
+    void joined(String code, String team, String username) {
+        member(JOIN, code, team, username);
+    }
+
+    void left(String code, String username) {
+        member(LEAVE, code, "", username);
+    }
+
+    private void member(byte type, String code, String team, String username) {
+        Stage s = stage(code);
+        if (s == null) return;
+        synchronized (s) {
+            if (s.ended) return;
+            int start = begin(s, type, size(team) + size(username));
+            putString(s.buf, team);
+            putString(s.buf, username);
+            end(s, start);
+        }
+    }
+
+    /** Caminho das respostas: só copia para o buffer do jogo, sem alocar nem esperar pelo disco. */
+    void answer(String code, int questionIndex, String username, int option) {
+        Stage s = stage(code);
+        if (s == null) return;
+        synchronized (s) {
+            if (s.ended) return;
+            int start = begin(s, ANSWER, 8 + size(username));
+            s.buf.putInt(questionIndex);
+            putString(s.buf, username);
+            s.buf.putInt(option);
+            end(s, start);
+        }
+    }
+
+    /** Ronda fechada: pontuação total de cada equipa depois dela. */
+    void roundClosed(String code, int questionIndex, Map<String, Integer> totals) {
+        Stage s = stage(code);
+        if (s == null) return;
+        int size = 8;
+        for (String team : totals.keySet()) size += size(team) + 4;
+        synchronized (s) {
+            if (s.ended) return;
+            int start = begin(s, ROUND, size);
+            s.buf.putInt(questionIndex);
+            s.buf.putInt(totals.size());
+            totals.forEach((team, pts) -> {
+                putString(s.buf, team);
+                s.buf.putInt(pts);
+            });
+            end(s, start);
+        }
+    }
+
+    void gameEnded(String code) {
+        Stage s = stage(code);
+        if (s == null) return;
+        synchronized (s) {
+            if (s.ended) return;
+            end(s, begin(s, END, 0));
+            s.ended = true; // a thread do diário retira-o depois de o escrever
+        }
+    }
+
+    /** Pede à thread do diário que escreva o que falta e termine. */
+    void close() {
+        if (file == null) return;
+        closed = true;
+        LockSupport.unpark(thread);
+    }
+
+    // --- escrita ---
+
+    /** Buffer do jogo, ou null se o diário estiver desligado ou o jogo não for registado. */
+    private Stage stage(String code) {
+        return enabled() ? stages.get(code) : null;
+    }
+
+    private static int size(String s) {
+        return 4 + ((s == null) ? 0 : 2 * s.length());
+    }
+
+    /**
+     * Começa um registo no buffer do jogo (já com o código) com espaço para mais payload bytes de
+     * campos; devolve a posição do cabeçalho.
+     */
+    private static int begin(Stage s, byte type, int payload) {
+        int need = HEADER + 1 + size(s.code) + payload;
+        if (s.buf.remaining() < need) {
+            // o disco está atrasado: cresce em vez de bloquear quem regista
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(s.buf.capacity() * 2, s.buf.position() + need));
+            s.buf.flip();
+            bigger.put(s.buf);
+            s.buf = bigger;
+        }
+        int start = s.buf.position();
+        s.buf.position(start + HEADER);
+        s.buf.put(type);
+        putString(s.buf, s.code);
+        return start;
+    }
+
+    private void end(Stage s, int start) {
+        ByteBuffer b = s.buf;
+        int endPos = b.position();
+        int len = endPos - start - HEADER;
+        b.position(start + HEADER).limit(endPos);
+        s.crc.reset();
+        s.crc.update(b);
+        b.limit(b.capacity()).position(endPos);
+        b.putInt(start, len);
+        b.putInt(start + 4, (int) s.crc.getValue());
+        if (!s.queued) {
+            s.queued = true;
+            dirty.add(s);
+            LockSupport.unpark(thread); // a thread do diário pode estar parada à espera
+        }
+    }
+
+    /** Strings como [int n][n chars UTF-16] (null: n = -1), sem codificar para um byte[] intermédio. */
+    private static void putString(ByteBuffer b, String s) {
+        if (s == null) {
+            b.putInt(-1);
+            return;
+        }
+        b.putInt(s.length());
+        for (int i = 0; i < s.length(); i++) b.putChar(s.charAt(i));
+    }
+
+    private void run() {
+        thread = Thread.currentThread();
+        try {
+            while (true) {
+                while (dirty.isEmpty() && !closed) LockSupport.park(this);
+                if (dirty.isEmpty()) break; // fechado e sem nada por escrever
+                writeBatch();
+            }
+            file.close();
+        } catch (IOException e) {
+            // sem isto quem regista continuava a encher os buffers sem ninguém os escrever
+            failed = true;
+            dirty.clear();
+            stages.clear();
+            System.out.println("Diário desligado, erro a escrever: " + e.getMessage());
+        }
+    }
+
+    /** Junta num lote os registos de todos os jogos com dados (lock curto por jogo), escreve e faz um único force(). */
+    private void writeBatch() throws IOException {
+        Stage s;
+        while ((s = dirty.poll()) != null) {
+            synchronized (s) {
+                ByteBuffer b = s.buf;
+                b.flip();
+                if (flushing.remaining() < b.remaining()) {
+                    ByteBuffer bigger = ByteBuffer.allocate(Math.max(flushing.capacity() * 2, flushing.position() + b.remaining()));
+                    flushing.flip();
+                    bigger.put(flushing);
+                    flushing = bigger;
+                }
+                flushing.put(b);
+                b.clear();
+                s.queued = false;
+                if (s.ended) stages.remove(s.code, s);
+            }
+        }
+        commits++;
+        flushing.flip();
+        while (flushing.hasRemaining()) file.write(flushing);
+        file.force(false);
+        flushing.clear();
+    }
+
+    /** Compactação: um jogo por terminar, como se tivesse acabado de chegar a este ponto. */
+    private void rewrite(Recovered g) {
+        Stage s = new Stage(g.code);
+        stages.put(g.code, s);
+        synchronized (s) {
+            int start = begin(s, CREATE, 16);
+            s.buf.putInt(g.maxTeams).putInt(g.playersPerTeam).putInt(g.numQuestions).putInt(g.quizId);
+            end(s, start);
+        }
+        if (g.order != null) questionOrder(g.code, g.order);
+        g.members.forEach((user, team) -> joined(g.code, team, user));
+        if (g.nextRound > 0) roundClosed(g.code, g.nextRound - 1, g.totals);
+        for (String[] a : g.answers) answer(g.code, g.nextRound, a[0], Integer.parseInt(a[1]));
+    }
+
+    // --- leitura ---
+
+    /** Reconstrói os jogos que não chegaram ao fim, pela ordem em que foram criados. */
+    static Collection<Recovered> replay(Path path) throws IOException {
+        Map<String, Recovered> games = new LinkedHashMap<>();
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(path));
+        CRC32 crc = new CRC32();
+        int records = 0;
+        while (in.remaining() >= HEADER) {
+            int len = in.getInt();
+            int sum = in.getInt();
+            if (len <= 0 || len > in.remaining()) break;
+            int endPos = in.position() + len;
+            ByteBuffer rec = in.slice(in.position(), len);
+            crc.reset();
+            crc.update(rec.duplicate());
+            if ((int) crc.getValue() != sum) break;
+            try {
+                apply(games, rec);
+            } catch (RuntimeException e) {
+                break; // campos que não batem com o tipo: tratado como a cauda corrompida
+            }
+            in.position(endPos);
+            records++;
+        }
+        if (in.hasRemaining()) {
+            System.out.println("Diário: " + in.remaining() + " bytes finais ignorados (escrita interrompida)");
+        }
+        System.out.println("Diário: " + records + " registos lidos, " + games.size() + " jogos por terminar");
+        return games.values();
+    }
+
+    private static void apply(Map<String, Recovered> games, ByteBuffer r) {
+        byte type = r.get();
+        String code = getString(r);
+        if (type == CREATE) {
+            games.put(code, new Recovered(code, r.getInt(), r.getInt(), r.getInt(), r.getInt()));
+            return;
+        }
+        Recovered g = games.get(code);
+        if (g == null) return;
+        switch (type) {
+            case ORDER -> {
+                int[] order = new int[r.getInt()];
+                for (int i = 0; i < order.length; i++) order[i] = r.getInt();
+                g.order = order;
+            }
+            case JOIN -> {
+                String team = getString(r);
+                String user = getString(r);
+                if (team != null && user != null) g.members.put(user, team); // sem equipa não há lugar a repor
+            }
+            case LEAVE -> {
+                getString(r);
+                g.members.remove(getString(r));
+            }
+            case ANSWER -> {
+                int idx = r.getInt();
+                String user = getString(r);
+                int option = r.getInt();
+                if (idx == g.nextRound) g.answers.add(new String[]{user, Integer.toString(option)});
+            }
+            case ROUND -> {
+                int idx = r.getInt();
+                g.totals.clear();
+                for (int n = r.getInt(); n > 0; n--) {
+                    String team = getString(r);
+                    g.totals.put(team, r.getInt());
+                }
+                g.nextRound = idx + 1;
+                g.answers.clear();
+            }
+            case END -> games.remove(code);
+            default -> {
+                // tipo desconhecido (versão mais recente): ignorar
+            }
+        }
+    }
+
+    private static String getString(ByteBuffer r) {
+        int n = r.getInt();
+        if (n == -1) return null;
+        if (n < 0 || n > r.remaining() / 2) throw new IllegalArgumentException("String com " + n + " caracteres");
+        char[] c = new char[n];
+        for (int i = 0; i < c.length; i++) c[i] = r.getChar();
+        return new String(c);
+    }
+}
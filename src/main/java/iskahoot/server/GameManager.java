@@ -1,77 +1,262 @@
 package iskahoot.server;
 
+import iskahoot.cluster.Cluster;
+import iskahoot.cluster.UsernameRegistry;
+import iskahoot.concurrent.TaskRunner;
+import iskahoot.concurrent.TimerWheel;
+import iskahoot.io.QuizCatalog;
+import iskahoot.io.ResultsArchive;
 import iskahoot.net.JoinMessage;
 import iskahoot.net.JoinResponse;
 
+import java.io.IOException;
 import java.security.SecureRandom;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
 
 /**
  * Orquestra jogos ativos: gera códigos, valida joins e expõe estado/placar para a TUI.
+ * Sem monitor global: jogos e sessões estão em mapas concorrentes indexados pelo código do jogo
+ * (joins de jogos diferentes não se bloqueiam) e o username é reservado atomicamente no conjunto
+ * global antes de entrar na sala; se a entrada falhar, a reserva é desfeita.
+ * Num cluster (ver Cluster) só gera códigos de que este nó é dono e os usernames são reservados
+ * no coordenador, para serem únicos em todos os nós.
+ * Com um GameJournal os eventos dos jogos ficam registados e, ao arrancar, recoverGames() reconstrói
+ * os jogos que não chegaram ao fim.
+ * Com um ResultsArchive os resultados de cada jogo terminado são acrescentados ao arquivo (numa
+ * thread à parte, fora do game loop).
  */
 public class GameManager {
 
-    private final Map<String, GameRoom> games = new HashMap<>();
-    private final Set<String> usernames = new HashSet<>();
+    /** Segundos durante os quais o lugar de um jogador que perdeu a ligação fica guardado. */
+    public static final int DEFAULT_RESUME_GRACE = 30;
+
+    private final Map<String, GameRoom> games = new ConcurrentHashMap<>();
+    private final Cluster cluster;
+    private final UsernameRegistry usernames;
+    private final ExecutorService registryWorkers; // idas e voltas ao coordenador; null se os nomes são locais
     private final SecureRandom random = new SecureRandom();
-    private final Map<String, GameSession> sessions = new HashMap<>();
+    private final Map<String, GameSession> sessions = new ConcurrentHashMap<>();
+    private final TaskRunner runner;
+    private final QuizCatalog catalog;
+    private final TimerWheel timers = TimerWheel.shared();
+    private final GameSession.Mode sessionMode;
+    private final GameJournal journal;
+    private volatile int resumeGraceSeconds = DEFAULT_RESUME_GRACE;
+    private volatile ResultsArchive archive; // null: resultados não são arquivados
+
+    public GameManager(QuizCatalog catalog) {
+        this(TaskRunner.platform(), catalog);
+    }
+
+    public GameManager(TaskRunner runner, QuizCatalog catalog) {
+        this(runner, catalog, GameSession.Mode.SHARED);
+    }
+
+    public GameManager(TaskRunner runner, QuizCatalog catalog, GameSession.Mode sessionMode) {
+        this(runner, catalog, sessionMode, Cluster.standalone());
+    }
+
+    public GameManager(TaskRunner runner, QuizCatalog catalog, GameSession.Mode sessionMode, Cluster cluster) {
+        this(runner, catalog, sessionMode, cluster, GameJournal.disabled());
+    }
+
+    GameManager(TaskRunner runner, QuizCatalog catalog, GameSession.Mode sessionMode, Cluster cluster,
+                GameJournal journal) {
+        this.journal = journal;
+        this.runner = runner;
+        this.catalog = catalog;
+        this.sessionMode = sessionMode;
+        this.cluster = cluster;
+        this.usernames = cluster.usernames();
+        this.registryWorkers = usernames.remote() ? runner.newWorkerPool("username-registry-") : null;
+    }
+
+    /** Prazo de graça para retomar um lugar (ResumeMessage); 0 liberta o jogador logo ao desligar. */
+    public int resumeGraceSeconds() {
+        return resumeGraceSeconds;
+    }
+
+    public void setResumeGraceSeconds(int seconds) {
+        this.resumeGraceSeconds = Math.max(0, seconds);
+    }
+
+    /** Arquivo de resultados (null se desligado); as sessões criadas depois passam a arquivar. */
+    public ResultsArchive archive() {
+        return archive;
+    }
+
+    public void setArchive(ResultsArchive archive) {
+        this.archive = archive;
+    }
+
+    /** Acrescenta ao arquivo os resultados de um jogo terminado, sem bloquear quem chama. */
+    void archiveResults(String code, int quizId, ResultsArchive.Batch results) {
+        ResultsArchive a = archive;
+        if (a == null || results.rows() == 0) return;
+        long time = System.currentTimeMillis();
+        runner.start("archive-" + code, () -> {
+            try {
+                a.append(code, quizId, time, results);
+            } catch (IOException e) {
+                System.out.println("Erro a arquivar os resultados do jogo " + code + ": " + e.getMessage());
+            }
+        });
+    }
+
+    GameJournal journal() {
+        return journal;
+    }
+
+    public Cluster cluster() {
+        return cluster;
+    }
+
+    /** Modo de threads usado pelas sessões (game loops). */
+    public TaskRunner runner() {
+        return runner;
+    }
 
-    public synchronized GameRoom createGame(int numTeams, int playersPerTeam, int numQuestions) {
-        String code = generateCode();
-        GameRoom room = new GameRoom(code, numTeams, playersPerTeam, numQuestions);
-        games.put(code, room);
-        return room;
+    /** Roda de temporizadores onde todas as rondas registam os seus prazos. */
+    public TimerWheel timers() {
+        return timers;
     }
 
-    public synchronized JoinResponse handleJoin(JoinMessage join) {
+    /** Como as sessões novas aplicam as respostas (ver GameSession.Mode). */
+    public GameSession.Mode sessionMode() {
+        return sessionMode;
+    }
+
+    public QuizCatalog catalog() {
+        return catalog;
+    }
+
+    public GameRoom createGame(int numTeams, int playersPerTeam, int numQuestions) {
+        return createGame(numTeams, playersPerTeam, numQuestions, QuizCatalog.DEFAULT_ID);
+    }
+
+    public GameRoom createGame(int numTeams, int playersPerTeam, int numQuestions, int quizId) {
+        catalog.get(quizId); // valida o id
+        while (true) {
+            String code = randomCode(4);
+            if (!cluster.owns(code)) continue; // o router encaminha este código para outro nó
+            GameRoom room = new GameRoom(code, numTeams, playersPerTeam, numQuestions, quizId);
+            if (games.putIfAbsent(room.code, room) == null) {
+                journal.gameCreated(room);
+                return room;
+            }
+        }
+    }
+
+    /**
+     * handleJoin para quem não pode bloquear (event loop NIO). Se reservar o nome for uma ida e volta
+     * ao coordenador, o join corre num worker do TaskRunner e done recebe a resposta nessa thread;
+     * com nomes locais corre já, na thread de quem chama.
+     */
+    public void handleJoin(JoinMessage join, Consumer<JoinResponse> done) {
+        if (registryWorkers == null) {
+            done.accept(handleJoin(join));
+        } else {
+            registryWorkers.execute(() -> done.accept(handleJoin(join)));
+        }
+    }
+
+    public JoinResponse handleJoin(JoinMessage join) {
         if (join.username == null || join.username.isBlank()) {
             return new JoinResponse(false, "Username em branco");
         }
-        if (usernames.contains(join.username)) {
-            return new JoinResponse(false, "Username já em uso");
+        if (join.teamId == null || join.teamId.isBlank()) {
+            return new JoinResponse(false, "Equipa em branco");
         }
-        GameRoom room = games.get(join.gameCode);
+        GameRoom room = getRoom(join.gameCode);
         if (room == null) {
             return new JoinResponse(false, "Jogo inexistente");
         }
-
+        try {
+            if (!usernames.reserve(join.username)) {
+                return new JoinResponse(false, "Username já em uso");
+            }
+        } catch (IllegalStateException e) {
+            return new JoinResponse(false, e.getMessage());
+        }
         JoinResponse resp = room.tryJoin(join.teamId, join.username);
-        if (resp.ok) {
-            usernames.add(join.username);
+        if (!resp.ok) {
+            release(join.username); // desfaz a reserva
+        } else {
+            journal.joined(room.code, join.teamId, join.username);
         }
         return resp;
     }
 
-    public synchronized void disconnectUser(String gameCode, String username) {
+    public void disconnectUser(String gameCode, String username) {
         if (username == null) return;
-        usernames.remove(username);
-        GameRoom room = games.get(gameCode);
+        if (registryWorkers == null) {
+            release(username);
+        } else {
+            registryWorkers.execute(() -> release(username)); // quem desliga pode ser um event loop
+        }
+        GameRoom room = getRoom(gameCode);
         if (room != null) {
             room.removeUser(username);
+            journal.left(room.code, username);
+            GameSession session = (room.totalPlayers() == 0) ? sessions.get(room.code) : null;
+            if (session != null) session.idle();
         }
     }
 
-    public synchronized GameRoom getRoom(String gameCode) {
-        return games.get(gameCode);
+    public GameRoom getRoom(String gameCode) {
+        return (gameCode == null) ? null : games.get(gameCode); // ConcurrentHashMap não aceita null
+    }
+
+    public GameSession getSession(String code) {
+        return (code == null) ? null : sessions.get(code);
     }
 
-    public synchronized GameSession getOrCreateSession(String code, GameRoom room, iskahoot.model.Quiz quiz) {
-        return sessions.computeIfAbsent(code, k -> new GameSession(code, quiz, room, this));
+    public GameSession getOrCreateSession(String code, GameRoom room) {
+        return sessions.computeIfAbsent(code, k -> new GameSession(code, catalog.get(room.quizId()), room, this));
     }
 
-    public synchronized Map<String, GameRoom> snapshotGames() {
+    /**
+     * Reconstrói os jogos por terminar lidos do diário: sala vazia com a mesma configuração e sessão
+     * com a mesma ordem de perguntas e o placar da última ronda fechada. O jogo continua nessa ronda
+     * quando os jogadores voltarem a entrar. Devolve quantos jogos foram recuperados.
+     */
+    public int recoverGames() {
+        int n = 0;
+        for (GameJournal.Recovered g : journal.recovered()) {
+            if (!cluster.owns(g.code)) continue; // o anel mudou: o código pertence agora a outro nó
+            GameRoom room = new GameRoom(g.code, g.maxTeams, g.playersPerTeam, g.numQuestions, g.quizId);
+            // reservar o código antes de criar a sessão (que arranca a sua thread e temporizadores)
+            if (games.putIfAbsent(g.code, room) != null) continue;
+            try {
+                sessions.put(g.code, new GameSession(g.code, catalog.get(g.quizId), room, this, g));
+                n++;
+            } catch (IllegalArgumentException e) {
+                games.remove(g.code, room);
+                System.out.println("Jogo " + g.code + " não recuperado: " + e.getMessage()); // quiz mudou
+            }
+        }
+        return n;
+    }
+
+    public Map<String, GameRoom> snapshotGames() {
         return new LinkedHashMap<>(games);
     }
 
-    public synchronized void endGame(String code) {
-        sessions.remove(code);
+    public void endGame(String code) {
+        journal.gameEnded(code);
+        GameSession session = sessions.remove(code);
+        if (session != null) session.close();
         games.remove(code);
     }
 
     /**
      * Descrição detalhada dos jogos para a TUI: estado + placar.
+     * Percorre os mapas sem os bloquear (vista fracamente consistente).
      */
-    public synchronized List<String> describeGames() {
+    public List<String> describeGames() {
         List<String> res = new ArrayList<>();
         for (Map.Entry<String, GameRoom> e : games.entrySet()) {
             String code = e.getKey();
@@ -99,12 +284,12 @@ public class GameManager {
         return res;
     }
 
-    private String generateCode() {
-        String code;
-        do {
-            code = randomCode(4);
-        } while (games.containsKey(code));
-        return code;
+    private void release(String username) {
+        try {
+            usernames.release(username);
+        } catch (IllegalStateException e) {
+            // coordenador em baixo: ao fechar a ligação ele já liberta os nomes deste nó
+        }
     }
 
     private String randomCode(int len) {
@@ -1,7 +1,9 @@
 package iskahoot.server;
 
+import iskahoot.io.QuizCatalog;
 import iskahoot.net.JoinResponse;
 
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
@@ -9,6 +11,9 @@ import java.util.Set;
 
 /**
  * Representa um jogo criado: guarda limites de equipas/jogadores e regista entradas válidas.
+ * O total de jogadores é um contador mantido a cada entrada/saída. Quem lê as equipas (sessão, rondas,
+ * consola) recebe uma Membership imutável: é construída uma vez depois de cada alteração e
+ * partilhada por todas as leituras seguintes, sem lock nem cópia.
  */
 public class GameRoom {
 
@@ -16,12 +21,24 @@ public class GameRoom {
     private final int maxTeams;
     private final int playersPerTeam;
     private final int numQuestions;
+    private final int quizId;
 
-    // ordem de criação preservada
+    /** Fotografia imutável das equipas (ordem de criação preservada) e do total de jogadores. */
+    public record Membership(Map<String, Set<String>> teams, int totalPlayers) {
+    }
+
+    // ordem de criação preservada; só com o lock do objeto
     private final LinkedHashMap<String, Set<String>> teams = new LinkedHashMap<>();
+    private volatile int totalPlayers;
+    private volatile Membership membership; // null depois de uma alteração, até à próxima leitura
 
     public GameRoom(String code, int maxTeams, int playersPerTeam, int numQuestions) {
+        this(code, maxTeams, playersPerTeam, numQuestions, QuizCatalog.DEFAULT_ID);
+    }
+
+    public GameRoom(String code, int maxTeams, int playersPerTeam, int numQuestions, int quizId) {
         this.code = code;
+        this.quizId = quizId;
         this.maxTeams = maxTeams;
         this.playersPerTeam = playersPerTeam;
         this.numQuestions = numQuestions;
@@ -39,26 +56,36 @@ public class GameRoom {
             }
             players = new LinkedHashSet<>();
             teams.put(teamId, players);
+            membership = null;
         }
 
         if (players.size() >= playersPerTeam) {
             return new JoinResponse(false, "Equipa cheia");
         }
 
-        players.add(username);
+        if (players.add(username)) {
+            totalPlayers = totalPlayers + 1;
+            membership = null;
+        }
         return new JoinResponse(true, "Bem-vindo " + username + " à equipa " + teamId + " (jogo " + code + ")");
     }
 
     public synchronized void removeUser(String username) {
-        teams.values().forEach(set -> set.remove(username));
+        for (Set<String> set : teams.values()) {
+            if (set.remove(username)) {
+                totalPlayers = totalPlayers - 1;
+                membership = null;
+            }
+        }
     }
 
-    public synchronized boolean isFull() {
-        return totalPlayers() >= maxTeams * playersPerTeam;
+    public boolean isFull() {
+        return totalPlayers >= expectedTotalPlayers();
     }
 
-    public synchronized int totalPlayers() {
-        return teams.values().stream().mapToInt(Set::size).sum();
+    /** O(1): contador mantido a cada join/leave. */
+    public int totalPlayers() {
+        return totalPlayers;
     }
 
     public int maxTeams() {
@@ -73,22 +100,45 @@ public class GameRoom {
         return numQuestions;
     }
 
-    public synchronized int expectedTotalPlayers() {
+    /** Id do quiz no QuizCatalog. */
+    public int quizId() {
+        return quizId;
+    }
+
+    public int expectedTotalPlayers() {
         return maxTeams * playersPerTeam;
     }
 
-    public synchronized Map<String, Set<String>> snapshotTeams() {
-        LinkedHashMap<String, Set<String>> copy = new LinkedHashMap<>();
-        teams.forEach((k, v) -> copy.put(k, new LinkedHashSet<>(v)));
-        return copy;
+    /** Fotografia atual das equipas e jogadores; imutável, pode ser guardada sem copiar. */
+    public Membership membership() {
+        Membership m = membership;
+        return (m != null) ? m : rebuildMembership();
+    }
+
+    private synchronized Membership rebuildMembership() {
+        Membership m = membership;
+        if (m == null) {
+            LinkedHashMap<String, Set<String>> copy = new LinkedHashMap<>();
+            teams.forEach((k, v) -> copy.put(k, Collections.unmodifiableSet(new LinkedHashSet<>(v))));
+            m = new Membership(Collections.unmodifiableMap(copy), totalPlayers);
+            membership = m;
+        }
+        return m;
+    }
+
+    /** Equipas -> jogadores (vista imutável da fotografia atual). */
+    public Map<String, Set<String>> snapshotTeams() {
+        return membership().teams();
     }
 
     @Override
-    public synchronized String toString() {
+    public String toString() {
+        Membership m = membership();
+        Map<String, Set<String>> teams = m.teams();
         StringBuilder sb = new StringBuilder();
         sb.append(code)
                 .append(" [equipas ").append(teams.size()).append("/").append(maxTeams)
-                .append(", jogadores ").append(totalPlayers()).append("/").append(maxTeams * playersPerTeam)
+                .append(", jogadores ").append(m.totalPlayers()).append("/").append(maxTeams * playersPerTeam)
                 .append(", perguntas ").append(numQuestions).append("]");
         if (!teams.isEmpty()) {
             sb.append(" -> ");
@@ -1,73 +1,372 @@
 package iskahoot.server;
 
+import iskahoot.concurrent.Mailbox;
 import iskahoot.concurrent.ModifiedCountdownLatch;
 import iskahoot.concurrent.TeamBarrier;
-import iskahoot.model.Question;
+import iskahoot.concurrent.TimerWheel;
+import iskahoot.io.QuizCatalog;
+import iskahoot.io.QuizCatalog.CompactQuestion;
+import iskahoot.io.ResultsArchive;
 import iskahoot.model.Quiz;
 import iskahoot.net.*;
 
-import java.io.IOException;
-import java.io.ObjectOutputStream;
+import java.security.SecureRandom;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * Estado partilhado de um jogo: gere perguntas, placar e coordenação (latch/barreira) das respostas.
+ * No modo SHARED não tem thread própria: cada ronda fecha na última resposta ou no prazo agendado na
+ * TimerWheel, e quem a fecha envia o placar e arranca a ronda seguinte.
+ * No modo ACTOR as respostas e os prazos são publicados numa Mailbox e aplicados em lotes por uma
+ * única thread da sessão; as ligações só fazem a publicação.
+ * Ordem das perguntas, respostas e fecho de cada ronda vão para o GameJournal do GameManager; uma
+ * sessão recuperada do diário retoma na primeira ronda que não chegou a fechar.
+ * Cada jogador tem um Seat com um token de retoma: se a ligação cair, o lugar (equipa, id e respostas
+ * já dadas) fica guardado durante o prazo de graça e outra ligação pode retomá-lo com o token.
+ * Com arquivo de resultados, cada ronda fechada acrescenta uma linha por resposta (opção, acerto,
+ * pontos, latência) ao lote do jogo, entregue ao GameManager no fim.
  */
 public class GameSession {
+    /** Quem aplica as respostas: as threads das ligações (SHARED) ou a thread da sessão (ACTOR). */
+    public enum Mode {
+        SHARED, ACTOR;
+
+        public static Mode of(String name) {
+            return switch (name) {
+                case "shared" -> SHARED;
+                case "actor" -> ACTOR;
+                default -> throw new IllegalArgumentException("Modo de sessão desconhecido: " + name
+                        + " (usa shared ou actor)");
+            };
+        }
+    }
+
+    /** Mensagens aplicadas de cada vez pela thread da sessão no modo ACTOR. */
+    static final int ACTOR_BATCH = 256;
+
+    /** Equipas enviadas no placar de cada ronda; cada cliente recebe ainda a posição da sua. */
+    static final int RANKING_TOP = 10;
+
     private final String code;
-    private final Quiz quiz;
+    private final QuizCatalog.Entry quiz;
+    private final EncodedMessage quizPayload; // codificado uma vez por jogo, partilhado pelos joins
+    private final String quizHash;
     private final GameRoom roomInfo;
     private final GameManager gm;
+    private final TimerWheel timers;
+    private final GameJournal journal;
 
-    private final List<Question> questions;
+    // perguntas deste jogo: índices (baralhados) nas perguntas partilhadas do catálogo e as perguntas
+    // já lidas (num banco mapeado só estas são descodificadas)
+    private final int[] order;
+    private final CompactQuestion[] questions;
     private final AtomicInteger currentIndex = new AtomicInteger(0);
+    private final int resumeFrom;            // primeira ronda a jogar (> 0 se recuperada do diário)
+    private List<String[]> resumeAnswers;     // respostas já registadas dessa ronda antes do reinício
+
+    // equipas -> índices densos (atribuídos no join); placar global por índice, sem boxing
+    private final TeamIndex teams;
+    private final AtomicIntegerArray scoreboard;
+    private final TeamRanking ranking; // atualizada a cada pontuação (ScoreboardTracker.addPoints)
+
+    // jogadores -> ids densos (atribuídos no join); respostas por id, reaproveitadas de ronda para ronda
+    private final PlayerIndex players;
+    private final AnswerRegistry answers;
+    private final ResultsArchive.Batch results; // null sem arquivo de resultados
+
+    // clientes ligados (para broadcast) -> equipa; cada um tem a sua fila de saída
+    private final Map<ClientEndpoint, Member> clients = new ConcurrentHashMap<>();
+
+    // último placar completo enviado a cada equipa: base dos deltas e snapshot para joins/resync
+    private final Map<String, ScoreboardMessage> lastBoards = new ConcurrentHashMap<>();
+
+    /** Equipa do cliente e se aceita placares delta. */
+    private record Member(String team, boolean scoreDeltas) {
+    }
 
-    // placar global: equipa -> pontos
-    private final Map<String, Integer> scoreboard = new ConcurrentHashMap<>();
+    /** Lugar de um jogador; sobrevive à queda da ligação durante o prazo de graça. */
+    static final class Seat {
+        final String token;
+        final String username;
+        final String team;
+        final boolean scoreDeltas;
+        private ClientEndpoint endpoint;      // ligação atual; null com o lugar guardado
+        private TimerWheel.Timeout expiry;    // fim do prazo de graça
+        private boolean released;
+
+        private Seat(String token, String username, String team, boolean scoreDeltas) {
+            this.token = token;
+            this.username = username;
+            this.team = team;
+            this.scoreDeltas = scoreDeltas;
+        }
+    }
 
-    // registo de utilizadores -> equipa
-    private final Map<String, String> userTeam = new ConcurrentHashMap<>();
+    private static final SecureRandom TOKENS = new SecureRandom();
 
-    // clientes ligados (para broadcast)
-    private final Set<ClientEndpoint> clients = Collections.synchronizedSet(new LinkedHashSet<>());
+    // token de retoma -> lugar
+    private final Map<String, Seat> seats = new ConcurrentHashMap<>();
 
     private final AtomicBoolean started = new AtomicBoolean(false);
     private final AtomicBoolean finished = new AtomicBoolean(false);
-    private RoundState roundState;
+    private volatile RoundState roundState;
+    private final boolean actorMode;
+    // modo ACTOR: criada no primeiro join e fechada se a sala esvaziar antes do início (idle) ou no fim;
+    // só muda com o monitor da sessão
+    private volatile Mailbox<Object> actor;
+
+    public GameSession(String code, QuizCatalog.Entry quiz, GameRoom roomInfo, GameManager gm) {
+        this(code, quiz, roomInfo, gm, null);
+    }
 
-    public GameSession(String code, Quiz quiz, GameRoom roomInfo, GameManager gm) {
+    /** Com recovered != null a sessão continua o jogo lido do diário (ver GameManager.recoverGames). */
+    GameSession(String code, QuizCatalog.Entry quiz, GameRoom roomInfo, GameManager gm, GameJournal.Recovered recovered) {
         this.code = code;
         this.quiz = quiz;
         this.roomInfo = roomInfo;
         this.gm = gm;
-        List<Question> tmp = new ArrayList<>(quiz.questions);
-        Collections.shuffle(tmp, new Random());
-        int limit = Math.min(roomInfo.numQuestions(), tmp.size());
-        this.questions = new ArrayList<>(tmp.subList(0, limit));
-        roomInfo.snapshotTeams().forEach((team, players) -> scoreboard.put(team, 0));
+        this.timers = (gm != null) ? gm.timers() : TimerWheel.shared();
+        this.journal = (gm != null) ? gm.journal() : GameJournal.disabled();
+        if (recovered != null && recovered.order != null) {
+            for (int q : recovered.order) {
+                if (q < 0 || q >= quiz.questions().size()) {
+                    throw new IllegalArgumentException("Pergunta " + q + " não existe no quiz " + roomInfo.quizId());
+                }
+            }
+            this.order = recovered.order;
+        } else {
+            this.order = sample(quiz.questions().size(), roomInfo.numQuestions());
+            journal.questionOrder(code, order);
+        }
+        this.questions = new CompactQuestion[order.length];
+        for (int i = 0; i < order.length; i++) questions[i] = quiz.questions().get(order[i]);
+        // quiz partilhado: o mesmo payload (e hash) em todos os jogos; senão só as perguntas sorteadas,
+        // que mudam de jogo para jogo e por isso nunca estariam na cache do cliente (sem hash)
+        Quiz payload = quiz.shared() ? quiz.payload() : quiz.payloadOf(List.of(questions));
+        this.quizHash = quiz.shared() ? quiz.hash() : null;
+        this.quizPayload = new EncodedMessage(new QuizPayloadMessage(code, payload));
+        this.teams = new TeamIndex(Math.max(1, roomInfo.maxTeams()));
+        this.scoreboard = new AtomicIntegerArray(teams.capacity());
+        this.ranking = new TeamRanking(teams.capacity());
+        this.players = new PlayerIndex(teams.capacity(), roomInfo.playersPerTeam());
+        this.answers = new AnswerRegistry(players.capacity(), teams.capacity());
+        this.results = (gm != null && gm.archive() != null) ? new ResultsArchive.Batch() : null;
+        roomInfo.snapshotTeams().keySet().forEach(this::registerTeam);
+        if (recovered != null) {
+            recovered.members.values().forEach(this::registerTeam);
+            recovered.totals.forEach((team, pts) -> {
+                registerTeam(team);
+                int t = teams.indexOf(team);
+                if (t >= 0) {
+                    scoreboard.set(t, pts);
+                    ranking.update(t, pts);
+                }
+            });
+            this.resumeFrom = recovered.nextRound;
+            this.resumeAnswers = recovered.answers;
+        } else {
+            this.resumeFrom = 0;
+        }
+        this.actorMode = gm != null && gm.sessionMode() == Mode.ACTOR;
     }
 
     public String code() {
         return code;
     }
 
+    /** QuizPayloadMessage deste jogo, já codificado (os bytes são os mesmos para todas as ligações). */
+    public EncodedMessage quizPayload() {
+        return quizPayload;
+    }
+
+    /**
+     * Oferta do quiz para clientes com cache: só o hash do conteúdo. null se o quiz não for
+     * partilhado (amostra de um banco mapeado): esses clientes recebem logo o quizPayload.
+     */
+    public QuizOfferMessage quizOffer() {
+        return (quizHash != null) ? new QuizOfferMessage(code, quizHash) : null;
+    }
+
+    /**
+     * Primeiros passos de um Fisher-Yates sobre 0..total-1 sem criar o array: só as posições trocadas
+     * ficam num mapa. Custo proporcional a limit, seja qual for o tamanho do banco.
+     */
+    private static int[] sample(int total, int limit) {
+        int n = Math.max(0, Math.min(limit, total));
+        int[] out = new int[n];
+        Map<Integer, Integer> swapped = new HashMap<>(2 * n);
+        Random rnd = new Random();
+        for (int i = 0; i < n; i++) {
+            int j = i + rnd.nextInt(total - i);
+            out[i] = swapped.getOrDefault(j, j);
+            swapped.put(j, swapped.getOrDefault(i, i));
+        }
+        return out;
+    }
+
+    private CompactQuestion question(int i) {
+        return questions[i];
+    }
+
+    /** Equipa nova entra no placar e na classificação (com 0 pontos). */
+    private void registerTeam(String teamId) {
+        int i = teams.register(teamId);
+        if (i >= 0) ranking.update(i, 0);
+    }
+
     public void addClient(ClientEndpoint ce, String teamId, String username) {
-        clients.add(ce);
-        userTeam.put(username, teamId);
-        scoreboard.putIfAbsent(teamId, 0); // garantir que todas as equipas entram no placar
+        addClient(ce, teamId, username, false);
+    }
+
+    /**
+     * Com scoreDeltas o cliente recebe os placares seguintes como deltas; se o jogo já vai a meio,
+     * recebe primeiro o último placar completo da equipa.
+     */
+    public void addClient(ClientEndpoint ce, String teamId, String username, boolean scoreDeltas) {
+        String team = (teamId != null) ? teamId : "";
+        if (actorMode) openActor();
+        clients.put(ce, new Member(team, scoreDeltas));
+        registerTeam(teamId); // garantir que todas as equipas entram no placar
+        players.register(username, teams.indexOf(teamId));
+        if (scoreDeltas) sendScoreboardTo(ce);
         if (!started.get() && allPlayersConnected()) {
-            startGameLoop();
+            inSession(this::startGameLoop);
         } else if (started.get() && !finished.get()) {
             sendCurrentQuestionTo(ce);
+        } else if (finished.get()) {
+            ce.finish();
+        }
+    }
+
+    /** Lugar novo para um join aceite; o token vai no JoinResponse. */
+    Seat openSeat(String username, String teamId, boolean scoreDeltas) {
+        byte[] raw = new byte[16];
+        TOKENS.nextBytes(raw);
+        Seat seat = new Seat(Base64.getUrlEncoder().withoutPadding().encodeToString(raw), username,
+                (teamId != null) ? teamId : "", scoreDeltas);
+        seats.put(seat.token, seat);
+        return seat;
+    }
+
+    /** Join: o cliente entra no jogo pela ligação ce, que passa a ser a do lugar. */
+    void addClient(ClientEndpoint ce, Seat seat) {
+        synchronized (seat) {
+            seat.endpoint = ce;
+        }
+        addClient(ce, seat.team, seat.username, seat.scoreDeltas);
+    }
+
+    /**
+     * Retoma: o lugar do token passa para a ligação ce (se ainda estiver guardado). Se a ligação
+     * antiga ainda não tinha dado pela queda, é fechada agora. Devolve null se não houver lugar.
+     */
+    Seat claim(String token, ClientEndpoint ce) {
+        Seat seat = (token == null) ? null : seats.get(token);
+        if (seat == null || finished.get()) return null;
+        ClientEndpoint old;
+        synchronized (seat) {
+            if (seat.released) return null;
+            if (seat.expiry != null) {
+                seat.expiry.cancel();
+                seat.expiry = null;
+            }
+            old = seat.endpoint;
+            seat.endpoint = ce;
+        }
+        if (old != null) {
+            clients.remove(old);
+            old.disconnect();
+        }
+        return seat;
+    }
+
+    /** Depois de claim(): pergunta atual (se o jogo já começou) e último placar completo da equipa. */
+    void resumeClient(ClientEndpoint ce, Seat seat) {
+        addClient(ce, seat.team, seat.username, seat.scoreDeltas);
+        if (!seat.scoreDeltas) sendScoreboardTo(ce); // com deltas, addClient já o enviou
+    }
+
+    /** Índice da pergunta atual se o jogador já lhe respondeu, senão -1. */
+    int answeredQuestion(String username) {
+        int idx = currentIndex.get();
+        int player = players.idOf(username);
+        return (started.get() && player >= 0 && answers.answered(player, idx + 1)) ? idx : -1;
+    }
+
+    /**
+     * A ligação ce do lugar caiu. Devolve true se o lugar fica guardado (prazo de graça) ou se já foi
+     * retomado por outra ligação; false se deve ser libertado já (jogo no fim ou retoma desligada),
+     * como antes: GameManager.disconnectUser e removeClient.
+     */
+    boolean suspend(Seat seat, ClientEndpoint ce) {
+        if (ce != null) clients.remove(ce);
+        int grace = (gm != null) ? gm.resumeGraceSeconds() : 0;
+        synchronized (seat) {
+            if (seat.endpoint != ce) return true; // outra ligação já tem o lugar
+            seat.endpoint = null;
+            if (grace > 0 && !finished.get()) {
+                seat.expiry = timers.schedule(grace, TimeUnit.SECONDS, () -> offWheel(() -> expire(seat)));
+                return true;
+            }
+            seat.released = true;
+        }
+        seats.remove(seat.token);
+        return false;
+    }
+
+    /** Fim do prazo de graça sem retoma: o jogador sai do jogo. */
+    private void expire(Seat seat) {
+        synchronized (seat) {
+            if (seat.endpoint != null || seat.released) return;
+            seat.released = true;
+            if (seat.expiry != null) seat.expiry.cancel();
+        }
+        seats.remove(seat.token);
+        players.release(seat.username);
+        if (gm != null) gm.disconnectUser(code, seat.username);
+    }
+
+    /** Thread do ator para um jogo com jogadores; um jogo recuperado à espera deles não tem nenhuma. */
+    private synchronized void openActor() {
+        if (actor == null && !finished.get()) {
+            actor = new Mailbox<>("session-" + code, gm.runner(), ACTOR_BATCH, this::onMail);
         }
     }
 
+    /**
+     * A sala ficou vazia (GameManager.disconnectUser). Antes do início fecha-se a thread do ator: um jogo
+     * que não chega a começar deixava-a estacionada para sempre. O próximo join abre outra. Depois do
+     * início o jogo acaba sozinho (prazos das rondas) e endGame fecha-a.
+     */
+    synchronized void idle() {
+        // a sala é relida com o monitor: um join que entre entretanto já a conta (tryJoin antes de addClient)
+        if (actor == null || started.get() || roomInfo.totalPlayers() > 0) return;
+        actor.close();
+        actor = null;
+    }
+
+    /** Jogo removido do GameManager: a thread do ator termina; tarefas ainda na fila são descartadas. */
+    synchronized void close() {
+        finished.set(true);
+        if (actor != null) actor.close();
+    }
+
     public void removeClient(ClientEndpoint ce, String username) {
         clients.remove(ce);
-        userTeam.remove(username);
+        players.release(username);
+    }
+
+    /** Envia o último placar completo da equipa do cliente (join a meio do jogo ou ScoreboardSyncMessage). */
+    public void sendScoreboardTo(ClientEndpoint ce) {
+        Member m = clients.get(ce);
+        ScoreboardMessage board = (m != null) ? lastBoards.get(m.team()) : null;
+        if (board != null) ce.send(board);
     }
 
     public boolean isStarted() {
@@ -79,14 +378,14 @@ public class GameSession {
     }
 
     public Map<String,Integer> snapshotScoreboard() {
-        return new LinkedHashMap<>(scoreboard);
+        return teams.toMap(ScoreboardTracker.copy(scoreboard));
     }
 
-    public synchronized void sendCurrentQuestionTo(ClientEndpoint ce) {
+    public void sendCurrentQuestionTo(ClientEndpoint ce) {
         int idx = currentIndex.get();
-        if (idx >= questions.size()) return;
-        Question q = questions.get(idx);
-        QuestionMessage qm = new QuestionMessage(code, idx, questions.size(), q.question, q.options, q.points, 30);
+        if (idx >= order.length) return;
+        CompactQuestion q = question(idx);
+        QuestionMessage qm = new QuestionMessage(code, idx, order.length, q.text(), q.options(), q.points(), 30);
         ce.send(qm);
     }
 
@@ -94,74 +393,217 @@ public class GameSession {
      * Processa uma resposta; se todas as equipas estiverem prontas ou timeout expirou, avança ronda.
      */
     public void handleAnswer(AnswerMessage ans) {
+        if (!started.get() || finished.get()) return;
+        if (actorMode) {
+            Mailbox<Object> a = actor;
+            if (a != null) a.post(ans); // aplicada pela thread da sessão, no próximo lote
+            return;
+        }
+        applyAnswer(ans);
+    }
+
+    private void applyAnswer(AnswerMessage ans) {
         if (!started.get() || finished.get()) return;
         int idx = currentIndex.get();
-        if (idx >= questions.size()) return;
+        if (idx >= order.length) return;
         if (ans.questionIndex != idx) return; // resposta fora de sincronia
         RoundState rs = roundState;
         if (rs == null) return;
         rs.processAnswer(ans);
     }
 
-    private void broadcast(Message m) {
-        synchronized (clients) {
-            for (ClientEndpoint ce : clients) {
-                ce.send(m);
+    /** Lote da Mailbox (modo ACTOR): respostas e tarefas (prazos, início do jogo), por ordem de chegada. */
+    private void onMail(List<Object> batch) {
+        for (Object m : batch) {
+            if (m instanceof AnswerMessage ans) {
+                applyAnswer(ans);
+            } else if (m instanceof Runnable task) {
+                task.run();
             }
         }
     }
 
+    /**
+     * Corre a tarefa já (modo SHARED ou se já estamos na thread da sessão) ou publica-a na Mailbox.
+     * No modo SHARED um prazo que expira não fecha a ronda na thread da TimerWheel (offWheel).
+     */
+    private void inSession(Runnable task) {
+        Mailbox<Object> a = actor;
+        if (!actorMode) {
+            offWheel(task);
+        } else if (a == null) {
+            return; // sala vazia antes do início ou jogo removido: não há ator a quem entregar
+        } else if (a.inActor()) {
+            task.run();
+        } else {
+            a.post(task);
+        }
+    }
+
+    /** Vinda da thread da TimerWheel, a tarefa passa para uma thread do runner; senão corre já. */
+    private void offWheel(Runnable task) {
+        if (gm != null && timers.inWheelThread()) {
+            gm.runner().start("session-" + code + "-timer", task);
+        } else {
+            task.run();
+        }
+    }
+
+    /**
+     * Só põe a mensagem na fila de cada cliente: um socket lento não atrasa os restantes.
+     * A mensagem é codificada uma vez (por protocolo) e os bytes são partilhados por todos.
+     */
+    private void broadcast(Message m) {
+        EncodedMessage encoded = new EncodedMessage(m);
+        for (ClientEndpoint ce : clients.keySet()) {
+            ce.send(encoded);
+        }
+    }
+
+    /**
+     * Placar da ronda: as RANKING_TOP primeiras equipas mais a equipa de cada cliente, com a sua posição.
+     * Uma mensagem (codificada uma vez) por equipa, em vez do placar completo para todos; os clientes
+     * com scoreDeltas recebem só o que mudou desde o placar anterior da equipa.
+     */
+    private void broadcastScoreboard(RoundState rs) {
+        int[] total = rs.scores.snapshotTotal();
+        int[] round = rs.scores.snapshotRound();
+        int[] top = ranking.top(RANKING_TOP);
+        int totalTeams = ranking.size();
+        Map<String, ScoreboardMessage> boards = new HashMap<>();
+        Map<String, ScoreboardMessage> previous = new HashMap<>();
+        Map<String, EncodedMessage> fullByTeam = new HashMap<>();
+        Map<String, EncodedMessage> deltaByTeam = new HashMap<>();
+        for (Map.Entry<ClientEndpoint, Member> e : clients.entrySet()) {
+            Member m = e.getValue();
+            ScoreboardMessage board = boards.computeIfAbsent(m.team(), t -> {
+                ScoreboardMessage b = rs.buildScoreboardMessage(code, top, teams.indexOf(t), total, round, totalTeams);
+                ScoreboardMessage prev = lastBoards.put(t, b);
+                if (prev != null) previous.put(t, prev);
+                return b;
+            });
+            ScoreboardMessage prev = previous.get(m.team());
+            EncodedMessage out = (m.scoreDeltas() && prev != null)
+                    ? deltaByTeam.computeIfAbsent(m.team(), t -> new EncodedMessage(delta(prev, board)))
+                    : fullByTeam.computeIfAbsent(m.team(), t -> new EncodedMessage(board));
+            e.getKey().send(out);
+        }
+    }
+
+    /** Diferença entre dois placares completos da mesma equipa (ver ScoreboardMessage.baseVersion). */
+    static ScoreboardMessage delta(ScoreboardMessage prev, ScoreboardMessage next) {
+        Map<String, Integer> changed = new LinkedHashMap<>();
+        next.scoreboard.forEach((team, v) -> {
+            if (!v.equals(prev.scoreboard.get(team))) changed.put(team, v);
+        });
+        Map<String, Integer> scored = new LinkedHashMap<>();
+        next.roundPoints.forEach((team, v) -> {
+            if (v != 0) scored.put(team, v);
+        });
+        List<String> order = next.ranking.equals(prev.ranking) ? null : next.ranking;
+        ScoreboardMessage d = new ScoreboardMessage(next.gameCode, next.questionIndex, next.info,
+                changed, scored, order, next.rank, next.totalTeams);
+        d.version = next.version;
+        d.baseVersion = prev.version;
+        return d;
+    }
+
     private boolean allPlayersConnected() {
         return roomInfo.expectedTotalPlayers() > 0 && roomInfo.totalPlayers() >= roomInfo.expectedTotalPlayers();
     }
 
     private void startGameLoop() {
         if (!started.compareAndSet(false, true)) return;
-        new Thread(this::gameLoop, "game-session-" + code).start();
+        startRound(resumeFrom);
     }
 
-    private void gameLoop() {
-        for (int i = 0; i < questions.size(); i++) {
-            currentIndex.set(i);
-            Question q = questions.get(i);
-            boolean isTeamQuestion = (i % 2 == 1);
-            roundState = new RoundState(q, i, isTeamQuestion);
-            broadcast(new QuestionMessage(code, i, questions.size(), q.question, q.options, q.points, 30));
-            roundState.awaitRoundEnd();
-            broadcast(roundState.buildScoreboardMessage(code));
-            if (finished.get()) break;
+    private void startRound(int i) {
+        if (i >= order.length) {
+            endGame();
+            return;
+        }
+        currentIndex.set(i);
+        CompactQuestion q = question(i);
+        boolean isTeamQuestion = (i % 2 == 1);
+        RoundState rs = new RoundState(q, i, isTeamQuestion);
+        roundState = rs;
+        broadcast(new QuestionMessage(code, i, order.length, q.text(), q.options(), q.points(), 30));
+        List<String[]> pending = resumeAnswers;
+        if (pending != null && i == resumeFrom) {
+            // ronda interrompida pelo reinício: as respostas que já tinham chegado contam
+            resumeAnswers = null;
+            for (String[] a : pending) {
+                rs.processAnswer(new AnswerMessage(code, null, a[0], i, Integer.parseInt(a[1])));
+            }
         }
+    }
+
+    /**
+     * Chamado uma vez por ronda, por quem a fechou (última resposta ou TimerWheel).
+     */
+    private void onRoundEnd(RoundState rs) {
+        journal.roundClosed(code, rs.idx, snapshotScoreboard());
+        if (results != null) rs.archiveAnswers();
+        broadcastScoreboard(rs);
+        if (finished.get()) {
+            endGame();
+        } else {
+            startRound(rs.idx + 1);
+        }
+    }
+
+    private void endGame() {
         finished.set(true);
         broadcast(new GameOverMessage(code, "Fim do jogo"));
+        // avisar as ligações: fecham assim que o GameOverMessage sair, sem esperar por polling
+        for (ClientEndpoint ce : clients.keySet()) {
+            ce.finish();
+        }
+        seats.values().forEach(this::expire); // lugares guardados: já não há jogo para retomar
+        if (results != null) {
+            gm.archiveResults(code, roomInfo.quizId(), results);
+        }
         if (gm != null) {
-            gm.endGame(code);
+            gm.endGame(code); // fecha a sessão (e o ator)
         }
     }
 
     /**
-     * Estado de uma ronda/pergunta.
+     * Estado de uma ronda/pergunta. As respostas ficam no AnswerRegistry da sessão, marcadas com
+     * o número da ronda (idx + 1); aqui só há os contadores da ronda.
      */
     private class RoundState {
-        private final Question question;
+        private final CompactQuestion question;
         private final int idx;
+        private final int round;
         private final boolean teamQuestion;
         private final ModifiedCountdownLatch latch;
-        private final Map<String, TeamBarrier> teamBarriers = new HashMap<>();
+        private final TeamBarrier[] teamBarriers; // por índice de equipa; null se a equipa não joga esta ronda
+        private final int barrierCount;
+        private final AtomicInteger answered = new AtomicInteger(0);
+        private final AtomicInteger teamsFinished = new AtomicInteger(0);
         private final AtomicBoolean ended = new AtomicBoolean(false);
-        private final long deadline = System.currentTimeMillis() + 30_000;
-        private final ScoreboardTracker scores = new ScoreboardTracker(scoreboard);
-        private final AnswerRegistry answers;
+        private final TimerWheel.Timeout deadline;
+        private final ScoreboardTracker scores = new ScoreboardTracker(scoreboard, ranking);
+        private final long startNanos = System.nanoTime(); // latência das respostas
 
-        RoundState(Question q, int idx, boolean teamQuestion) {
+        RoundState(CompactQuestion q, int idx, boolean teamQuestion) {
             this.question = q;
             this.idx = idx;
+            this.round = idx + 1;
             this.teamQuestion = teamQuestion;
-            this.latch = new ModifiedCountdownLatch(2, 2, 30, expectedPlayersIndividual());
-            Map<String, Set<String>> snapshot = roomInfo.snapshotTeams();
-            this.answers = new AnswerRegistry(snapshot);
-            snapshot.forEach((team, users) ->
-                    teamBarriers.put(team, new TeamBarrier(roomInfo.playersPerTeam(), 30, () -> onTeamBarrierRelease(team)))
-            );
+            this.latch = new ModifiedCountdownLatch(2, 2, 30, expectedPlayersIndividual(), timers);
+            this.teamBarriers = new TeamBarrier[teams.capacity()];
+            int n = 0;
+            for (String team : roomInfo.snapshotTeams().keySet()) {
+                int t = teams.indexOf(team);
+                if (t < 0 || teamBarriers[t] != null) continue;
+                teamBarriers[t] = new TeamBarrier(roomInfo.playersPerTeam(), 30,
+                        () -> inSession(() -> onTeamBarrierRelease(t)), timers);
+                n++;
+            }
+            this.barrierCount = n;
+            this.deadline = timers.schedule(30, TimeUnit.SECONDS, () -> inSession(this::timeout));
         }
 
         private int expectedPlayersIndividual() {
@@ -170,212 +612,350 @@ public class GameSession {
 
         void processAnswer(AnswerMessage ans) {
             if (ended.get()) return;
-            if (!answers.registerUser(ans.username)) return; // já respondeu
+            int player = players.idOf(ans.username);
+            if (player < 0) return; // não entrou neste jogo
+            if (!answers.record(player, round, ans.option,
+                    (int) ((System.nanoTime() - startNanos) / 1_000_000))) return; // já respondeu
+            journal.answer(code, idx, ans.username, ans.option);
+            answered.incrementAndGet();
             if (teamQuestion) {
-                handleTeamAnswer(ans);
+                handleTeamAnswer(players.teamOf(player));
             } else {
-                handleIndividualAnswer(ans);
+                handleIndividualAnswer(player, ans.option);
             }
             checkEndCondition();
         }
 
-        private void handleIndividualAnswer(AnswerMessage ans) {
-            boolean correct = (ans.option == question.correct);
+        private void handleIndividualAnswer(int player, int option) {
+            boolean correct = (option == question.correct());
             int factor = latch.countdown();
             if (correct) {
-                int gained = question.points * factor;
-                scores.addPoints(ans.teamId, gained);
+                int gained = question.points() * factor;
+                answers.setPoints(player, gained);
+                scores.addPoints(players.teamOf(player), gained);
             }
         }
 
-        private void handleTeamAnswer(AnswerMessage ans) {
-            answers.recordTeamAnswer(ans);
-            try {
-                teamBarriers.get(ans.teamId).await();
-            } catch (InterruptedException ignored) {
+        /** Não bloqueia: a última chegada da equipa (ou o prazo) corre onTeamBarrierRelease. */
+        private void handleTeamAnswer(int team) {
+            TeamBarrier barrier = teamBarriers[team];
+            if (barrier != null) {
+                barrier.arrive();
             }
         }
 
-        private void evaluateTeam(String teamId) {
-            List<AnswerMessage> teamList = answers.teamAnswers(teamId);
-            if (teamList == null || teamList.isEmpty()) return;
-            boolean allCorrect = teamList.size() >= roomInfo.playersPerTeam();
+        private void evaluateTeam(int team) {
+            // nas rondas individuais as barreiras só servem para o prazo; as respostas já pontuaram
+            if (!teamQuestion) return;
+            int count = 0;
+            boolean allCorrect = true;
             int best = 0;
-            for (AnswerMessage am : teamList) {
-                boolean correct = (am.option == question.correct);
+            for (int p = players.firstOf(team), end = p + players.perTeam(); p < end; p++) {
+                if (!answers.answered(p, round)) continue;
+                count++;
+                boolean correct = (answers.option(p) == question.correct());
                 if (!correct) allCorrect = false;
-                if (correct) best = Math.max(best, question.points);
+                if (correct) best = Math.max(best, question.points());
+            }
+            if (count == 0) return;
+            allCorrect = allCorrect && count >= roomInfo.playersPerTeam();
+            int gained = allCorrect ? question.points() * 2 : best;
+            scores.addPoints(team, gained);
+            if (results != null) {
+                // pergunta de equipa: cada resposta fica com os pontos que a equipa ganhou
+                for (int p = players.firstOf(team), end = p + players.perTeam(); p < end; p++) {
+                    if (answers.answered(p, round)) answers.setPoints(p, gained);
+                }
             }
-            int gained = allCorrect ? question.points * 2 : best;
-            scores.addPoints(teamId, gained);
         }
 
-        void awaitRoundEnd() {
-            if (teamQuestion) {
-                waitTeamsOrTimeout();
-            } else {
-                waitIndividualsOrTimeout();
+        /** Uma linha por resposta desta ronda no lote do arquivo (só no fecho da ronda). */
+        void archiveAnswers() {
+            int questionId = order[idx];
+            for (int p = 0; p < players.capacity(); p++) {
+                if (!answers.answered(p, round)) continue;
+                String name = players.nameOf(p);
+                int option = answers.option(p);
+                results.add(questionId, (name != null) ? name : "?", teams.name(players.teamOf(p)), option,
+                        option == question.correct(), answers.points(p), answers.latencyMs(p));
             }
         }
 
+        /** Prazo da ronda (corre na thread da TimerWheel). */
         private void timeout() {
+            if (ended.get()) return;
             latch.expire();
-            teamBarriers.values().forEach(TeamBarrier::release);
-            answers.teamIds().forEach(this::evaluateTeam);
-            ended.set(true);
-        }
-
-        private void waitIndividualsOrTimeout() {
-            try {
-                latch.await();
-            } catch (InterruptedException ignored) {
-            }
-            if (!latch.timedOut()) {
-                ended.set(true);
-            } else {
-                timeout();
+            // cada equipa é avaliada uma única vez (markEvaluated); avalia-se aqui mesmo que a ação da
+            // barreira tenha ficado na Mailbox (prazo da barreira a disparar ao mesmo tempo), para que
+            // os pontos entrem no placar desta ronda
+            for (int t = 0; t < teamBarriers.length; t++) {
+                if (teamBarriers[t] == null) continue;
+                teamBarriers[t].release();
+                onTeamBarrierRelease(t);
             }
+            endRound();
         }
 
-        private void waitTeamsOrTimeout() {
-            while (true) {
-                if (ended.get()) break;
-                if (System.currentTimeMillis() >= deadline) {
-                    timeout();
-                    break;
-                }
-                try { Thread.sleep(50); } catch (InterruptedException ignored) {}
-            }
+        private void endRound() {
+            if (!ended.compareAndSet(false, true)) return;
+            deadline.cancel();
+            onRoundEnd(this);
         }
 
         private void checkEndCondition() {
             if (teamQuestion) {
-                if (answers.allTeamsDone()) {
-                    ended.set(true);
+                if (allTeamsDone()) {
+                    endRound();
                 }
             } else {
-                if (answers.answeredCount() >= expectedPlayersIndividual()) {
-                    ended.set(true);
+                if (answered.get() >= expectedPlayersIndividual()) {
+                    endRound();
                 }
             }
         }
 
-        private void onTeamBarrierRelease(String teamId) {
-            if (answers.markEvaluated(teamId)) {
-                evaluateTeam(teamId);
-                if (answers.allTeamsDone()) {
-                    ended.set(true);
+        private boolean allTeamsDone() {
+            return teamsFinished.get() >= barrierCount;
+        }
+
+        private void onTeamBarrierRelease(int team) {
+            if (answers.markEvaluated(team, round)) {
+                teamsFinished.incrementAndGet();
+                evaluateTeam(team);
+                if (allTeamsDone()) {
+                    endRound();
                 }
             }
         }
 
-        ScoreboardMessage buildScoreboardMessage(String gameCode) {
-            return new ScoreboardMessage(gameCode, idx, "Fim da ronda",
-                    scores.snapshotTotal(),
-                    scores.snapshotRound(),
-                    scores.ranking());
+        ScoreboardMessage buildScoreboardMessage(String gameCode, int[] top, int own,
+                                                 int[] total, int[] round, int totalTeams) {
+            Map<String, Integer> totals = new LinkedHashMap<>();
+            Map<String, Integer> points = new LinkedHashMap<>();
+            List<String> names = new ArrayList<>(top.length);
+            for (int i : top) {
+                names.add(teams.name(i));
+                totals.put(teams.name(i), total[i]);
+                points.put(teams.name(i), round[i]);
+            }
+            int rank = 0;
+            if (own >= 0) {
+                totals.putIfAbsent(teams.name(own), total[own]);
+                points.putIfAbsent(teams.name(own), round[own]);
+                rank = ranking.rank(own);
+            }
+            ScoreboardMessage board = new ScoreboardMessage(gameCode, idx, "Fim da ronda", totals, points, names,
+                    rank, totalTeams);
+            board.version = idx + 1;
+            return board;
         }
     }
 
     /**
-     * Componente de placar: gere pontos acumulados e da ronda.
+     * Componente de placar: pontos acumulados e da ronda em arrays indexados pela equipa.
+     * addPoints não aloca nada e reposiciona a equipa na classificação; os snapshots são cópias dos arrays.
      */
     private static class ScoreboardTracker {
-        private final Map<String,Integer> totalScore;
-        private final Map<String,Integer> roundScore = new ConcurrentHashMap<>();
+        private final AtomicIntegerArray totalScore;
+        private final AtomicIntegerArray roundScore;
+        private final TeamRanking ranking;
 
-        ScoreboardTracker(Map<String,Integer> totalScore) {
+        ScoreboardTracker(AtomicIntegerArray totalScore, TeamRanking ranking) {
             this.totalScore = totalScore;
+            this.roundScore = new AtomicIntegerArray(totalScore.length());
+            this.ranking = ranking;
         }
 
-        void addPoints(String teamId, int points) {
-            totalScore.merge(teamId, points, Integer::sum);
-            roundScore.merge(teamId, points, Integer::sum);
+        void addPoints(int team, int points) {
+            totalScore.addAndGet(team, points);
+            roundScore.addAndGet(team, points);
+            ranking.add(team, points);
         }
 
-        Map<String,Integer> snapshotTotal() {
-            return new HashMap<>(totalScore);
+        int[] snapshotTotal() {
+            return copy(totalScore);
         }
 
-        Map<String,Integer> snapshotRound() {
-            return new HashMap<>(roundScore);
+        int[] snapshotRound() {
+            return copy(roundScore);
         }
 
-        List<String> ranking() {
-            return totalScore.entrySet().stream()
-                    .sorted((a,b) -> Integer.compare(b.getValue(), a.getValue()))
-                    .map(Map.Entry::getKey)
-                    .toList();
+        static int[] copy(AtomicIntegerArray a) {
+            int[] out = new int[a.length()];
+            for (int i = 0; i < out.length; i++) out[i] = a.get(i);
+            return out;
         }
     }
 
     /**
-     * Componente de respostas: controla respostas únicas, por equipa e conclusão das equipas.
+     * Equipas -> índices densos 0..n-1, por ordem de entrada (no máximo maxTeams da sala).
+     * O registo só acontece no join; no caminho das respostas é só uma leitura.
      */
-    private static class AnswerRegistry {
-        private final Set<String> answeredUsers = ConcurrentHashMap.newKeySet();
-        private final Map<String, List<AnswerMessage>> answersByTeam = new ConcurrentHashMap<>();
-        private final Set<String> evaluatedTeams = ConcurrentHashMap.newKeySet();
-        private final AtomicInteger teamsFinished = new AtomicInteger(0);
-        private final int totalTeams;
+    private static class TeamIndex {
+        private final Map<String, Integer> index = new ConcurrentHashMap<>();
+        private final String[] names;
+        private volatile int size;
 
-        AnswerRegistry(Map<String, Set<String>> snapshotTeams) {
-            this.totalTeams = snapshotTeams.size();
-            snapshotTeams.keySet().forEach(team -> answersByTeam.put(team, Collections.synchronizedList(new ArrayList<>())));
+        TeamIndex(int capacity) {
+            this.names = new String[capacity];
         }
 
-        boolean registerUser(String username) {
-            return answeredUsers.add(username);
+        int capacity() {
+            return names.length;
         }
 
-        int answeredCount() {
-            return answeredUsers.size();
+        /** Devolve o índice atribuído, ou -1 se a equipa já existia (ou não há lugar). */
+        synchronized int register(String team) {
+            if (team == null || index.containsKey(team) || size >= names.length) return -1;
+            int i = size;
+            names[i] = team;
+            index.put(team, i);
+            size = i + 1; // publica names[i] para quem lê size
+            return i;
         }
 
-        void recordTeamAnswer(AnswerMessage ans) {
-            List<AnswerMessage> teamList = answersByTeam.get(ans.teamId);
-            if (teamList != null) {
-                teamList.add(ans);
-            }
+        String name(int i) {
+            return names[i];
         }
 
-        List<AnswerMessage> teamAnswers(String teamId) {
-            return answersByTeam.get(teamId);
+        int indexOf(String team) {
+            Integer i = (team == null) ? null : index.get(team);
+            return (i == null) ? -1 : i;
         }
 
-        boolean markEvaluated(String teamId) {
-            boolean first = evaluatedTeams.add(teamId);
-            if (first) {
-                teamsFinished.incrementAndGet();
+        Map<String, Integer> toMap(int[] values) {
+            int n = size;
+            Map<String, Integer> m = new LinkedHashMap<>();
+            for (int i = 0; i < n; i++) m.put(names[i], values[i]);
+            return m;
+        }
+    }
+
+    /**
+     * Jogadores -> ids densos: equipa * playersPerTeam + lugar na equipa, por isso a equipa de um id
+     * é uma divisão e os jogadores de uma equipa são ids seguidos. O lugar de quem sai fica livre
+     * para quem entrar depois na mesma equipa.
+     */
+    private static class PlayerIndex {
+        private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+        private final String[] slots;
+        private final int perTeam;
+
+        PlayerIndex(int teams, int perTeam) {
+            this.perTeam = Math.max(1, perTeam);
+            this.slots = new String[teams * this.perTeam];
+        }
+
+        int capacity() {
+            return slots.length;
+        }
+
+        int perTeam() {
+            return perTeam;
+        }
+
+        synchronized int register(String username, int team) {
+            if (username == null || team < 0) return -1;
+            Integer id = ids.get(username);
+            if (id != null) return id;
+            for (int i = firstOf(team), end = i + perTeam; i < end; i++) {
+                if (slots[i] == null) {
+                    slots[i] = username;
+                    ids.put(username, i);
+                    return i;
+                }
             }
-            return first;
+            return -1;
+        }
+
+        synchronized void release(String username) {
+            Integer id = (username == null) ? null : ids.remove(username);
+            if (id != null) slots[id] = null;
+        }
+
+        int idOf(String username) {
+            Integer id = (username == null) ? null : ids.get(username);
+            return (id == null) ? -1 : id;
         }
 
-        boolean allTeamsDone() {
-            return teamsFinished.get() >= totalTeams;
+        int teamOf(int player) {
+            return player / perTeam;
         }
 
-        Set<String> teamIds() {
-            return answersByTeam.keySet();
+        /** Username do jogador (null se já saiu do jogo). */
+        String nameOf(int player) {
+            return slots[player];
+        }
+
+        int firstOf(int team) {
+            return team * perTeam;
         }
     }
 
     /**
-     * Guardar os streams do cliente para broadcast.
+     * Componente de respostas, por ids densos e sem alocar: cada jogador tem uma palavra
+     * (ronda << 32 | opção) escrita por CAS só se ainda não respondeu nessa ronda, e cada equipa a
+     * última ronda em que foi avaliada. Nada é limpo entre rondas: o número da ronda torna as
+     * entradas anteriores obsoletas, mesmo que uma resposta atrasada da ronda anterior ainda escreva.
      */
-    public static class ClientEndpoint {
-        private final ObjectOutputStream out;
+    private static class AnswerRegistry {
+        private final AtomicLongArray answers;
+        private final AtomicIntegerArray evaluated;
+        private final AtomicIntegerArray latency; // ms desde o início da ronda (arquivo de resultados)
+        private final AtomicIntegerArray points;  // pontos que a resposta valeu (arquivo de resultados)
 
-        public ClientEndpoint(ObjectOutputStream out) {
-            this.out = out;
+        AnswerRegistry(int players, int teams) {
+            this.answers = new AtomicLongArray(players);
+            this.evaluated = new AtomicIntegerArray(teams);
+            this.latency = new AtomicIntegerArray(players);
+            this.points = new AtomicIntegerArray(players);
         }
 
-        public void send(Message m) {
-            try {
-                out.writeObject(m);
-                out.flush();
-            } catch (IOException ignored) {
+        /** Regista a resposta; false se o jogador já respondeu nesta ronda (ou numa posterior). */
+        boolean record(int player, int round, int option, int latencyMs) {
+            long next = ((long) round << 32) | (option & 0xFFFF_FFFFL);
+            while (true) {
+                long cur = answers.get(player);
+                if (roundOf(cur) >= round) return false;
+                if (answers.compareAndSet(player, cur, next)) {
+                    latency.set(player, latencyMs);
+                    points.set(player, 0);
+                    return true;
+                }
             }
         }
+
+        void setPoints(int player, int pts) {
+            points.set(player, pts);
+        }
+
+        int points(int player) {
+            return points.get(player);
+        }
+
+        int latencyMs(int player) {
+            return latency.get(player);
+        }
+
+        boolean answered(int player, int round) {
+            return roundOf(answers.get(player)) == round;
+        }
+
+        int option(int player) {
+            return (int) answers.get(player);
+        }
+
+        /** true só para a primeira avaliação da equipa nesta ronda. */
+        boolean markEvaluated(int team, int round) {
+            while (true) {
+                int cur = evaluated.get(team);
+                if (cur >= round) return false;
+                if (evaluated.compareAndSet(team, cur, round)) return true;
+            }
+        }
+
+        private static int roundOf(long word) {
+            return (int) (word >>> 32);
+        }
     }
 }
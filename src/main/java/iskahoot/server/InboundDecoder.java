@@ -0,0 +1,15 @@
+package iskahoot.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Descodificação incremental das mensagens de um cliente no motor NIO (os bytes chegam aos bocados).
+ */
+interface InboundDecoder {
+
+    void feed(ByteBuffer src) throws IOException;
+
+    /** Próxima mensagem completa, ou null se ainda faltarem bytes. */
+    Object next() throws IOException;
+}
@@ -0,0 +1,362 @@
+package iskahoot.server;
+
+import iskahoot.net.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Ligação de um cliente no motor NIO: faz o mesmo que o ClientHandler (join + respostas),
+ * mas guiada por eventos do Selector. O protocolo (stream de objetos ou binário) é escolhido
+ * pelos primeiros 4 bytes do cliente. Depois do join, as mensagens do jogo passam pela fila do
+ * ClientEndpoint, que o event loop despeja quando o socket aceita dados.
+ * Um ResumeMessage no lugar do join retoma o lugar guardado de um jogador que perdeu a ligação.
+ */
+final class NioConnection {
+
+    private final SocketChannel channel;
+    private final NioServer.EventLoop loop;
+    private final GameManager gm;
+    private final ClientEndpoint.Settings outboundSettings;
+
+    private final ByteBuffer readBuf = ByteBuffer.allocate(4096);
+    private final byte[] head = new byte[BinaryCodec.MAGIC.length];
+    private int headLen;
+    private InboundDecoder decoder; // null até se conhecer o protocolo
+    private boolean binary;
+
+    // saída (protocolo antigo): ObjectOutputStream próprio (handles são por ligação) sobre um buffer em memória
+    private final ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+    private ObjectOutputStream encoder;
+
+    // bytes do handshake (antes de existir endpoint) e trama a meio de ser escrita
+    private final Queue<ByteBuffer> handshake = new ArrayDeque<>();
+    private ByteBuffer current;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    private boolean closeAfterFlush = false;
+    private boolean closed = false;
+    private boolean joining = false; // join entregue ao GameManager, à espera da resposta
+    private SelectionKey key;
+
+    private String currentGame;
+    private String currentUser;
+    private String currentTeam;
+    private GameSession session;
+    private ClientEndpoint endpoint;
+    private GameSession.Seat seat;
+
+    NioConnection(SocketChannel channel, NioServer.EventLoop loop, GameManager gm,
+                  ClientEndpoint.Settings outboundSettings) {
+        this.channel = channel;
+        this.loop = loop;
+        this.gm = gm;
+        this.outboundSettings = outboundSettings;
+    }
+
+    /** Corre no event loop. */
+    void register() {
+        try {
+            key = channel.register(loop.selector(), SelectionKey.OP_READ, this);
+        } catch (IOException e) {
+            close();
+        }
+    }
+
+    /** Corre no event loop quando o Selector sinaliza a chave. */
+    void handle(SelectionKey k) {
+        if (!k.isValid()) return;
+        if (k.isReadable()) {
+            onReadable();
+        }
+        if (k.isValid() && k.isWritable()) {
+            flush();
+        }
+    }
+
+    private void onReadable() {
+        try {
+            int n;
+            while ((n = channel.read(readBuf)) > 0) {
+                readBuf.flip();
+                if (decoder == null) {
+                    int take = Math.min(head.length - headLen, readBuf.remaining());
+                    readBuf.get(head, headLen, take);
+                    headLen += take;
+                    if (headLen == head.length) {
+                        chooseProtocol();
+                    }
+                }
+                if (decoder != null) {
+                    decoder.feed(readBuf);
+                }
+                readBuf.clear();
+            }
+            drainDecoded();
+            if (n < 0) {
+                close();
+            }
+        } catch (IOException e) {
+            System.out.println("Erro no cliente: " + e.getMessage());
+            close();
+        }
+    }
+
+    private void drainDecoded() throws IOException {
+        Object obj;
+        while (decoder != null && !closed && !joining && (obj = decoder.next()) != null) {
+            dispatch(obj);
+        }
+    }
+
+    private void chooseProtocol() throws IOException {
+        if (Arrays.equals(head, BinaryCodec.MAGIC)) {
+            binary = true;
+            decoder = new BinaryFrameDecoder();
+            enqueue(BinaryCodec.MAGIC); // confirmar protocolo binário
+        } else {
+            decoder = new ObjectStreamDecoder();
+            decoder.feed(ByteBuffer.wrap(head));
+            encoder = new ObjectOutputStream(encoded);
+            encoder.flush();
+            enqueue(encoded.toByteArray()); // cabeçalho do stream
+            encoded.reset();
+        }
+    }
+
+    private void dispatch(Object obj) throws IOException {
+        if (closeAfterFlush) return; // join recusado
+        if (!(obj instanceof Message msg)) {
+            System.out.println("Mensagem desconhecida de " + remote());
+            close();
+            return;
+        }
+        if (session == null) {
+            if (msg instanceof JoinMessage join) {
+                handleJoin(join);
+            } else if (msg instanceof ResumeMessage resume) {
+                handleResume(resume);
+            } else {
+                System.out.println("Tipo de mensagem não suportado: " + msg.getClass());
+                close();
+            }
+        } else if (msg instanceof AnswerMessage ans) {
+            session.handleAnswer(ans); // não bloqueia (TeamBarrier.arrive), corre no próprio event loop
+        } else if (msg instanceof QuizRequestMessage) {
+            endpoint.send(session.quizPayload()); // cache do cliente falhou
+        } else if (msg instanceof ScoreboardSyncMessage) {
+            session.sendScoreboardTo(endpoint); // o cliente perdeu a base do delta
+        }
+    }
+
+    /**
+     * Com o coordenador de usernames a reserva é uma ida e volta pela rede: o GameManager faz o join
+     * num worker e a resposta volta ao event loop (joined). Até lá as mensagens seguintes ficam no
+     * descodificador.
+     */
+    private void handleJoin(JoinMessage join) {
+        System.out.println("Pedido JOIN -> jogo=" + join.gameCode +
+                ", equipa=" + join.teamId +
+                ", user=" + join.username +
+                (binary ? " (binário)" : ""));
+        joining = true;
+        gm.handleJoin(join, resp -> loop.execute(guarded(() -> joined(join, resp))));
+    }
+
+    /** Corre no event loop com a resposta do GameManager. */
+    private void joined(JoinMessage join, JoinResponse resp) {
+        joining = false;
+        if (closed) {
+            // a ligação caiu durante a reserva: ninguém vai usar o lugar
+            if (resp.ok) gm.disconnectUser(join.gameCode, join.username);
+            return;
+        }
+        try {
+            finishJoin(join, resp);
+            drainDecoded();
+        } catch (IOException e) {
+            System.out.println("Erro no cliente: " + e.getMessage());
+            close();
+        }
+    }
+
+    private void finishJoin(JoinMessage join, JoinResponse resp) throws IOException {
+        if (!resp.ok) {
+            enqueue(encode(resp));
+            closeAfterFlush = true;
+            return;
+        }
+        currentGame = join.gameCode;
+        currentUser = join.username;
+        currentTeam = join.teamId;
+        GameRoom room = gm.getRoom(currentGame);
+        session = gm.getOrCreateSession(currentGame, room);
+        seat = session.openSeat(currentUser, currentTeam, join.scoreDeltas);
+        resp.resumeToken = seat.token;
+
+        enqueue(encode(resp));
+        QuizOfferMessage offer = join.quizCache ? session.quizOffer() : null;
+        if (offer != null) {
+            enqueue(encode(offer));
+        } else {
+            // bytes partilhados por todos os joins do jogo (no stream antigo começam por TC_RESET)
+            handshake.add(session.quizPayload().buffer(binary));
+            scheduleFlush();
+        }
+        encoder = null; // o resto segue pelo endpoint, já codificado (e partilhado) por EncodedMessage
+        endpoint = newEndpoint();
+        session.addClient(endpoint, seat);
+    }
+
+    /** Retoma num único pedido/resposta: ResumeResponse, depois a pergunta atual e o placar. */
+    private void handleResume(ResumeMessage resume) throws IOException {
+        GameSession s = gm.getSession(resume.gameCode);
+        ClientEndpoint ce = newEndpoint();
+        GameSession.Seat claimed = (s != null) ? s.claim(resume.token, ce) : null;
+        if (claimed == null) {
+            ce.close();
+            enqueue(encode(new ResumeResponse(false, "Lugar expirado ou desconhecido", null, null, -1)));
+            closeAfterFlush = true;
+            return;
+        }
+        System.out.println("Retoma -> jogo=" + resume.gameCode + ", user=" + claimed.username);
+        session = s;
+        seat = claimed;
+        currentGame = resume.gameCode;
+        currentUser = claimed.username;
+        currentTeam = claimed.team;
+        enqueue(encode(new ResumeResponse(true, "Lugar retomado", claimed.team, claimed.username,
+                session.answeredQuestion(claimed.username))));
+        encoder = null;
+        endpoint = ce;
+        session.resumeClient(endpoint, seat);
+    }
+
+    private ClientEndpoint newEndpoint() {
+        return new ClientEndpoint(outboundSettings.capacity(), outboundSettings.policy(),
+                this::scheduleFlush, () -> loop.execute(guarded(this::close)));
+    }
+
+    /**
+     * Codifica as mensagens do handshake no formato da ligação; só corre no event loop.
+     */
+    private byte[] encode(Message m) throws IOException {
+        if (binary) {
+            return BinaryCodec.frame(m);
+        }
+        encoder.writeObject(m);
+        encoder.flush();
+        byte[] bytes = encoded.toByteArray();
+        encoded.reset();
+        return bytes;
+    }
+
+    private void enqueue(byte[] bytes) {
+        handshake.add(ByteBuffer.wrap(bytes));
+        scheduleFlush();
+    }
+
+    /** Pode ser chamado de qualquer thread (ex.: o endpoint acordado pelo game loop). */
+    private void scheduleFlush() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            loop.execute(guarded(this::flush));
+        }
+    }
+
+    private ByteBuffer nextBuffer() throws IOException {
+        ByteBuffer b = handshake.poll();
+        if (b != null || endpoint == null) return b;
+        EncodedMessage m = endpoint.poll();
+        return (m == null) ? null : m.buffer(binary); // vista sobre os bytes partilhados do broadcast
+    }
+
+    private boolean hasPending() {
+        return !handshake.isEmpty() || (endpoint != null && !endpoint.isEmpty());
+    }
+
+    /** Corre no event loop: escreve o que o socket aceitar e pede OP_WRITE para o resto. */
+    private void flush() {
+        if (closed) return;
+        try {
+            while (true) {
+                if (current == null) current = nextBuffer();
+                while (current != null) {
+                    channel.write(current);
+                    if (current.hasRemaining()) {
+                        key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                        return;
+                    }
+                    current = nextBuffer();
+                }
+                key.interestOps(SelectionKey.OP_READ);
+                flushScheduled.set(false);
+                if (!hasPending()) {
+                    // join recusado, ou fim do jogo (GameSession chamou endpoint.finish())
+                    if (closeAfterFlush || (endpoint != null && endpoint.finishedAndDrained())) close();
+                    return;
+                }
+                if (!flushScheduled.compareAndSet(false, true)) return; // outro flush já agendado
+            }
+        } catch (IOException e) {
+            close();
+        }
+    }
+
+    /**
+     * Erro inesperado (bug ou estado inconsistente) ao tratar esta ligação: fecha só esta ligação e
+     * deixa o event loop continuar com as outras.
+     */
+    void abort(RuntimeException e) {
+        System.out.println("Erro inesperado na ligação " + remote() + ": " + e);
+        try {
+            close();
+        } catch (RuntimeException again) {
+            System.out.println("Erro a fechar a ligação: " + again);
+        }
+    }
+
+    /** Tarefa para o event loop que, se falhar, só fecha esta ligação. */
+    Runnable guarded(Runnable task) {
+        return () -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                abort(e);
+            }
+        };
+    }
+
+    private void close() {
+        if (closed) return;
+        closed = true;
+        if (key != null) key.cancel();
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+        // com retoma o lugar fica guardado; senão (ou no fim do jogo) o jogador sai como antes
+        boolean kept = session != null && seat != null && session.suspend(seat, endpoint);
+        if (!kept) {
+            gm.disconnectUser(currentGame, currentUser);
+            if (session != null && endpoint != null) {
+                session.removeClient(endpoint, currentUser);
+            }
+        }
+        if (endpoint != null) endpoint.close();
+    }
+
+    private String remote() {
+        try {
+            return String.valueOf(channel.getRemoteAddress());
+        } catch (IOException e) {
+            return "?";
+        }
+    }
+}
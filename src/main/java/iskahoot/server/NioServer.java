@@ -0,0 +1,115 @@
+package iskahoot.server;
+
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Motor de rede não-bloqueante: aceita ligações e distribui-as por um número fixo de event loops
+ * (um Selector cada), que fazem o handshake de join e a leitura das respostas.
+ */
+public class NioServer {
+
+    private final int port;
+    private final GameManager gm;
+    private final EventLoop[] loops;
+    private final ClientEndpoint.Settings outbound;
+
+    public NioServer(int port, GameManager gm, int nLoops, ClientEndpoint.Settings outbound) throws IOException {
+        this.port = port;
+        this.gm = gm;
+        this.outbound = outbound;
+        this.loops = new EventLoop[Math.max(1, nLoops)];
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new EventLoop();
+        }
+    }
+
+    /**
+     * Arranca os event loops e fica a aceitar ligações na thread atual.
+     */
+    public void run() throws IOException {
+        for (int i = 0; i < loops.length; i++) {
+            new Thread(loops[i], "nio-loop-" + i).start();
+        }
+        try (ServerSocketChannel ssc = ServerSocketChannel.open()) {
+            ssc.bind(new InetSocketAddress(port), 1024);
+            System.out.println("Servidor (NIO, " + loops.length + " event loops) a correr no porto " + port);
+            int next = 0;
+            while (true) {
+                SocketChannel ch = ssc.accept();
+                ch.configureBlocking(false);
+                ch.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                System.out.println("Cliente ligado: " + ch.getRemoteAddress());
+                EventLoop loop = loops[next];
+                next = (next + 1) % loops.length;
+                NioConnection conn = new NioConnection(ch, loop, gm, outbound);
+                loop.execute(conn.guarded(conn::register));
+            }
+        }
+    }
+
+    /**
+     * Thread com um Selector: trata leituras/escritas das ligações registadas e corre tarefas
+     * pedidas por outras threads (registo de ligações, escritas pendentes).
+     * Uma RuntimeException ao tratar uma ligação fecha só essa ligação; o loop nunca termina por ela.
+     */
+    static final class EventLoop implements Runnable {
+        private final Selector selector;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private volatile Thread thread;
+
+        EventLoop() throws IOException {
+            this.selector = Selector.open();
+        }
+
+        Selector selector() {
+            return selector;
+        }
+
+        void execute(Runnable task) {
+            tasks.add(task);
+            if (Thread.currentThread() != thread) {
+                selector.wakeup();
+            }
+        }
+
+        @Override
+        public void run() {
+            thread = Thread.currentThread();
+            while (true) {
+                try {
+                    selector.select();
+                    Set<SelectionKey> keys = selector.selectedKeys();
+                    for (SelectionKey key : keys) {
+                        NioConnection conn = (NioConnection) key.attachment();
+                        try {
+                            conn.handle(key);
+                        } catch (RuntimeException e) {
+                            conn.abort(e); // só esta ligação; o loop continua
+                        }
+                    }
+                    keys.clear();
+                    Runnable task;
+                    while ((task = tasks.poll()) != null) {
+                        try {
+                            task.run();
+                        } catch (RuntimeException e) {
+                            System.out.println("Erro numa tarefa do event loop: " + e);
+                        }
+                    }
+                } catch (IOException e) {
+                    System.out.println("Erro no event loop: " + e.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,391 @@
+package iskahoot.server;
+
+import iskahoot.net.BinaryCodec;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.io.ObjectStreamConstants.*;
+
+/**
+ * Descodificador incremental do protocolo antigo (ObjectOutputStream) para o motor NIO, sem threads.
+ * O ObjectInputStream não pode parar a meio de um objeto e continuar depois, nem recomeçar só com o
+ * cabeçalho (os handles referem classes e strings de objetos anteriores). Por isso o Scanner percorre
+ * a gramática da serialização sobre os bytes recebidos, sem criar objetos, só para saber onde acaba o
+ * próximo objeto; só então o ObjectInputStream da ligação (um só, criado com o cabeçalho) o lê, sem
+ * nunca ficar à espera de bytes. O buffer guarda só os bytes ainda por ler, no máximo MAX_BUFFERED.
+ */
+final class ObjectStreamDecoder implements InboundDecoder {
+
+    /** Bytes recebidos e ainda por ler; um cliente que envie mais do que isto é desligado. */
+    static final int MAX_BUFFERED = BinaryCodec.MAX_FRAME;
+
+    private static final int HEADER = 4; // STREAM_MAGIC + STREAM_VERSION
+
+    private byte[] buf = new byte[512];
+    private int start; // primeiro byte por ler
+    private int size;  // fim dos dados recebidos
+    private int limit; // fim do que o ObjectInputStream pode ler (o objeto já verificado)
+    private int wanted; // bytes por ler abaixo dos quais nem vale a pena voltar a percorrer
+
+    private final Scanner scanner = new Scanner();
+    private ObjectInputStream in; // null até chegar o cabeçalho do stream
+
+    /** Vista sobre buf[start, limit): o ObjectInputStream nunca lê além do objeto verificado. */
+    private final InputStream source = new InputStream() {
+        @Override
+        public int read() {
+            return (start < limit) ? buf[start++] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) return 0;
+            if (start == limit) return -1;
+            int n = Math.min(len, limit - start);
+            System.arraycopy(buf, start, b, off, n);
+            start += n;
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return limit - start;
+        }
+    };
+
+    @Override
+    public void feed(ByteBuffer src) throws IOException {
+        int n = src.remaining();
+        if (size - start + n > MAX_BUFFERED) {
+            throw new StreamCorruptedException("Demasiados bytes por ler (" + (size - start + n) + ")");
+        }
+        if (size + n > buf.length) {
+            // compactar antes de crescer
+            System.arraycopy(buf, start, buf, 0, size - start);
+            size -= start;
+            start = 0;
+            if (size + n > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, size + n));
+            }
+        }
+        src.get(buf, size, n);
+        size += n;
+    }
+
+    @Override
+    public Object next() throws IOException {
+        if (size - start < Math.max(wanted, 1)) return null;
+        if (in == null) {
+            if (size - start < HEADER) {
+                wanted = HEADER;
+                return null;
+            }
+            limit = start + HEADER;
+            in = new ObjectInputStream(source);
+        }
+        int end = scanner.scan(buf, start, size);
+        if (end < 0) {
+            wanted = scanner.needed - start;
+            return null;
+        }
+        wanted = 0;
+        limit = end;
+        Object obj;
+        try {
+            obj = in.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Classe desconhecida: " + e.getMessage(), e);
+        } catch (EOFException e) {
+            throw new StreamCorruptedException("Objeto mais longo do que o previsto");
+        }
+        if (start != end) throw new StreamCorruptedException("Objeto mais curto do que o previsto");
+        if (start == size) {
+            start = 0;
+            size = 0;
+        }
+        return obj;
+    }
+
+    /**
+     * Percorre a gramática do Object Serialization Stream Protocol sem criar objetos e diz onde acaba
+     * o próximo objeto de topo (com os TC_RESET que o antecedem). Mantém a sua própria tabela de handles,
+     * com os descritores de classe (flags e tamanho dos campos), para saber ler os dados das classes
+     * referidas depois; se o objeto ainda não chegou todo, a tabela volta ao estado anterior.
+     * Classes com writeObject têm de escrever os campos por omissão primeiro (como manda a especificação).
+     */
+    private static final class Scanner {
+
+        private static final int MAX_DEPTH = 64;
+        private static final Object OTHER = new Object(); // handle que não é descritor de classe
+        private static final Incomplete INCOMPLETE = new Incomplete();
+
+        /** Faltam bytes; sem stack trace, é o caso normal enquanto o objeto chega. */
+        private static final class Incomplete extends Exception {
+            Incomplete() {
+                super(null, null, false, false);
+            }
+        }
+
+        /** O que interessa de um descritor de classe para saltar os dados dos objetos. */
+        private static final class Desc {
+            int flags;
+            int primitiveBytes;
+            int objectFields;
+            char arrayElement; // tipo dos elementos se for um array, 0 se não
+            Desc parent;
+        }
+
+        private List<Object> handles = new ArrayList<>();
+        private byte[] b;
+        private int pos;
+        private int end;
+        /** Posição até onde os bytes têm de chegar para o percurso avançar (válido depois de -1). */
+        int needed;
+
+        /** Fim do próximo objeto em b[from, to), ou -1 se ainda não chegou inteiro. */
+        int scan(byte[] b, int from, int to) throws StreamCorruptedException {
+            this.b = b;
+            pos = from;
+            end = to;
+            List<Object> saved = handles;
+            int mark = handles.size();
+            try {
+                while (peek() == TC_RESET) {
+                    pos++;
+                    handles = new ArrayList<>();
+                }
+                int tc = peek();
+                if (tc == TC_BLOCKDATA || tc == TC_BLOCKDATALONG || tc == TC_ENDBLOCKDATA) {
+                    throw new StreamCorruptedException("Dados primitivos fora de um objeto");
+                }
+                object(0);
+                return pos;
+            } catch (Incomplete e) {
+                handles = saved;
+                handles.subList(mark, handles.size()).clear();
+                return -1;
+            } finally {
+                this.b = null;
+            }
+        }
+
+        private void object(int depth) throws Incomplete, StreamCorruptedException {
+            if (depth > MAX_DEPTH) throw new StreamCorruptedException("Objetos encaixados a mais");
+            int tc = u1();
+            switch (tc) {
+                case TC_NULL -> {
+                }
+                case TC_REFERENCE -> handle();
+                case TC_STRING -> {
+                    handles.add(OTHER);
+                    skip(u2());
+                }
+                case TC_LONGSTRING -> {
+                    handles.add(OTHER);
+                    skip(s8());
+                }
+                case TC_CLASSDESC, TC_PROXYCLASSDESC -> {
+                    pos--;
+                    classDesc(depth);
+                }
+                case TC_CLASS -> {
+                    required(classDesc(depth));
+                    handles.add(OTHER);
+                }
+                case TC_ARRAY -> {
+                    Desc d = required(classDesc(depth));
+                    int n = s4();
+                    handles.add(OTHER);
+                    array(d, n, depth);
+                }
+                case TC_ENUM -> {
+                    required(classDesc(depth));
+                    handles.add(OTHER);
+                    object(depth + 1); // nome da constante
+                }
+                case TC_OBJECT -> {
+                    Desc d = required(classDesc(depth));
+                    handles.add(OTHER);
+                    if ((d.flags & SC_EXTERNALIZABLE) != 0) {
+                        if ((d.flags & SC_BLOCK_DATA) == 0) {
+                            throw new StreamCorruptedException("Externalizable no protocolo 1 não é suportado");
+                        }
+                        annotation(depth + 1);
+                    } else {
+                        classData(d, depth + 1);
+                    }
+                }
+                default -> throw new StreamCorruptedException("Código inesperado: " + tc);
+            }
+        }
+
+        /** classDesc: um descritor novo, TC_NULL (devolve null) ou uma referência a um descritor. */
+        private Desc classDesc(int depth) throws Incomplete, StreamCorruptedException {
+            if (depth > MAX_DEPTH) throw new StreamCorruptedException("Hierarquia de classes funda demais");
+            int tc = u1();
+            switch (tc) {
+                case TC_NULL:
+                    return null;
+                case TC_REFERENCE:
+                    if (handle() instanceof Desc d) return d;
+                    throw new StreamCorruptedException("Referência não é um descritor de classe");
+                case TC_CLASSDESC: {
+                    Desc d = new Desc();
+                    handles.add(d);
+                    int nameLen = u2();
+                    need(nameLen);
+                    if (nameLen > 1 && b[pos] == '[') d.arrayElement = (char) b[pos + 1];
+                    pos += nameLen;
+                    skip(8); // serialVersionUID
+                    d.flags = u1();
+                    int fields = s2();
+                    if (fields < 0) throw new StreamCorruptedException("Número de campos inválido: " + fields);
+                    for (int i = 0; i < fields; i++) {
+                        int type = u1();
+                        skip(u2()); // nome do campo
+                        if (type == 'L' || type == '[') {
+                            d.objectFields++;
+                            object(depth + 1); // nome da classe do campo (String)
+                        } else {
+                            d.primitiveBytes += primitiveSize(type);
+                        }
+                    }
+                    annotation(depth + 1);
+                    d.parent = classDesc(depth + 1);
+                    return d;
+                }
+                case TC_PROXYCLASSDESC: {
+                    Desc d = new Desc();
+                    handles.add(d);
+                    d.flags = SC_SERIALIZABLE;
+                    int interfaces = s4();
+                    if (interfaces < 0) throw new StreamCorruptedException("Número de interfaces inválido");
+                    for (int i = 0; i < interfaces; i++) skip(u2());
+                    annotation(depth + 1);
+                    d.parent = classDesc(depth + 1);
+                    return d;
+                }
+                default:
+                    throw new StreamCorruptedException("Descritor de classe inesperado: " + tc);
+            }
+        }
+
+        /** Dados de cada classe da hierarquia, da superclasse para a subclasse. */
+        private void classData(Desc d, int depth) throws Incomplete, StreamCorruptedException {
+            if (depth > MAX_DEPTH) throw new StreamCorruptedException("Hierarquia de classes funda demais");
+            if (d.parent != null) classData(d.parent, depth + 1);
+            skip(d.primitiveBytes);
+            for (int i = 0; i < d.objectFields; i++) object(depth + 1);
+            if ((d.flags & SC_WRITE_METHOD) != 0) annotation(depth + 1);
+        }
+
+        private void array(Desc d, int n, int depth) throws Incomplete, StreamCorruptedException {
+            if (n < 0 || n > MAX_BUFFERED) throw new StreamCorruptedException("Tamanho de array inválido: " + n);
+            char e = d.arrayElement;
+            if (e == 'L' || e == '[') {
+                for (int i = 0; i < n; i++) object(depth + 1);
+            } else if (e != 0) {
+                skip((long) n * primitiveSize(e));
+            } else {
+                throw new StreamCorruptedException("Array com descritor que não é de array");
+            }
+        }
+
+        /** Conteúdos (dados em bloco e objetos) até TC_ENDBLOCKDATA. */
+        private void annotation(int depth) throws Incomplete, StreamCorruptedException {
+            while (true) {
+                int tc = peek();
+                if (tc == TC_ENDBLOCKDATA) {
+                    pos++;
+                    return;
+                } else if (tc == TC_BLOCKDATA) {
+                    pos++;
+                    skip(u1());
+                } else if (tc == TC_BLOCKDATALONG) {
+                    pos++;
+                    int n = s4();
+                    if (n < 0) throw new StreamCorruptedException("Bloco de dados inválido: " + n);
+                    skip(n);
+                } else {
+                    object(depth);
+                }
+            }
+        }
+
+        private static Desc required(Desc d) throws StreamCorruptedException {
+            if (d == null) throw new StreamCorruptedException("Descritor de classe em falta");
+            return d;
+        }
+
+        private static int primitiveSize(int type) throws StreamCorruptedException {
+            return switch (type) {
+                case 'B', 'Z' -> 1;
+                case 'C', 'S' -> 2;
+                case 'I', 'F' -> 4;
+                case 'J', 'D' -> 8;
+                default -> throw new StreamCorruptedException("Tipo de campo inválido: " + type);
+            };
+        }
+
+        private Object handle() throws Incomplete, StreamCorruptedException {
+            int h = s4() - baseWireHandle;
+            if (h < 0 || h >= handles.size()) throw new StreamCorruptedException("Handle inválido: " + h);
+            return handles.get(h);
+        }
+
+        private void need(long n) throws Incomplete, StreamCorruptedException {
+            if (n > MAX_BUFFERED) throw new StreamCorruptedException("Comprimento inválido: " + n);
+            if (end - pos < n) {
+                needed = pos + (int) n;
+                throw INCOMPLETE;
+            }
+        }
+
+        private void skip(long n) throws Incomplete, StreamCorruptedException {
+            if (n < 0) throw new StreamCorruptedException("Comprimento inválido: " + n);
+            need(n);
+            pos += (int) n;
+        }
+
+        private int peek() throws Incomplete, StreamCorruptedException {
+            need(1);
+            return b[pos] & 0xFF;
+        }
+
+        private int u1() throws Incomplete, StreamCorruptedException {
+            need(1);
+            return b[pos++] & 0xFF;
+        }
+
+        private int u2() throws Incomplete, StreamCorruptedException {
+            need(2);
+            int v = ((b[pos] & 0xFF) << 8) | (b[pos + 1] & 0xFF);
+            pos += 2;
+            return v;
+        }
+
+        private int s2() throws Incomplete, StreamCorruptedException {
+            return (short) u2();
+        }
+
+        private int s4() throws Incomplete, StreamCorruptedException {
+            need(4);
+            int v = ((b[pos] & 0xFF) << 24) | ((b[pos + 1] & 0xFF) << 16) | ((b[pos + 2] & 0xFF) << 8) | (b[pos + 3] & 0xFF);
+            pos += 4;
+            return v;
+        }
+
+        private long s8() throws Incomplete, StreamCorruptedException {
+            long hi = s4() & 0xFFFFFFFFL;
+            return (hi << 32) | (s4() & 0xFFFFFFFFL);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package iskahoot.server;
+
+import iskahoot.cluster.HashRing;
+import iskahoot.cluster.NodeAddress;
+import iskahoot.concurrent.TaskRunner;
+import iskahoot.net.BinaryCodec;
+import iskahoot.net.JoinMessage;
+import iskahoot.net.JoinResponse;
+import iskahoot.net.Message;
+import iskahoot.net.ResumeMessage;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.io.StreamCorruptedException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+
+/**
+ * Porta de entrada de um cluster de servidores: os clientes ligam-se aqui como a um servidor normal.
+ * O router confirma o protocolo (MAGIC ou cabeçalho do stream de objetos), lê só a JoinMessage (ou a
+ * ResumeMessage) para saber o código do jogo, escolhe o nó dono pelo HashRing e passa a reencaminhar
+ * bytes em bruto nos dois sentidos. Ao nó envia exatamente os bytes que recebeu do cliente e descarta
+ * a confirmação de protocolo do nó, que o cliente já recebeu; as mensagens não voltam a ser
+ * descodificadas.
+ * Uso: java iskahoot.server.Router 6000 --nodes=a@localhost:7001,b@localhost:7002 [--threads=virtual]
+ */
+public class Router {
+
+    private static final int PREAMBLE = BinaryCodec.MAGIC.length; // MAGIC e cabeçalho do stream têm 4 bytes
+
+    private final HashRing ring;
+    private final TaskRunner runner;
+
+    public Router(HashRing ring, TaskRunner runner) {
+        this.ring = ring;
+        this.runner = runner;
+    }
+
+    public static void main(String[] args) throws IOException {
+        ServerOptions opts = ServerOptions.parse(args);
+        String nodes = opts.get("nodes", null);
+        if (nodes == null) throw new IllegalArgumentException("Falta --nodes=id@host:porto,...");
+        Router router = new Router(new HashRing(NodeAddress.parseList(nodes)), TaskRunner.of(opts.get("threads", "platform")));
+        router.serve(opts.port());
+    }
+
+    public void serve(int port) throws IOException {
+        try (ServerSocket ss = new ServerSocket(port)) {
+            System.out.println("Router a correr no porto " + port + " (threads " + runner.mode() + ")");
+            while (true) {
+                Socket s = ss.accept();
+                runner.start("router-" + s.getPort(), () -> route(s));
+            }
+        }
+    }
+
+    private void route(Socket client) {
+        Socket backend = null;
+        try {
+            client.setTcpNoDelay(true);
+            Recording seen = new Recording(client.getInputStream());
+            PushbackInputStream in = new PushbackInputStream(new BufferedInputStream(seen), PREAMBLE);
+            OutputStream out = client.getOutputStream();
+
+            byte[] head = in.readNBytes(PREAMBLE);
+            boolean binary = Arrays.equals(head, BinaryCodec.MAGIC);
+            ObjectOutputStream oos = null;
+            Message first;
+            if (binary) {
+                out.write(BinaryCodec.MAGIC);
+                out.flush();
+                DataInputStream din = new DataInputStream(in);
+                int len = din.readInt();
+                if (len < 0 || len > BinaryCodec.MAX_FRAME) {
+                    throw new StreamCorruptedException("Comprimento de trama inválido: " + len);
+                }
+                byte[] body = din.readNBytes(len);
+                first = BinaryCodec.decode(body, 0, body.length);
+            } else {
+                in.unread(head);
+                oos = new ObjectOutputStream(out); // o cliente antigo espera pelo cabeçalho antes de enviar o join
+                oos.flush();
+                first = readObject(new ObjectInputStream(in));
+            }
+            String gameCode;
+            if (first instanceof JoinMessage join) {
+                gameCode = join.gameCode;
+            } else if (first instanceof ResumeMessage resume) {
+                gameCode = resume.gameCode;
+            } else {
+                throw new StreamCorruptedException("Primeira mensagem não é um join: " + first);
+            }
+
+            NodeAddress node = ring.owner(gameCode);
+            try {
+                backend = new Socket(node.host(), node.port());
+                backend.setTcpNoDelay(true);
+                backend.getOutputStream().write(seen.bytes());
+                backend.getOutputStream().flush();
+                if (backend.getInputStream().readNBytes(PREAMBLE).length < PREAMBLE) {
+                    throw new IOException("Nó fechou a ligação");
+                }
+            } catch (IOException e) {
+                System.out.println("Router: nó " + node + " indisponível: " + e.getMessage());
+                JoinResponse refused = new JoinResponse(false, "Servidor do jogo indisponível");
+                if (binary) out.write(BinaryCodec.frame(refused));
+                else oos.writeObject(refused);
+                out.flush();
+                return;
+            }
+
+            seen.stop(); // o que falta ler vai direto para o nó
+            Socket b = backend;
+            runner.start("router-up-" + client.getPort(), () -> pipe(client, b));
+            pipe(b, client);
+        } catch (IOException e) {
+            System.out.println("Router: ligação " + client.getRemoteSocketAddress() + " terminou: " + e.getMessage());
+        } finally {
+            closeQuietly(client);
+            closeQuietly(backend);
+        }
+    }
+
+    /** Copia bytes de from para to até uma das pontas fechar; fecha as duas. */
+    private static void pipe(Socket from, Socket to) {
+        byte[] buf = new byte[8192];
+        try {
+            InputStream in = from.getInputStream();
+            OutputStream out = to.getOutputStream();
+            int n;
+            while ((n = in.read(buf)) >= 0) {
+                out.write(buf, 0, n);
+            }
+        } catch (IOException e) {
+            // uma das pontas fechou
+        } finally {
+            closeQuietly(from);
+            closeQuietly(to);
+        }
+    }
+
+    private static Message readObject(ObjectInputStream ois) throws IOException {
+        try {
+            Object obj = ois.readObject();
+            if (obj instanceof Message m) return m;
+            throw new StreamCorruptedException("Objeto desconhecido: " + obj);
+        } catch (ClassNotFoundException e) {
+            throw new StreamCorruptedException("Classe desconhecida: " + e.getMessage());
+        }
+    }
+
+    private static void closeQuietly(Socket s) {
+        if (s == null) return;
+        try {
+            s.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Guarda todos os bytes lidos do socket (incluindo os que o BufferedInputStream leu a mais),
+     * para os reenviar ao nó tal como chegaram.
+     */
+    private static final class Recording extends FilterInputStream {
+        private final ByteArrayOutputStream copy = new ByteArrayOutputStream(256);
+        private boolean recording = true;
+
+        Recording(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0 && recording) copy.write(b);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0 && recording) copy.write(b, off, n);
+            return n;
+        }
+
+        byte[] bytes() {
+            return copy.toByteArray();
+        }
+
+        void stop() {
+            recording = false;
+        }
+    }
+}
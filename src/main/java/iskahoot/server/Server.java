@@ -1,36 +1,90 @@
 package iskahoot.server;
 
+import iskahoot.cluster.Cluster;
+import iskahoot.cluster.NodeAddress;
+import iskahoot.concurrent.TaskRunner;
 import iskahoot.io.QuestionLoader;
-import iskahoot.model.QuestionsFile;
+import iskahoot.io.QuizCatalog;
+import iskahoot.io.ResultsArchive;
 
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.file.Path;
 
 /**
  * Ponto de entrada do servidor: arranca a TUI, aceita sockets e lança um ClientHandler por cliente.
  * Usa por defeito a porta 6000 (pode ser alterado passando um argumento).
+ * Com --engine=nio usa o motor não-bloqueante (NioServer) em vez de uma thread por ligação;
+ * com --threads=virtual os handlers e game loops correm em threads virtuais (JDK 21+).
+ * --queue=N e --overflow=drop-scoreboard|disconnect controlam a fila de saída de cada cliente.
+ * --sessions=actor aplica as respostas de cada jogo numa thread própria da sessão (por defeito: shared).
+ * Em cluster: --nodes=a@host:porto,b@host:porto (a mesma lista do Router), --node=<id deste nó> e
+ * --coordinator=host:porto (Coordinator, para usernames únicos em todos os nós).
+ * --resume-grace=segundos: quanto tempo o lugar de quem perdeu a ligação fica guardado (0 desliga a retoma).
+ * --journal=ficheiro regista os eventos dos jogos (GameJournal) e, ao arrancar, recupera os que ficaram a meio.
+ * --questions=ficheiro lê as perguntas de um ficheiro (indexado e convertido por partes, ver QuizCatalog.open)
+ * em vez do questions.json interno; --quiz-cache=MB limita os quizzes convertidos em memória. Também aceita
+ * um banco compilado com o QuestionBankCompiler, que é mapeado em memória.
+ * --archive=pasta guarda os resultados dos jogos terminados (ResultsArchive), consultáveis com stats na TUI.
  */
 public class Server {
 
-    private static final int DEFAULT_PORT = 6000;
-
     public static void main(String[] args) throws Exception {
 
-        int port = DEFAULT_PORT;
-        if (args.length >= 1) {
-            port = Integer.parseInt(args[0]);
-        }
+        ServerOptions opts = ServerOptions.parse(args);
+        int port = opts.port();
 
-        GameManager gm = new GameManager();
-        QuestionsFile qf = QuestionLoader.loadFromResource("/questions.json");
+        TaskRunner runner = TaskRunner.of(opts.get("threads", "platform"));
+        // perguntas lidas e indexadas uma única vez; as sessões procuram o quiz pelo id
+        String questionsPath = opts.get("questions", null);
+        QuizCatalog catalog = (questionsPath == null)
+                ? QuizCatalog.of(QuestionLoader.loadFromResource("/questions.json"))
+                : QuizCatalog.open(Path.of(questionsPath), opts.getInt("quiz-cache", 64) * 1024L * 1024L);
+        System.out.println("Catálogo: " + catalog);
+        String nodes = opts.get("nodes", null);
+        Cluster cluster = (nodes == null)
+                ? Cluster.standalone()
+                : Cluster.of(opts.get("node", null), NodeAddress.parseList(nodes), opts.get("coordinator", null));
+        String journalPath = opts.get("journal", null);
+        GameJournal journal = (journalPath == null)
+                ? GameJournal.disabled()
+                : GameJournal.open(Path.of(journalPath), runner);
+        GameManager gm = new GameManager(runner, catalog, GameSession.Mode.of(opts.get("sessions", "shared")),
+                cluster, journal);
+        gm.setResumeGraceSeconds(opts.getInt("resume-grace", GameManager.DEFAULT_RESUME_GRACE));
+        String archiveDir = opts.get("archive", null);
+        if (archiveDir != null) {
+            ResultsArchive archive = ResultsArchive.open(Path.of(archiveDir));
+            gm.setArchive(archive);
+            System.out.println("Arquivo de resultados: " + archive.games() + " jogos, " + archive.rows() + " respostas");
+        }
+        System.out.println("Servidor em modo " + cluster);
+        if (journal.enabled()) {
+            System.out.println("Jogos recuperados do diário: " + gm.recoverGames());
+        }
         new Thread(new ServerConsole(gm), "server-console").start();
 
+        ClientEndpoint.Settings outbound = new ClientEndpoint.Settings(
+                opts.getInt("queue", 64),
+                ClientEndpoint.OverflowPolicy.of(opts.get("overflow", "drop-scoreboard")),
+                runner.newWorkerPool("client-writer-"));
+
+        String engine = opts.get("engine", "blocking");
+        if (engine.equals("nio")) {
+            int loops = opts.getInt("loops", Runtime.getRuntime().availableProcessors());
+            new NioServer(port, gm, loops, outbound).run();
+            return;
+        }
+        if (!engine.equals("blocking")) {
+            throw new IllegalArgumentException("Motor desconhecido: " + engine + " (usa blocking ou nio)");
+        }
+
         try (ServerSocket ss = new ServerSocket(port)) {
-            System.out.println("Servidor a correr no porto " + port);
+            System.out.println("Servidor a correr no porto " + port + " (threads " + runner.mode() + ")");
             while (true) {
                 Socket s = ss.accept();
                 System.out.println("Cliente ligado: " + s.getInetAddress());
-                new Thread(new ClientHandler(s, gm, qf)).start();
+                runner.start("client-" + s.getPort(), new ClientHandler(s, gm, outbound));
             }
         }
     }
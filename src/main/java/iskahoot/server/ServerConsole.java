@@ -1,13 +1,23 @@
 package iskahoot.server;
 
+import iskahoot.io.QuizCatalog;
+import iskahoot.io.ResultsArchive;
+
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
 
 /**
  * TUI do servidor: cria jogos com códigos e lista estado/placar dos jogos ativos.
+ * Com o arquivo de resultados ligado, stats consulta os jogos terminados.
  */
 public class ServerConsole implements Runnable {
 
+    private static final int DEFAULT_STATS_GAMES = 100;
+
     private final GameManager gm;
 
     public ServerConsole(GameManager gm) {
@@ -17,7 +27,7 @@ public class ServerConsole implements Runnable {
     @Override
     public void run() {
         try (Scanner sc = new Scanner(System.in)) {
-            System.out.println("[TUI] Comandos: new <equipas> <jogadores> <perguntas> | list | help");
+            System.out.println("[TUI] Comandos: new <equipas> <jogadores> <perguntas> [quiz] | list | timers | stats | help");
             while (true) {
                 System.out.print("> ");
                 if (!sc.hasNextLine()) break;
@@ -28,6 +38,8 @@ public class ServerConsole implements Runnable {
                 switch (cmd) {
                     case "new" -> handleNew(parts);
                     case "list" -> handleList();
+                    case "timers" -> System.out.println("Temporizadores pendentes: " + gm.timers().pending());
+                    case "stats" -> handleStats(parts);
                     case "help" -> printHelp();
                     default -> System.out.println("Comando desconhecido. Usa help.");
                 }
@@ -36,22 +48,31 @@ public class ServerConsole implements Runnable {
     }
 
     private void handleNew(String[] parts) {
-        if (parts.length != 4) {
-            System.out.println("Uso: new <nEquipas> <jogadoresPorEquipa> <nPerguntas>");
+        if (parts.length != 4 && parts.length != 5) {
+            System.out.println("Uso: new <nEquipas> <jogadoresPorEquipa> <nPerguntas> [idQuiz|nome]");
             return;
         }
         try {
             int teams = Integer.parseInt(parts[1]);
             int players = Integer.parseInt(parts[2]);
             int questions = Integer.parseInt(parts[3]);
-            GameRoom room = gm.createGame(teams, players, questions);
+            int quizId = (parts.length == 5) ? quizId(parts[4]) : QuizCatalog.DEFAULT_ID;
+            GameRoom room = gm.createGame(teams, players, questions, quizId);
             System.out.println("Jogo criado: código " + room.code + " (equipas=" + teams +
-                    ", jogadores/equipa=" + players + ", perguntas=" + questions + ")");
+                    ", jogadores/equipa=" + players + ", perguntas=" + questions + ", quiz=" + quizId + ")");
         } catch (NumberFormatException e) {
             System.out.println("Parâmetros inválidos. Usa números inteiros.");
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
         }
     }
 
+    /** Quiz pelo id ou pelo nome. */
+    private int quizId(String arg) {
+        int byName = gm.catalog().idOf(arg);
+        return (byName >= 0) ? byName : Integer.parseInt(arg);
+    }
+
     private void handleList() {
         var infos = gm.describeGames();
         if (infos.isEmpty()) {
@@ -61,8 +82,71 @@ public class ServerConsole implements Runnable {
         infos.forEach(info -> System.out.println(" - " + info));
     }
 
+    private void handleStats(String[] parts) {
+        ResultsArchive archive = gm.archive();
+        if (archive == null) {
+            System.out.println("Arquivo de resultados desligado (arranca o servidor com --archive=pasta).");
+            return;
+        }
+        try {
+            if (parts.length >= 2 && parts.length <= 3 && parts[1].equalsIgnoreCase("questions")) {
+                int last = (parts.length == 3) ? Integer.parseInt(parts[2]) : DEFAULT_STATS_GAMES;
+                printQuestionStats(archive.questionStats(last), last);
+            } else if (parts.length >= 3 && parts.length <= 4 && parts[1].equalsIgnoreCase("team")) {
+                int last = (parts.length == 4) ? Integer.parseInt(parts[3]) : DEFAULT_STATS_GAMES;
+                printTeamHistory(parts[2], archive.teamHistory(parts[2], last));
+            } else {
+                System.out.println("Uso: stats questions [nJogos] | stats team <equipa> [nJogos]");
+            }
+        } catch (NumberFormatException e) {
+            System.out.println("Parâmetros inválidos. Usa números inteiros.");
+        } catch (IOException e) {
+            System.out.println("Erro a ler o arquivo: " + e.getMessage());
+        }
+    }
+
+    private void printQuestionStats(ResultsArchive.QuestionStats result, int last) {
+        if (result.skipped() > 0) {
+            System.out.println("Arquivo: " + result.skipped() + " respostas com pergunta inválida ignoradas");
+        }
+        List<ResultsArchive.QuestionStat> stats = result.stats();
+        if (stats.isEmpty()) {
+            System.out.println("Sem resultados arquivados.");
+            return;
+        }
+        System.out.println("Taxa de acerto nos últimos " + last + " jogos:");
+        for (ResultsArchive.QuestionStat s : stats) {
+            String text;
+            try {
+                text = gm.catalog().get(s.quizId()).questions().get(s.question()).text();
+            } catch (RuntimeException e) {
+                text = "?"; // quiz ou pergunta que já não está no catálogo
+            }
+            System.out.printf(" - quiz %d, pergunta %d: %5.1f%% certas (%d respostas, %d ms em média) %s%n",
+                    s.quizId(), s.question(), 100.0 * s.correct() / s.answers(), s.answers(),
+                    s.latencyMsSum() / s.answers(), text);
+        }
+    }
+
+    private void printTeamHistory(String team, List<ResultsArchive.TeamGame> games) {
+        if (games.isEmpty()) {
+            System.out.println("Sem jogos arquivados da equipa " + team + ".");
+            return;
+        }
+        SimpleDateFormat fmt = new SimpleDateFormat("yyyy-MM-dd HH:mm");
+        for (ResultsArchive.TeamGame g : games) {
+            System.out.printf(" - %s %s: %d pontos, %d/%d certas (%.1f%%)%n", fmt.format(new Date(g.time())),
+                    g.code(), g.points(), g.correct(), g.answers(),
+                    g.answers() == 0 ? 0.0 : 100.0 * g.correct() / g.answers());
+        }
+    }
+
     private void printHelp() {
-        System.out.println("new <nEquipas> <jogadoresPorEquipa> <nPerguntas>  -> cria jogo e mostra código");
+        System.out.println("new <nEquipas> <jogadoresPorEquipa> <nPerguntas> [idQuiz|nome] -> cria jogo e mostra código ("
+                + gm.catalog().size() + " quiz(zes) no catálogo)");
         System.out.println("list                                                -> lista jogos ativos");
+        System.out.println("timers                                              -> temporizadores de ronda pendentes");
+        System.out.println("stats questions [nJogos]                            -> taxa de acerto por pergunta (arquivo)");
+        System.out.println("stats team <equipa> [nJogos]                        -> histórico da equipa (arquivo)");
     }
 }
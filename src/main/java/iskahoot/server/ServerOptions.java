@@ -0,0 +1,49 @@
+package iskahoot.server;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Opções de arranque do servidor: porto (primeiro argumento, como antes) e flags no formato --chave=valor.
+ * Ex.: java iskahoot.server.Server 6000 --engine=nio --loops=4
+ */
+final class ServerOptions {
+
+    static final int DEFAULT_PORT = 6000;
+
+    private final Map<String, String> flags = new HashMap<>();
+    private int port = DEFAULT_PORT;
+
+    private ServerOptions() {
+    }
+
+    static ServerOptions parse(String[] args) {
+        ServerOptions opts = new ServerOptions();
+        for (String arg : args) {
+            if (arg.startsWith("--")) {
+                int eq = arg.indexOf('=');
+                if (eq < 0) {
+                    opts.flags.put(arg.substring(2), "true");
+                } else {
+                    opts.flags.put(arg.substring(2, eq), arg.substring(eq + 1));
+                }
+            } else {
+                opts.port = Integer.parseInt(arg);
+            }
+        }
+        return opts;
+    }
+
+    int port() {
+        return port;
+    }
+
+    String get(String key, String def) {
+        return flags.getOrDefault(key, def);
+    }
+
+    int getInt(String key, int def) {
+        String v = flags.get(key);
+        return (v == null) ? def : Integer.parseInt(v);
+    }
+}
@@ -0,0 +1,168 @@
+package iskahoot.server;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Classificação das equipas mantida incrementalmente: uma treap (árvore com tamanhos de subárvore)
+ * ordenada por pontuação decrescente e, em empate, pelo índice da equipa. Cada equipa é um nó
+ * fixo (os arrays são indexados pelo índice da equipa), por isso atualizar não aloca.
+ * update(), add(), rank() e top() custam O(log n) (top: O(log n + k)); não é preciso ordenar tudo por ronda.
+ */
+final class TeamRanking {
+
+    private static final int NIL = -1;
+
+    private final int[] score;   // pontuação com que a equipa está na árvore
+    private final int[] left;
+    private final int[] right;
+    private final int[] size;
+    private final int[] priority;
+    private final boolean[] present;
+    private int root = NIL;
+    private int count;
+    // resultado de split(): as duas metades, em campos para a recursão não alocar
+    private int splitLeft;
+    private int splitRight;
+
+    TeamRanking(int capacity) {
+        score = new int[capacity];
+        left = new int[capacity];
+        right = new int[capacity];
+        size = new int[capacity];
+        priority = new int[capacity];
+        present = new boolean[capacity];
+        Arrays.fill(left, NIL);
+        Arrays.fill(right, NIL);
+    }
+
+    /** Insere a equipa (se ainda não estiver) ou reposiciona-a com a nova pontuação. */
+    synchronized void update(int team, int newScore) {
+        if (present[team]) {
+            if (score[team] == newScore) return;
+            remove(team);
+        }
+        score[team] = newScore;
+        left[team] = NIL;
+        right[team] = NIL;
+        size[team] = 1;
+        priority[team] = ThreadLocalRandom.current().nextInt();
+        split(root, team, false);
+        int before = splitLeft, after = splitRight;
+        root = merge(merge(before, team), after);
+        present[team] = true;
+        count++;
+    }
+
+    /**
+     * Soma points à pontuação da equipa e reposiciona-a: O(log n), chamado a cada pontuação.
+     * Somas comutam, por isso a ordem entre threads a pontuar na mesma equipa não importa.
+     */
+    synchronized void add(int team, int points) {
+        if (points == 0 && present[team]) return;
+        update(team, (present[team] ? score[team] : 0) + points);
+    }
+
+    /** Posição (1 = primeiro) da equipa, ou 0 se não estiver classificada. */
+    synchronized int rank(int team) {
+        if (!present[team]) return 0;
+        int before = 0;
+        int n = root;
+        while (n != NIL) {
+            int c = compare(n, team);
+            if (c < 0) {
+                before += sizeOf(left[n]) + 1;
+                n = right[n];
+            } else if (c > 0) {
+                n = left[n];
+            } else {
+                return before + sizeOf(left[n]) + 1;
+            }
+        }
+        return 0;
+    }
+
+    /** As k primeiras equipas (índices), por ordem. */
+    synchronized int[] top(int k) {
+        int[] out = new int[Math.min(k, count)];
+        int[] stack = new int[64];
+        int sp = 0;
+        int filled = 0;
+        int n = root;
+        while (filled < out.length && (n != NIL || sp > 0)) {
+            while (n != NIL) {
+                if (sp == stack.length) stack = Arrays.copyOf(stack, sp * 2);
+                stack[sp++] = n;
+                n = left[n];
+            }
+            n = stack[--sp];
+            out[filled++] = n;
+            n = right[n];
+        }
+        return out;
+    }
+
+    synchronized int size() {
+        return count;
+    }
+
+    private void remove(int team) {
+        split(root, team, false);               // [< team, >= team]
+        int before = splitLeft;
+        split(splitRight, team, true);          // [team, > team]
+        root = merge(before, splitRight);
+        present[team] = false;
+        count--;
+    }
+
+    /** Ordem: pontuação decrescente, depois índice crescente. */
+    private int compare(int a, int b) {
+        if (score[a] != score[b]) return (score[a] > score[b]) ? -1 : 1;
+        return Integer.compare(a, b);
+    }
+
+    /**
+     * Divide a subárvore em [chaves antes de key, restantes], deixados em splitLeft e splitRight;
+     * com inclusive, key fica do lado esquerdo.
+     */
+    private void split(int n, int key, boolean inclusive) {
+        if (n == NIL) {
+            splitLeft = NIL;
+            splitRight = NIL;
+            return;
+        }
+        int c = compare(n, key);
+        if (c < 0 || (inclusive && c == 0)) {
+            split(right[n], key, inclusive);
+            right[n] = splitLeft;
+            fix(n);
+            splitLeft = n;
+        } else {
+            split(left[n], key, inclusive);
+            left[n] = splitRight;
+            fix(n);
+            splitRight = n;
+        }
+    }
+
+    private int merge(int a, int b) {
+        if (a == NIL) return b;
+        if (b == NIL) return a;
+        if (priority[a] > priority[b]) {
+            right[a] = merge(right[a], b);
+            fix(a);
+            return a;
+        }
+        left[b] = merge(a, left[b]);
+        fix(b);
+        return b;
+    }
+
+    private void fix(int n) {
+        size[n] = sizeOf(left[n]) + sizeOf(right[n]) + 1;
+    }
+
+    private int sizeOf(int n) {
+        return (n == NIL) ? 0 : size[n];
+    }
+}
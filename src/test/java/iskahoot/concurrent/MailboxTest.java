@@ -0,0 +1,117 @@
+package iskahoot.concurrent;
+
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Mailbox do modo ator: muitos produtores, um único consumidor. Cada mensagem é entregue uma vez,
+ * pela ordem de cada produtor, em lotes de até maxBatch, sempre na thread do ator.
+ */
+@Timeout(30)
+class MailboxTest {
+
+    private static final int PRODUCERS = 8;
+    private static final int PER_PRODUCER = 20_000;
+    private static final int MAX_BATCH = 64;
+
+    @RepeatedTest(5)
+    void everyMessageOnceInProducerOrder() throws Exception {
+        int[] last = new int[PRODUCERS];
+        Arrays.fill(last, -1);
+        Set<Thread> consumers = new HashSet<>();
+        AtomicInteger delivered = new AtomicInteger();
+        AtomicInteger badBatches = new AtomicInteger();
+        AtomicInteger outOfOrder = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(1);
+        // só a thread do ator mexe em last e consumers
+        Mailbox<int[]> box = new Mailbox<>("test-actor", TaskRunner.platform(), MAX_BATCH, batch -> {
+            consumers.add(Thread.currentThread());
+            if (batch.isEmpty() || batch.size() > MAX_BATCH) badBatches.incrementAndGet();
+            for (int[] m : batch) {
+                if (m[1] != last[m[0]] + 1) outOfOrder.incrementAndGet();
+                last[m[0]] = m[1];
+            }
+            if (delivered.addAndGet(batch.size()) == PRODUCERS * PER_PRODUCER) done.countDown();
+        });
+        CountDownLatch go = new CountDownLatch(1);
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < PRODUCERS; p++) {
+            int id = p;
+            Thread t = new Thread(() -> {
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < PER_PRODUCER; i++) box.post(new int[]{id, i});
+            });
+            t.start();
+            producers.add(t);
+        }
+        go.countDown();
+        for (Thread t : producers) t.join();
+        assertTrue(done.await(10, TimeUnit.SECONDS), "entregues " + delivered.get());
+        box.close();
+        assertEquals(PRODUCERS * PER_PRODUCER, delivered.get());
+        assertEquals(0, outOfOrder.get());
+        assertEquals(0, badBatches.get());
+        assertEquals(1, consumers.size());
+    }
+
+    @Test
+    void wakesUpAfterParking() throws Exception {
+        CountDownLatch got = new CountDownLatch(3);
+        Mailbox<String> box = new Mailbox<>("test-actor", TaskRunner.platform(), 8, batch -> batch.forEach(m -> got.countDown()));
+        for (int i = 0; i < 3; i++) {
+            Thread.sleep(50); // o ator estaciona entre mensagens
+            assertTrue(box.post("m" + i));
+        }
+        assertTrue(got.await(5, TimeUnit.SECONDS));
+        box.close();
+        assertFalse(box.post("depois")); // fechado: recusa
+    }
+
+    @Test
+    void handlerExceptionDoesNotKillTheActor() throws Exception {
+        CountDownLatch got = new CountDownLatch(1);
+        Mailbox<String> box = new Mailbox<>("test-actor", TaskRunner.platform(), 1, batch -> {
+            if (batch.get(0).equals("mau")) throw new IllegalStateException("de propósito");
+            got.countDown();
+        });
+        box.post("mau");
+        box.post("bom");
+        assertTrue(got.await(5, TimeUnit.SECONDS));
+        box.close();
+    }
+
+    @Test
+    void inActorOnlyOnTheActorThread() throws Exception {
+        CountDownLatch got = new CountDownLatch(1);
+        boolean[] inside = new boolean[1];
+        AtomicReference<Mailbox<String>> box = new AtomicReference<>();
+        box.set(new Mailbox<>("test-actor", TaskRunner.platform(), 1, batch -> {
+            inside[0] = box.get().inActor();
+            got.countDown();
+        }));
+        assertFalse(box.get().inActor());
+        box.get().post("x");
+        assertTrue(got.await(5, TimeUnit.SECONDS));
+        assertTrue(inside[0]);
+        box.get().close();
+    }
+}
@@ -0,0 +1,124 @@
+package iskahoot.concurrent;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Stress do latch sem locks: muitas threads a descer o contador ao mesmo tempo têm de receber o bónus
+ * exatamente bonusCount vezes e libertar quem espera uma única vez, por contador ou por prazo.
+ */
+@Timeout(30)
+class ModifiedCountdownLatchTest {
+
+    private static final int THREADS = 16;
+
+    private static ExecutorService pool;
+    private static TimerWheel timers;
+
+    @BeforeAll
+    static void start() {
+        pool = Executors.newFixedThreadPool(THREADS);
+        timers = new TimerWheel("test-timers", 10, 64);
+    }
+
+    @AfterAll
+    static void stop() {
+        pool.shutdownNow();
+    }
+
+    @RepeatedTest(20)
+    void concurrentCountdownsGiveBonusExactlyBonusCountTimes() throws Exception {
+        int count = 1000, bonusCount = 7, bonusFactor = 3;
+        ModifiedCountdownLatch latch = new ModifiedCountdownLatch(bonusFactor, bonusCount, 30, count, timers);
+        CountDownLatch go = new CountDownLatch(1);
+        AtomicInteger bonuses = new AtomicInteger();
+        AtomicInteger calls = new AtomicInteger();
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            workers.add(pool.submit(() -> {
+                go.await();
+                while (calls.incrementAndGet() <= count + 50) { // algumas chamadas depois de abrir
+                    int f = latch.countdown();
+                    if (f == bonusFactor) bonuses.incrementAndGet();
+                    else assertEquals(1, f);
+                }
+                return null;
+            }));
+        }
+        go.countDown();
+        for (Future<?> w : workers) w.get();
+        latch.await(); // já aberto: volta logo
+        assertEquals(bonusCount, bonuses.get());
+        assertFalse(latch.timedOut());
+    }
+
+    @RepeatedTest(20)
+    void waitersAreReleasedWhenTheLastCountdownArrives() throws Exception {
+        int count = THREADS / 2;
+        ModifiedCountdownLatch latch = new ModifiedCountdownLatch(2, 2, 30, count, timers);
+        CountDownLatch waiting = new CountDownLatch(count);
+        List<Future<?>> waiters = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            waiters.add(pool.submit(() -> {
+                waiting.countDown();
+                latch.await();
+                return null;
+            }));
+        }
+        waiting.await();
+        List<Future<?>> arrivals = new ArrayList<>();
+        for (int i = 0; i < count; i++) arrivals.add(pool.submit(latch::countdown));
+        for (Future<?> a : arrivals) a.get();
+        for (Future<?> w : waiters) w.get(5, TimeUnit.SECONDS);
+        assertFalse(latch.timedOut());
+        assertEquals(1, latch.countdown()); // depois de abrir não há bónus
+    }
+
+    @Test
+    void deadlineReleasesWaitersAndMarksTimeout() throws Exception {
+        ModifiedCountdownLatch latch = new ModifiedCountdownLatch(2, 2, 1, 3, timers);
+        assertEquals(2, latch.countdown());
+        long start = System.nanoTime();
+        latch.await(); // falta uma chegada: só o prazo (1 s) a liberta
+        long waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(latch.timedOut());
+        assertTrue(waited >= 900, "libertou cedo demais: " + waited + " ms");
+    }
+
+    @RepeatedTest(10)
+    void expireRacingWithCountdownsReleasesEveryone() throws Exception {
+        ModifiedCountdownLatch latch = new ModifiedCountdownLatch(2, 2, 30, 10_000, timers);
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int t = 0; t < THREADS - 1; t++) {
+            int id = t;
+            tasks.add(pool.submit(() -> {
+                if (id % 2 == 0) {
+                    latch.await();
+                } else {
+                    for (int i = 0; i < 500; i++) latch.countdown();
+                }
+                return null;
+            }));
+        }
+        latch.expire();
+        for (Future<?> f : tasks) f.get(5, TimeUnit.SECONDS);
+        assertTrue(latch.timedOut());
+        assertEquals(1, latch.countdown());
+    }
+}
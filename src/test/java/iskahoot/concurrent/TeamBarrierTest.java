@@ -0,0 +1,109 @@
+package iskahoot.concurrent;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** A barrierAction corre uma única vez, seja pela última chegada, pelo prazo ou por release(). */
+@Timeout(30)
+class TeamBarrierTest {
+
+    private static final int THREADS = 8;
+
+    private static ExecutorService pool;
+    private static TimerWheel timers;
+
+    @BeforeAll
+    static void start() {
+        pool = Executors.newFixedThreadPool(THREADS);
+        timers = new TimerWheel("test-timers", 10, 64);
+    }
+
+    @AfterAll
+    static void stop() {
+        pool.shutdownNow();
+    }
+
+    @RepeatedTest(50)
+    void lastArrivalRunsTheActionOnce() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        TeamBarrier barrier = new TeamBarrier(THREADS, 30, runs::incrementAndGet, timers);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<Boolean>> arrivals = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            arrivals.add(pool.submit(() -> {
+                go.await();
+                return barrier.arrive();
+            }));
+        }
+        go.countDown();
+        int openers = 0;
+        for (Future<Boolean> a : arrivals) if (a.get()) openers++;
+        assertEquals(1, openers);
+        assertEquals(1, runs.get());
+        assertTrue(barrier.isReleased());
+        assertFalse(barrier.arrive()); // chegadas depois de abrir não voltam a correr a ação
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void deadlineRunsTheActionWhenSomeoneIsMissing() throws Exception {
+        CountDownLatch ran = new CountDownLatch(1);
+        TeamBarrier barrier = new TeamBarrier(3, 1, ran::countDown, timers);
+        long start = System.nanoTime();
+        assertFalse(barrier.arrive());
+        assertFalse(barrier.arrive());
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 900);
+        assertTrue(barrier.isReleased());
+        assertFalse(barrier.arrive());
+    }
+
+    @RepeatedTest(50)
+    void releaseRacingWithArrivalsRunsTheActionOnce() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        TeamBarrier barrier = new TeamBarrier(THREADS - 1, 30, runs::incrementAndGet, timers);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int i = 0; i < THREADS - 1; i++) {
+            tasks.add(pool.submit(() -> {
+                go.await();
+                return barrier.arrive();
+            }));
+        }
+        tasks.add(pool.submit(() -> {
+            go.await();
+            return barrier.release();
+        }));
+        go.countDown();
+        for (Future<?> t : tasks) t.get();
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void awaitReturnsWhenTheBarrierOpens() throws Exception {
+        TeamBarrier barrier = new TeamBarrier(2, 30, null, timers);
+        Future<?> waiter = pool.submit(() -> {
+            barrier.await();
+            return null;
+        });
+        barrier.arrive(); // abre-a esta chegada ou a do waiter, conforme a ordem
+        waiter.get(5, TimeUnit.SECONDS);
+        assertTrue(barrier.isReleased());
+    }
+}
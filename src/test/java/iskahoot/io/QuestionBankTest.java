@@ -0,0 +1,75 @@
+package iskahoot.io;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Cache do banco de perguntas: cada quiz é lido uma vez, mesmo com pedidos em simultâneo. */
+@Timeout(30)
+class QuestionBankTest {
+
+    @TempDir
+    Path dir;
+
+    private Path bank(int quizzes) throws IOException {
+        StringBuilder json = new StringBuilder("{\"quizzes\": [");
+        for (int i = 0; i < quizzes; i++) {
+            if (i > 0) json.append(',');
+            json.append("{\"name\": \"Quiz ").append(i).append("\", \"questions\": [")
+                    .append("{\"question\": \"Pergunta ").append(i).append("?\", \"points\": 5, \"correct\": 1,")
+                    .append(" \"options\": [\"a\", \"b\", \"c\"]}]}");
+        }
+        Path file = dir.resolve("banco.json");
+        Files.writeString(file, json.append("]}").toString());
+        return file;
+    }
+
+    @Test
+    void concurrentRequestsShareOneRead() throws Exception {
+        QuestionBank bank = QuestionBank.open(bank(3), 1 << 20);
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch go = new CountDownLatch(1);
+            List<Future<QuizCatalog.Entry>> got = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                got.add(pool.submit(() -> {
+                    go.await();
+                    return bank.get(1);
+                }));
+            }
+            go.countDown();
+            QuizCatalog.Entry first = got.get(0).get();
+            for (Future<QuizCatalog.Entry> f : got) assertSame(first, f.get());
+            assertEquals("Quiz 1", first.name());
+            assertTrue(bank.describe().endsWith(" 1 leituras"), bank.describe());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void evictedQuizIsReadAgain() throws Exception {
+        QuestionBank bank = QuestionBank.open(bank(2), 1); // só cabe um quiz
+        QuizCatalog.Entry a = bank.get(0);
+        bank.get(1);
+        QuizCatalog.Entry again = bank.get(0);
+        assertEquals(a.name(), again.name());
+        assertTrue(bank.describe().startsWith("2 quizzes, 1 em cache"), bank.describe());
+        assertTrue(bank.describe().endsWith(" 3 leituras"), bank.describe());
+    }
+}
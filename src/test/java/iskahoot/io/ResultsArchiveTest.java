@@ -0,0 +1,53 @@
+package iskahoot.io;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/** Arquivo de resultados: nomes que o writeUTF não aceitava e linhas inválidas contadas no resultado. */
+class ResultsArchiveTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void nullTeamAndLongNamesAreArchived() throws IOException {
+        String longTeam = "é".repeat(40_000); // 80000 bytes em UTF-8
+        ResultsArchive.Batch b = new ResultsArchive.Batch();
+        b.add(0, "ana", null, 1, true, 5, 120);
+        b.add(0, "x".repeat(70_000), longTeam, 2, false, 0, 300);
+        try (ResultsArchive a = ResultsArchive.open(dir)) {
+            a.append("ABCD", 0, 1000L, b);
+        }
+        try (ResultsArchive a = ResultsArchive.open(dir)) {
+            assertEquals(1, a.games());
+            assertEquals(2, a.rows());
+            List<ResultsArchive.TeamGame> nullTeam = a.teamHistory(null, 10);
+            assertEquals(1, nullTeam.size());
+            assertEquals(5, nullTeam.get(0).points());
+            List<ResultsArchive.TeamGame> longer = a.teamHistory(longTeam, 10);
+            assertEquals(1, longer.size());
+            assertEquals("ABCD", longer.get(0).code());
+            assertEquals(0, longer.get(0).correct());
+        }
+    }
+
+    @Test
+    void invalidQuestionsAreCountedNotPrinted() throws IOException {
+        ResultsArchive.Batch b = new ResultsArchive.Batch();
+        b.add(3, "ana", "Team1", 1, true, 5, 100);
+        b.add(-1, "rui", "Team1", 1, true, 5, 100);
+        try (ResultsArchive a = ResultsArchive.open(dir)) {
+            a.append("ABCD", 0, 1000L, b);
+            ResultsArchive.QuestionStats s = a.questionStats(10);
+            assertEquals(1, s.skipped());
+            assertEquals(1, s.stats().size());
+            assertEquals(3, s.stats().get(0).question());
+        }
+    }
+}
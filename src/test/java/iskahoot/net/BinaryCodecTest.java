@@ -0,0 +1,216 @@
+package iskahoot.net;
+
+import iskahoot.model.Question;
+import iskahoot.model.Quiz;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Ida e volta de cada mensagem pelo codec binário e tramas mal formadas (só StreamCorruptedException). */
+class BinaryCodecTest {
+
+    /** Codifica e descodifica o corpo da trama (sem os 4 bytes do comprimento). */
+    private static <T extends Message> T roundTrip(T m) throws IOException {
+        byte[] frame = BinaryCodec.frame(m);
+        int len = ((frame[0] & 0xFF) << 24) | ((frame[1] & 0xFF) << 16) | ((frame[2] & 0xFF) << 8) | (frame[3] & 0xFF);
+        assertEquals(frame.length - 4, len);
+        Message back = BinaryCodec.decode(frame, 4, len);
+        assertInstanceOf(m.getClass(), back);
+        @SuppressWarnings("unchecked")
+        T t = (T) back;
+        return t;
+    }
+
+    private static Quiz quiz() {
+        List<Question> qs = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Question q = new Question();
+            q.question = "Pergunta " + i + " — ção";
+            q.options = List.of("a", "b", "c", "d");
+            q.correct = i;
+            q.points = 5 * (i + 1);
+            qs.add(q);
+        }
+        return new Quiz("Quiz de teste", qs);
+    }
+
+    @Test
+    void joinRoundTrip() throws IOException {
+        JoinMessage j = roundTrip(new JoinMessage("ABCD", "Team1", "ana", true, true));
+        assertEquals("ABCD", j.gameCode);
+        assertEquals("Team1", j.teamId);
+        assertEquals("ana", j.username);
+        assertTrue(j.quizCache);
+        assertTrue(j.scoreDeltas);
+    }
+
+    @Test
+    void joinFromOlderClientHasDefaults() throws IOException {
+        // sem os dois booleanos finais, como enviava um cliente anterior
+        byte[] frame = BinaryCodec.frame(new JoinMessage("ABCD", "Team1", "ana"));
+        JoinMessage j = (JoinMessage) BinaryCodec.decode(frame, 4, frame.length - 4 - 2);
+        assertEquals("ana", j.username);
+        assertFalse(j.quizCache);
+        assertFalse(j.scoreDeltas);
+    }
+
+    @Test
+    void joinResponseRoundTrip() throws IOException {
+        JoinResponse r = new JoinResponse(true, "ok");
+        r.resumeToken = "tok";
+        JoinResponse back = roundTrip(r);
+        assertTrue(back.ok);
+        assertEquals("ok", back.info);
+        assertEquals("tok", back.resumeToken);
+    }
+
+    @Test
+    void questionAndAnswerRoundTrip() throws IOException {
+        QuestionMessage q = roundTrip(new QuestionMessage("ABCD", 2, 10, "Quanto é 2+2?", List.of("3", "4"), 20, 30));
+        assertEquals(2, q.questionIndex);
+        assertEquals(10, q.totalQuestions);
+        assertEquals("Quanto é 2+2?", q.questionText);
+        assertEquals(List.of("3", "4"), q.options);
+        assertEquals(20, q.points);
+        assertEquals(30, q.seconds);
+
+        AnswerMessage a = roundTrip(new AnswerMessage("ABCD", "Team1", "ana", 2, -1));
+        assertEquals("ana", a.username);
+        assertEquals(2, a.questionIndex);
+        assertEquals(-1, a.option);
+    }
+
+    @Test
+    void nullsSurvive() throws IOException {
+        QuestionMessage q = roundTrip(new QuestionMessage(null, 0, 0, null, null, 0, 0));
+        assertNull(q.gameCode);
+        assertNull(q.questionText);
+        assertNull(q.options);
+        ScoreboardMessage s = roundTrip(new ScoreboardMessage("ABCD", 0, null, null, null, null));
+        assertNull(s.scoreboard);
+        assertNull(s.ranking);
+    }
+
+    @Test
+    void scoreboardRoundTrip() throws IOException {
+        Map<String, Integer> totals = new LinkedHashMap<>();
+        totals.put("Team1", 30);
+        totals.put("Team2", -5);
+        ScoreboardMessage s = new ScoreboardMessage("ABCD", 3, "ronda", totals, Map.of("Team1", 10),
+                List.of("Team1", "Team2"), 1, 2);
+        s.version = 4;
+        s.baseVersion = 3;
+        ScoreboardMessage back = roundTrip(s);
+        assertEquals(totals, back.scoreboard);
+        assertEquals(List.copyOf(totals.keySet()), List.copyOf(back.scoreboard.keySet()));
+        assertEquals(Map.of("Team1", 10), back.roundPoints);
+        assertEquals(List.of("Team1", "Team2"), back.ranking);
+        assertEquals(1, back.rank);
+        assertEquals(2, back.totalTeams);
+        assertEquals(4, back.version);
+        assertEquals(3, back.baseVersion);
+    }
+
+    @Test
+    void otherMessagesRoundTrip() throws IOException {
+        assertEquals("fim", roundTrip(new GameOverMessage("ABCD", "fim")).info);
+        assertEquals("erro", roundTrip(new ErrorMessage("erro")).info);
+        assertEquals("h", roundTrip(new QuizOfferMessage("ABCD", "h")).hash);
+        assertEquals("h", roundTrip(new QuizRequestMessage("ABCD", "h")).hash);
+        assertEquals(7, roundTrip(new ScoreboardSyncMessage("ABCD", 7)).version);
+        assertEquals("tok", roundTrip(new ResumeMessage("ABCD", "tok")).token);
+        ResumeResponse rr = roundTrip(new ResumeResponse(true, "ok", "Team1", "ana", 4));
+        assertEquals("ana", rr.username);
+        assertEquals(4, rr.answeredQuestion);
+    }
+
+    @Test
+    void quizRoundTripAndStableHash() throws IOException {
+        Quiz q = quiz();
+        QuizPayloadMessage back = roundTrip(new QuizPayloadMessage("ABCD", q));
+        assertEquals(q.name, back.quiz.name);
+        assertEquals(3, back.quiz.questions.size());
+        assertEquals("Pergunta 1 — ção", back.quiz.questions.get(1).question);
+        assertEquals(10, back.quiz.questions.get(1).points);
+        assertEquals(List.of("a", "b", "c", "d"), back.quiz.questions.get(2).options);
+        assertEquals(2, back.quiz.questions.get(2).correct);
+        assertArrayEquals(BinaryCodec.encodeQuiz(q), BinaryCodec.encodeQuiz(BinaryCodec.decodeQuiz(BinaryCodec.encodeQuiz(q))));
+        assertEquals(BinaryCodec.quizHash(q), BinaryCodec.quizHash(quiz()));
+    }
+
+    @Test
+    void negativeCountIsCorrupted() {
+        // QUESTION com a lista de opções a dizer 0xFFFFFFFF elementos
+        byte[] body = {4, 0, 0, 0, 0, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F};
+        assertThrows(StreamCorruptedException.class, () -> BinaryCodec.decode(body, 0, body.length));
+    }
+
+    @Test
+    void countLargerThanFrameIsCorrupted() {
+        // SCOREBOARD com 1000 equipas anunciadas numa trama de poucos bytes
+        byte[] body = {6, 0, 0, 0, (byte) 0xE9, 0x07, 0, 0};
+        assertThrows(StreamCorruptedException.class, () -> BinaryCodec.decode(body, 0, body.length));
+    }
+
+    @Test
+    void unknownTagIsCorrupted() {
+        byte[] body = {99, 0, 0};
+        assertThrows(StreamCorruptedException.class, () -> BinaryCodec.decode(body, 0, body.length));
+    }
+
+    @Test
+    void everyTruncationIsCorrupted() {
+        // sem o placar: os campos do fim são opcionais e um corte nessa fronteira é uma trama antiga válida
+        List<Message> all = List.of(
+                new QuestionMessage("ABCD", 1, 5, "texto", List.of("a", "b"), 10, 30),
+                new AnswerMessage("ABCD", "Team1", "ana", 1, 2),
+                new QuizPayloadMessage("ABCD", quiz()),
+                new ResumeResponse(true, "ok", "Team1", "ana", 0));
+        for (Message m : all) {
+            byte[] frame = BinaryCodec.frame(m);
+            for (int len = 0; len < frame.length - 4; len++) {
+                int n = len;
+                assertThrows(StreamCorruptedException.class, () -> BinaryCodec.decode(frame, 4, n),
+                        m.getClass().getSimpleName() + " cortada em " + n + " bytes");
+            }
+        }
+    }
+
+    @Test
+    void randomBytesNeverEscapeAsRuntimeException() {
+        Random rnd = new Random(42);
+        byte[] valid = BinaryCodec.frame(new ScoreboardMessage("ABCD", 1, "i", Map.of("T", 1), Map.of(), List.of("T")));
+        for (int i = 0; i < 20_000; i++) {
+            byte[] body;
+            if (i % 2 == 0) {
+                body = new byte[rnd.nextInt(32)];
+                rnd.nextBytes(body);
+            } else { // trama válida com um byte trocado
+                body = Arrays.copyOfRange(valid, 4, valid.length);
+                body[rnd.nextInt(body.length)] = (byte) rnd.nextInt(256);
+            }
+            try {
+                BinaryCodec.decode(body, 0, body.length);
+            } catch (StreamCorruptedException expected) {
+                // mal formada: rejeitada
+            } catch (IOException | RuntimeException e) {
+                throw new AssertionError("Corpo " + Arrays.toString(body) + " deu " + e, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package iskahoot.server;
+
+import iskahoot.concurrent.TaskRunner;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/** Registos do diário com campos null: escrevem-se e relêem-se sem partir o jogo nem a retoma. */
+@Timeout(30)
+class GameJournalTest {
+
+    @TempDir
+    Path dir;
+
+    private static GameJournal.Recovered replayUntil(Path file, int members) throws Exception {
+        while (true) { // a thread do diário escreve o lote de forma assíncrona
+            Collection<GameJournal.Recovered> games = GameJournal.replay(file);
+            if (!games.isEmpty() && games.iterator().next().members.size() == members) {
+                return games.iterator().next();
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    @Test
+    void nullStringsRoundTrip() throws Exception {
+        Path file = dir.resolve("journal.bin");
+        GameJournal journal = GameJournal.open(file, TaskRunner.platform());
+        GameRoom room = new GameRoom("ABCD", 2, 2, 3);
+        journal.gameCreated(room);
+        journal.joined("ABCD", null, "ana");   // sem equipa: não conta como membro
+        journal.joined("ABCD", "Team1", "rui");
+        journal.answer("ABCD", 0, null, 1);
+        journal.roundClosed("ABCD", 0, Map.of("Team1", 3));
+        journal.close();
+
+        GameJournal.Recovered g = replayUntil(file, 1);
+        assertEquals(Map.of("rui", "Team1"), g.members);
+        assertEquals(Map.of("Team1", 3), g.totals);
+        assertEquals(1, g.nextRound);
+        assertNull(g.order);
+    }
+}
@@ -0,0 +1,231 @@
+package iskahoot.server;
+
+import iskahoot.cluster.Cluster;
+import iskahoot.cluster.Coordinator;
+import iskahoot.cluster.NodeAddress;
+import iskahoot.concurrent.TaskRunner;
+import iskahoot.io.QuestionLoader;
+import iskahoot.io.QuizCatalog;
+import iskahoot.net.JoinMessage;
+import iskahoot.net.JoinResponse;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Registos concorrentes do GameManager (sem monitor global): joins, códigos e sessões. */
+@Timeout(30)
+class GameManagerTest {
+
+    private static final int THREADS = 8;
+
+    private static ExecutorService pool;
+    private static QuizCatalog catalog;
+
+    @BeforeAll
+    static void start() throws Exception {
+        pool = Executors.newFixedThreadPool(THREADS);
+        catalog = QuizCatalog.of(QuestionLoader.loadFromResource("/questions.json"));
+    }
+
+    @AfterAll
+    static void stop() {
+        pool.shutdownNow();
+    }
+
+    private static <T> List<T> race(int n, java.util.concurrent.Callable<T> task) throws Exception {
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<T>> futures = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            futures.add(pool.submit(() -> {
+                go.await();
+                return task.call();
+            }));
+        }
+        go.countDown();
+        List<T> out = new ArrayList<>();
+        for (Future<T> f : futures) out.add(f.get());
+        return out;
+    }
+
+    @RepeatedTest(20)
+    void sameUsernameJoinsOnlyOnce() throws Exception {
+        GameManager gm = new GameManager(catalog);
+        GameRoom a = gm.createGame(THREADS, 2, 1);
+        GameRoom b = gm.createGame(THREADS, 2, 1);
+        int[] next = {0};
+        List<JoinResponse> answers = race(THREADS, () -> {
+            String code;
+            synchronized (next) {
+                code = (next[0]++ % 2 == 0) ? a.code : b.code;
+            }
+            return gm.handleJoin(new JoinMessage(code, "Team" + Thread.currentThread().getId(), "ana"));
+        });
+        assertEquals(1, answers.stream().filter(r -> r.ok).count());
+        assertEquals(1, a.totalPlayers() + b.totalPlayers());
+    }
+
+    @Test
+    void refusedJoinReleasesTheUsername() {
+        GameManager gm = new GameManager(catalog);
+        GameRoom room = gm.createGame(1, 1, 1);
+        assertTrue(gm.handleJoin(new JoinMessage(room.code, "Team1", "ana")).ok);
+        assertFalse(gm.handleJoin(new JoinMessage(room.code, "Team1", "rui")).ok); // equipa cheia
+        GameRoom other = gm.createGame(1, 1, 1);
+        assertTrue(gm.handleJoin(new JoinMessage(other.code, "Team1", "rui")).ok); // rui ficou livre
+        assertFalse(gm.handleJoin(new JoinMessage("????", "Team1", "zé")).ok);
+    }
+
+    @Test
+    void blankTeamIsRefusedBeforeTheUsernameIsTaken() {
+        GameManager gm = new GameManager(catalog);
+        GameRoom room = gm.createGame(2, 2, 1);
+        assertFalse(gm.handleJoin(new JoinMessage(room.code, null, "ana")).ok);
+        assertFalse(gm.handleJoin(new JoinMessage(room.code, " ", "ana")).ok);
+        assertTrue(gm.handleJoin(new JoinMessage(room.code, "Team1", "ana")).ok);
+    }
+
+    @Test
+    void coordinatorReservationRunsOffTheCallerThread() throws Exception {
+        int port;
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        int coordinatorPort = port;
+        Thread coordinator = new Thread(() -> {
+            try {
+                new Coordinator().serve(coordinatorPort);
+            } catch (IOException ignored) {
+            }
+        });
+        coordinator.setDaemon(true);
+        coordinator.start();
+        while (true) { // à espera que o coordenador aceite ligações
+            try (Socket s = new Socket("127.0.0.1", port)) {
+                break;
+            } catch (IOException notYet) {
+                Thread.sleep(20);
+            }
+        }
+        Cluster cluster = Cluster.of("a", List.of(new NodeAddress("a", "127.0.0.1", 1)), "127.0.0.1:" + port);
+        GameManager gm = new GameManager(TaskRunner.platform(), catalog, GameSession.Mode.SHARED, cluster);
+        GameRoom room = gm.createGame(2, 2, 1);
+
+        BlockingQueue<Object[]> done = new LinkedBlockingQueue<>();
+        gm.handleJoin(new JoinMessage(room.code, "Team1", "ana"), r -> done.add(new Object[]{r, Thread.currentThread()}));
+        Object[] first = done.poll(10, TimeUnit.SECONDS);
+        assertNotNull(first);
+        assertTrue(((JoinResponse) first[0]).ok);
+        assertNotEquals(Thread.currentThread(), first[1]);
+
+        gm.handleJoin(new JoinMessage(room.code, "Team2", "ana"), r -> done.add(new Object[]{r, Thread.currentThread()}));
+        assertFalse(((JoinResponse) done.poll(10, TimeUnit.SECONDS)[0]).ok); // reservado no coordenador
+    }
+
+    @RepeatedTest(10)
+    void concurrentCreatesGetDistinctCodes() throws Exception {
+        GameManager gm = new GameManager(catalog);
+        List<String> codes = race(THREADS * 50, () -> gm.createGame(2, 2, 1).code);
+        Set<String> distinct = new HashSet<>(codes);
+        assertEquals(codes.size(), distinct.size());
+        assertEquals(codes.size(), gm.snapshotGames().size());
+    }
+
+    @RepeatedTest(10)
+    void sessionIsCreatedOnce() throws Exception {
+        GameManager gm = new GameManager(catalog);
+        GameRoom room = gm.createGame(1, 1, 1);
+        List<GameSession> sessions = race(THREADS, () -> gm.getOrCreateSession(room.code, room));
+        GameSession first = sessions.get(0);
+        assertNotNull(first);
+        for (GameSession s : sessions) assertSame(first, s);
+        assertSame(first, gm.getOrCreateSession(room.code, room));
+    }
+
+    /** Thread do ator do jogo code, ou null se não houver nenhuma viva. */
+    private static Thread actorThread(String code) {
+        for (Thread t : Thread.getAllStackTraces().keySet()) {
+            if (t.getName().equals("session-" + code) && t.isAlive()) return t;
+        }
+        return null;
+    }
+
+    private static ClientEndpoint endpoint() {
+        ClientEndpoint.Settings settings = new ClientEndpoint.Settings(64, ClientEndpoint.OverflowPolicy.DISCONNECT, Runnable::run);
+        return new ClientEndpoint(m -> {
+        }, settings, () -> {
+        });
+    }
+
+    @Test
+    void actorThreadEndsWhenTheRoomEmptiesBeforeTheStart() throws Exception {
+        GameManager gm = new GameManager(TaskRunner.platform(), catalog, GameSession.Mode.ACTOR);
+        GameRoom room = gm.createGame(2, 1, 1);
+        GameSession session = gm.getOrCreateSession(room.code, room);
+        assertNull(actorThread(room.code)); // sem jogadores não há thread
+
+        assertTrue(gm.handleJoin(new JoinMessage(room.code, "Team1", "ana")).ok);
+        ClientEndpoint ana = endpoint();
+        session.addClient(ana, "Team1", "ana");
+        Thread first = actorThread(room.code);
+        assertNotNull(first);
+
+        session.removeClient(ana, "ana");
+        gm.disconnectUser(room.code, "ana");
+        first.join(5000);
+        assertFalse(first.isAlive());
+
+        // o jogo continua à espera de jogadores: o próximo join abre outro ator
+        assertTrue(gm.handleJoin(new JoinMessage(room.code, "Team1", "rui")).ok);
+        session.addClient(endpoint(), "Team1", "rui");
+        Thread second = actorThread(room.code);
+        assertNotNull(second);
+        assertNotSame(first, second);
+        gm.endGame(room.code);
+        second.join(5000);
+        assertFalse(second.isAlive());
+    }
+
+    @Test
+    void removedGameStopsItsActor() throws Exception {
+        GameManager gm = new GameManager(TaskRunner.platform(), catalog, GameSession.Mode.ACTOR);
+        GameRoom room = gm.createGame(2, 1, 1);
+        assertTrue(gm.handleJoin(new JoinMessage(room.code, "Team1", "ana")).ok);
+        GameSession session = gm.getOrCreateSession(room.code, room);
+        session.addClient(endpoint(), "Team1", "ana");
+        Thread actor = actorThread(room.code);
+        assertNotNull(actor);
+
+        gm.endGame(room.code); // jogo que nunca chegou a começar
+        actor.join(5000);
+        assertFalse(actor.isAlive());
+        assertNull(gm.getSession(room.code));
+        session.addClient(endpoint(), "Team2", "rui"); // ligação atrasada: não volta a abrir o ator
+        assertNull(actorThread(room.code));
+    }
+}
@@ -0,0 +1,150 @@
+package iskahoot.server;
+
+import iskahoot.model.Question;
+import iskahoot.model.Quiz;
+import iskahoot.net.AnswerMessage;
+import iskahoot.net.JoinMessage;
+import iskahoot.net.QuizPayloadMessage;
+import iskahoot.net.ScoreboardMessage;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/** O stream de objetos chega aos bocados ao event loop: cada objeto sai inteiro, uma só vez. */
+class ObjectStreamDecoderTest {
+
+    private static byte[] stream(List<Object> objects) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            for (int i = 0; i < objects.size(); i++) {
+                if (i == objects.size() / 2) out.reset(); // handles recomeçam a meio
+                out.writeObject(objects.get(i));
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    /** Entrega os bytes em pedaços de chunk e recolhe os objetos à medida que ficam completos. */
+    private static List<Object> decode(byte[] bytes, int chunk) throws IOException {
+        ObjectStreamDecoder d = new ObjectStreamDecoder();
+        List<Object> out = new ArrayList<>();
+        for (int off = 0; off < bytes.length; off += chunk) {
+            d.feed(ByteBuffer.wrap(bytes, off, Math.min(chunk, bytes.length - off)));
+            Object o;
+            while ((o = d.next()) != null) out.add(o);
+        }
+        return out;
+    }
+
+    private static List<Object> messages() {
+        Map<String, Integer> totals = new LinkedHashMap<>();
+        totals.put("Team1", 30);
+        totals.put("Team2", 10);
+        Question q = new Question();
+        q.question = "Pergunta";
+        q.options = List.of("a", "b");
+        q.correct = 1;
+        q.points = 5;
+        List<Object> all = new ArrayList<>();
+        all.add(new JoinMessage("ABCD", "Team1", "ana", true, false));
+        for (int i = 0; i < 5; i++) all.add(new AnswerMessage("ABCD", "Team1", "ana", i, i % 4));
+        all.add(new ScoreboardMessage("ABCD", 2, "ronda", totals, Map.of("Team1", 10), List.of("Team1", "Team2"), 1, 2));
+        all.add(new QuizPayloadMessage("ABCD", new Quiz("q", List.of(q, q))));
+        all.add(new AnswerMessage("ABCD", "Team1", "x".repeat(70_000), 9, 1)); // TC_LONGSTRING
+        all.add(new int[]{1, 2, 3});
+        all.add(new String[]{"a", null});
+        all.add(TimeUnit.SECONDS);
+        all.add(String.class);
+        all.add(new AnswerMessage("ABCD", "Team2", "rui", 6, 0));
+        return all;
+    }
+
+    @Test
+    void everySplitDecodesTheSameObjects() throws IOException {
+        byte[] bytes = stream(messages());
+        for (int chunk : new int[]{1, 3, 7, 64, 4096, bytes.length}) {
+            List<Object> out = decode(bytes, chunk);
+            assertEquals(messages().size(), out.size(), "pedaços de " + chunk);
+            JoinMessage j = assertInstanceOf(JoinMessage.class, out.get(0));
+            assertEquals("ana", j.username);
+            assertEquals(4, assertInstanceOf(AnswerMessage.class, out.get(5)).questionIndex);
+            ScoreboardMessage s = assertInstanceOf(ScoreboardMessage.class, out.get(6));
+            assertEquals(List.of("Team1", "Team2"), List.copyOf(s.scoreboard.keySet()));
+            assertEquals(2, s.totalTeams);
+            QuizPayloadMessage qp = assertInstanceOf(QuizPayloadMessage.class, out.get(7));
+            assertEquals(List.of("a", "b"), qp.quiz.questions.get(1).options);
+            assertEquals(70_000, assertInstanceOf(AnswerMessage.class, out.get(8)).username.length());
+            assertArrayEquals(new int[]{1, 2, 3}, (int[]) out.get(9));
+            assertArrayEquals(new String[]{"a", null}, (String[]) out.get(10));
+            assertSame(TimeUnit.SECONDS, out.get(11));
+            assertSame(String.class, out.get(12));
+            assertEquals("rui", assertInstanceOf(AnswerMessage.class, out.get(13)).username);
+        }
+    }
+
+    @Test
+    void partialObjectWaitsForTheRest() throws IOException {
+        byte[] bytes = stream(List.of(new AnswerMessage("ABCD", "Team1", "ana", 1, 2)));
+        ObjectStreamDecoder d = new ObjectStreamDecoder();
+        d.feed(ByteBuffer.wrap(bytes, 0, bytes.length - 1));
+        assertNull(d.next());
+        assertNull(d.next());
+        d.feed(ByteBuffer.wrap(bytes, bytes.length - 1, 1));
+        assertEquals("ana", assertInstanceOf(AnswerMessage.class, d.next()).username);
+        assertNull(d.next());
+    }
+
+    @Test
+    void garbageIsCorrupted() throws IOException {
+        byte[] bytes = stream(List.of());
+        byte[] bad = Arrays.copyOf(bytes, bytes.length + 3);
+        bad[bytes.length] = 0x01;
+        assertThrows(StreamCorruptedException.class, () -> decode(bad, bad.length));
+    }
+
+    @Test
+    void primitiveDataOutsideAnObjectIsCorrupted() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeInt(42);
+        }
+        assertThrows(StreamCorruptedException.class, () -> decode(bytes.toByteArray(), 1));
+    }
+
+    @Test
+    void deepNestingIsCorrupted() throws IOException {
+        Object nested = "fundo";
+        for (int i = 0; i < 200; i++) nested = new Object[]{nested};
+        byte[] bytes = stream(List.of(nested));
+        assertThrows(StreamCorruptedException.class, () -> decode(bytes, bytes.length));
+    }
+
+    @Test
+    void badHandleIsCorrupted() throws IOException {
+        byte[] bytes = stream(List.of());
+        byte[] bad = Arrays.copyOf(bytes, bytes.length + 5);
+        bad[bytes.length] = 0x71; // TC_REFERENCE para um handle que não existe
+        bad[bytes.length + 1] = 0x00;
+        bad[bytes.length + 2] = 0x7E;
+        bad[bytes.length + 3] = 0x00;
+        bad[bytes.length + 4] = 0x09;
+        assertThrows(StreamCorruptedException.class, () -> decode(bad, 2));
+    }
+}
@@ -0,0 +1,96 @@
+package iskahoot.server;
+
+import iskahoot.io.QuizCatalog;
+import iskahoot.model.Question;
+import iskahoot.model.QuestionsFile;
+import iskahoot.model.Quiz;
+import iskahoot.net.AnswerMessage;
+import iskahoot.net.Message;
+import iskahoot.net.QuestionMessage;
+import iskahoot.net.ScoreboardMessage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Latência entre a última resposta de uma ronda de equipa e o ScoreboardMessage dessa ronda.
+ * Com o polling de 50 ms a mediana ficava perto dos 50 ms; agora a ronda acorda na última libertação.
+ */
+@Timeout(60)
+class RoundLatencyTest {
+
+    private static final int TEAM_ROUNDS = 15;
+
+    private record Received(long nanos, Message message) {
+    }
+
+    private static ClientEndpoint endpoint(BlockingQueue<Received> inbox) {
+        ClientEndpoint.Settings settings = new ClientEndpoint.Settings(64, ClientEndpoint.OverflowPolicy.DISCONNECT, Runnable::run);
+        return new ClientEndpoint(m -> inbox.add(new Received(System.nanoTime(), m.message())), settings, () -> {
+        });
+    }
+
+    private static QuizCatalog.Entry quiz(int n) {
+        List<Question> qs = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            Question q = new Question();
+            q.question = "Pergunta " + i;
+            q.options = List.of("a", "b");
+            q.correct = 0;
+            q.points = 1;
+            qs.add(q);
+        }
+        QuestionsFile qf = new QuestionsFile();
+        qf.quizzes = List.of(new Quiz("latência", qs));
+        return QuizCatalog.of(qf).get(0);
+    }
+
+    private static <T extends Message> Received next(BlockingQueue<Received> inbox, Class<T> type, int idx) throws InterruptedException {
+        while (true) {
+            Received r = inbox.poll(35, TimeUnit.SECONDS);
+            assertNotNull(r, "sem " + type.getSimpleName() + " " + idx);
+            if (type.isInstance(r.message())) {
+                int got = r.message() instanceof QuestionMessage q ? q.questionIndex : ((ScoreboardMessage) r.message()).questionIndex;
+                if (got == idx) return r;
+            }
+        }
+    }
+
+    @Test
+    void teamRoundClosesRightAfterTheLastAnswer() throws Exception {
+        int questions = 2 * TEAM_ROUNDS; // as perguntas ímpares são de equipa
+        GameRoom room = new GameRoom("LAT1", 2, 1, questions);
+        room.tryJoin("A", "a");
+        room.tryJoin("B", "b");
+        GameSession session = new GameSession("LAT1", quiz(questions), room, null);
+        BlockingQueue<Received> inbox = new LinkedBlockingQueue<>();
+        session.addClient(endpoint(inbox), "A", "a");
+        session.addClient(endpoint(new LinkedBlockingQueue<>()), "B", "b");
+
+        List<Long> micros = new ArrayList<>();
+        for (int i = 0; i < questions; i++) {
+            next(inbox, QuestionMessage.class, i);
+            session.handleAnswer(new AnswerMessage("LAT1", "A", "a", i, 0));
+            session.handleAnswer(new AnswerMessage("LAT1", "B", "b", i, 0));
+            long lastAnswer = System.nanoTime();
+            Received board = next(inbox, ScoreboardMessage.class, i);
+            if (i % 2 == 1) micros.add(TimeUnit.NANOSECONDS.toMicros(board.nanos() - lastAnswer));
+        }
+        Collections.sort(micros);
+        long p50 = micros.get(micros.size() / 2);
+        long max = micros.get(micros.size() - 1);
+        System.out.println("Última resposta -> placar (ronda de equipa): p50=" + p50 + " us, max=" + max + " us");
+        assertEquals(TEAM_ROUNDS, micros.size());
+        assertTrue(p50 < 10_000, "p50 " + p50 + " us");
+    }
+}
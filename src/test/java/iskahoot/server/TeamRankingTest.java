@@ -0,0 +1,38 @@
+package iskahoot.server;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/** A treap, atualizada a cada pontuação, dá sempre a mesma ordem que ordenar tudo. */
+class TeamRankingTest {
+
+    @Test
+    void incrementalAddsMatchAFullSort() {
+        int teams = 500;
+        Random rnd = new Random(7);
+        TeamRanking ranking = new TeamRanking(teams);
+        int[] scores = new int[teams];
+        for (int t = 0; t < teams; t++) ranking.update(t, 0);
+        for (int round = 0; round < 200; round++) {
+            for (int i = 0; i < 25; i++) {
+                int t = rnd.nextInt(teams);
+                int points = rnd.nextInt(4) * 5; // inclui 0
+                scores[t] += points;
+                ranking.add(t, points);
+            }
+            Integer[] order = new Integer[teams];
+            for (int t = 0; t < teams; t++) order[t] = t;
+            Arrays.sort(order, (a, b) -> scores[a] != scores[b] ? Integer.compare(scores[b], scores[a]) : Integer.compare(a, b));
+            int[] expected = new int[10];
+            for (int k = 0; k < expected.length; k++) expected[k] = order[k];
+            assertArrayEquals(expected, ranking.top(10), "ronda " + round);
+            for (int k = 0; k < teams; k += 37) assertEquals(k + 1, ranking.rank(order[k]));
+        }
+        assertEquals(teams, ranking.size());
+    }
+}